@@ -0,0 +1,53 @@
+package com.clubconnect.notificationservice.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parsing of event messages by {@link NotificationConsumer}. Payload dumps are off by
+ * default, so this measures the JSON parsing alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventParsingBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int tagCount;
+
+    private final NotificationConsumer consumer = new NotificationConsumer();
+    private String message;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.add("tag-" + i);
+        }
+        message = new ObjectMapper().writeValueAsString(new NotificationEvent("event-101", "club-123", tags));
+    }
+
+    @Benchmark
+    public NotificationEvent parse() throws Exception {
+        return consumer.parse(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.clubconnect.notificationservice.model.Subscription;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Conversion of DynamoDB items to subscriptions, as done for every item of the table when the
+ * subscription index is loaded and by {@code getAllSubscriptions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriptionDecodeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private List<Map<String, AttributeValue>> items;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        items = SyntheticSubscriptions.items(rows);
+    }
+
+    @Benchmark
+    public Subscription decodeItem() {
+        next = next + 1 < items.size() ? next + 1 : 0;
+        return SubscriptionCodec.decode(items.get(next));
+    }
+
+    @Benchmark
+    public void decodeTable(Blackhole blackhole) {
+        for (Map<String, AttributeValue> item : items) {
+            blackhole.consume(SubscriptionCodec.decode(item));
+        }
+    }
+}
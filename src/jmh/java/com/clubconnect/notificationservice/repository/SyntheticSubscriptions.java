@@ -0,0 +1,95 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Deterministic synthetic subscription table for the benchmarks.
+ *
+ * About one club per hundred subscriptions, a pool of 200 tags and three subscriptions per
+ * user, so club audiences stay small while tag audiences grow with the table, as in
+ * production. Every other subscription is a club subscription; the rest carry one to three tags.
+ * One subscription in fifty has the muted preference.
+ */
+public final class SyntheticSubscriptions {
+
+    public static final int TAG_COUNT = 200;
+
+    private SyntheticSubscriptions() {
+    }
+
+    public static int clubCount(int rows) {
+        return Math.max(10, rows / 100);
+    }
+
+    public static String club(int index) {
+        return "club-" + index;
+    }
+
+    public static String tag(int index) {
+        return "tag-" + index;
+    }
+
+    /**
+     * Generate the items of a table.
+     *
+     * @param rows Number of subscriptions.
+     * @return The items, as a Scan would return them.
+     */
+    public static List<Map<String, AttributeValue>> items(int rows) {
+        Random random = new Random(42);
+        int clubs = clubCount(rows);
+        int users = Math.max(1, rows / 3);
+        List<Map<String, AttributeValue>> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("userId", s("user-" + random.nextInt(users)));
+            item.put("subscriptionId", s("sub-" + i));
+            if (i % 2 == 0) {
+                item.put("type", s("club"));
+                item.put("clubId", s(club(random.nextInt(clubs))));
+            } else {
+                item.put("type", s("tag"));
+                List<String> tags = new ArrayList<>();
+                for (int t = 1 + random.nextInt(3); t > 0; t--) {
+                    String tag = tag(random.nextInt(TAG_COUNT));
+                    if (!tags.contains(tag)) {
+                        tags.add(tag);
+                    }
+                }
+                item.put("tags", AttributeValue.builder().ss(tags).build());
+            }
+            item.put("digest", s(i % 10 == 0 ? "daily" : "immediate"));
+            item.put("preferences", s(i % 50 == 0 ? "muted" : "email"));
+            item.put("userEmail", s("user-" + i + "@example.com"));
+            item.put("version", AttributeValue.builder().n("1").build());
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * A repository whose scan serves the given items instead of calling DynamoDB.
+     *
+     * @param items The table.
+     * @return The repository.
+     */
+    public static SubscriptionRepository repository(List<Map<String, AttributeValue>> items) {
+        return new SubscriptionRepository(null) {
+            @Override
+            public void scanSubscriptions(Consumer<Map<String, AttributeValue>> sink) {
+                items.forEach(sink);
+            }
+        };
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
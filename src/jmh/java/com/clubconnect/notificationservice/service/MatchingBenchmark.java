@@ -0,0 +1,103 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
+import com.clubconnect.notificationservice.repository.SyntheticSubscriptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Audience matching of one event against the in-memory subscription index: the club and tag
+ * lookups of {@link SubscriptionService} plus the per-user coalescing of
+ * {@link NotificationMatcher}, and the bitmap evaluation of audience expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    private static final int EVENTS = 64;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private NotificationMatcher matcher;
+    private SubscriptionService subscriptionService;
+    private final List<String> clubIds = new ArrayList<>();
+    private final List<List<String>> tags = new ArrayList<>();
+    private final List<AudienceExpression> audiences = new ArrayList<>();
+    private SubscriptionIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        subscriptionService = new SubscriptionService(
+                SyntheticSubscriptions.repository(SyntheticSubscriptions.items(rows)), null);
+        subscriptionService.reloadIndex();
+        matcher = new NotificationMatcher(subscriptionService, new NotificationMetrics(new SimpleMeterRegistry()));
+
+        Random random = new Random(7);
+        for (int i = 0; i < EVENTS; i++) {
+            clubIds.add(SyntheticSubscriptions.club(random.nextInt(SyntheticSubscriptions.clubCount(rows))));
+            tags.add(List.of(SyntheticSubscriptions.tag(random.nextInt(SyntheticSubscriptions.TAG_COUNT)),
+                    SyntheticSubscriptions.tag(random.nextInt(SyntheticSubscriptions.TAG_COUNT))));
+            audiences.add(AudienceExpression.parse("club:" + clubIds.get(i) + " OR (tag:" + tags.get(i).get(0)
+                    + " AND tag:" + tags.get(i).get(1) + ") OR tag:" + tags.get(i).get(1) + " MINUS muted"));
+        }
+
+        index = new SubscriptionIndex();
+        SyntheticSubscriptions.repository(SyntheticSubscriptions.items(rows))
+                .scanSubscriptions(item -> index.put(SubscriptionCodec.decode(item)));
+    }
+
+    @Benchmark
+    public List<Recipient> match() {
+        next = (next + 1) % EVENTS;
+        return matcher.match(clubIds.get(next), tags.get(next));
+    }
+
+    @Benchmark
+    public int findClubAudience() {
+        next = (next + 1) % EVENTS;
+        return subscriptionService.findSubscriptionsForEvent(clubIds.get(next), List.of()).size();
+    }
+
+    @Benchmark
+    public int findTagAudience() {
+        next = (next + 1) % EVENTS;
+        return subscriptionService.findSubscriptionsForEvent(null, tags.get(next)).size();
+    }
+
+    // Bitmap evaluation only, without materializing the subscriptions
+    @Benchmark
+    public int countExpressionAudience() {
+        next = (next + 1) % EVENTS;
+        return index.countAudience(audiences.get(next));
+    }
+
+    @Benchmark
+    public int findExpressionAudience() {
+        next = (next + 1) % EVENTS;
+        return index.findForAudience(audiences.get(next)).size();
+    }
+}
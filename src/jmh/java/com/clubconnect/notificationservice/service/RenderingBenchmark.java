@@ -0,0 +1,64 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+/**
+ * Rendering of notification bodies: a render cache hit, as seen by every recipient after the
+ * first one matched the same way, and a full render of the text and HTML templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmark {
+
+    private final List<String> tags = List.of("Technology", "AI", "Music");
+    private final Recipient clubRecipient = new Recipient("user1", List.of("sub1"), true, List.of("AI"), DigestMode.IMMEDIATE);
+    private final Recipient tagRecipient = new Recipient("user2", List.of("sub2"), false, List.of("AI", "Music"), DigestMode.IMMEDIATE);
+
+    private NotificationRenderer cachedRenderer;
+    private NotificationRenderer uncachedRenderer;
+
+    @Setup
+    public void setUp() {
+        TemplateEngine templateEngine = new TemplateEngine(new DefaultResourceLoader(),
+                "classpath:templates/notifications/", List.of("club", "tag"), "ClubConnect: New Event Notification");
+        cachedRenderer = new NotificationRenderer(templateEngine, 1024);
+        // A cache of size 0 evicts every entry right away, so each call renders
+        uncachedRenderer = new NotificationRenderer(templateEngine, 0);
+    }
+
+    @Benchmark
+    public RenderedMessage renderCached() {
+        return cachedRenderer.render(clubRecipient, "101", "123", tags);
+    }
+
+    @Benchmark
+    public RenderedMessage renderClub() {
+        return uncachedRenderer.render(clubRecipient, "101", "123", tags);
+    }
+
+    @Benchmark
+    public RenderedMessage renderTag() {
+        return uncachedRenderer.render(tagRecipient, "101", "123", tags);
+    }
+}
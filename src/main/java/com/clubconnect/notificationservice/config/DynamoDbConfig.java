@@ -1,26 +1,110 @@
 package com.clubconnect.notificationservice.config;
 
+import java.net.URI;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 /**
- * Configuration class to set up the DynamoDB client.
+ * Configuration class to set up the DynamoDB clients.
+ *
+ * Both the blocking client and the non-blocking client get explicit connection pools and
+ * timeouts. Set {@code dynamodb.endpoint} to point them at DynamoDB Local.
  */
 @Configuration
 public class DynamoDbConfig {
 
+    @Value("${dynamodb.region:us-east-1}")
+    private String region;
+
+    @Value("${dynamodb.endpoint:}")
+    private String endpoint;
+
+    @Value("${dynamodb.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${dynamodb.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${dynamodb.http.socket-timeout-ms:10000}")
+    private long socketTimeoutMillis;
+
+    @Value("${dynamodb.http.connection-acquisition-timeout-ms:5000}")
+    private long connectionAcquisitionTimeoutMillis;
+
+    @Value("${dynamodb.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Value("${dynamodb.async.max-pending-acquires:10000}")
+    private int asyncMaxPendingAcquires;
+
+    @Value("${dynamodb.api-call-timeout-ms:30000}")
+    private long apiCallTimeoutMillis;
+
+    @Value("${dynamodb.api-call-attempt-timeout-ms:5000}")
+    private long apiCallAttemptTimeoutMillis;
+
     /**
      * Creates a DynamoDB client bean to interact with DynamoDB in the specified region.
      *
+     * @param metricsInterceptor Interceptor timing every call.
      * @return DynamoDbClient instance
      */
     @Bean
-    public DynamoDbClient dynamoDbClient() {
-        return DynamoDbClient.builder()
-                .region(Region.US_EAST_1)  // Specify your AWS region
+    public DynamoDbClient dynamoDbClient(DynamoDbMetricsInterceptor metricsInterceptor) {
+        var builder = DynamoDbClient.builder()
+                .region(Region.of(region))
+                .overrideConfiguration(overrideConfiguration(metricsInterceptor))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis)));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the non-blocking DynamoDB client. Requests are multiplexed over a Netty event loop,
+     * so many calls can be in flight without a thread each.
+     *
+     * @param metricsInterceptor Interceptor timing every call.
+     * @return DynamoDbAsyncClient instance
+     */
+    @Bean
+    public DynamoDbAsyncClient dynamoDbAsyncClient(DynamoDbMetricsInterceptor metricsInterceptor) {
+        var builder = DynamoDbAsyncClient.builder()
+                .region(Region.of(region))
+                .overrideConfiguration(overrideConfiguration(metricsInterceptor))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncMaxConcurrency)
+                        .maxPendingConnectionAcquires(asyncMaxPendingAcquires)
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .readTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .writeTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis)));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    private ClientOverrideConfiguration overrideConfiguration(DynamoDbMetricsInterceptor metricsInterceptor) {
+        return ClientOverrideConfiguration.builder()
+                .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMillis))
+                .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMillis))
+                .addExecutionInterceptor(metricsInterceptor)
                 .build();
     }
 }
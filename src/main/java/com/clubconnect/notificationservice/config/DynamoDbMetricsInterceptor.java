@@ -0,0 +1,60 @@
+package com.clubconnect.notificationservice.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+/**
+ * Times every DynamoDB call, retries included, as {@code dynamodb.requests} tagged with the
+ * {@code operation} (e.g. Query, BatchWriteItem) and its {@code outcome}: success, throttled
+ * or error. Registered on both the sync and the async client.
+ */
+@Component
+public class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("MetricsStartNanos");
+
+    private final MeterRegistry registry;
+
+    public DynamoDbMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, "success");
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, context.exception() instanceof ProvisionedThroughputExceededException ? "throttled" : "error");
+    }
+
+    private void record(ExecutionAttributes executionAttributes, String outcome) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        Timer.builder("dynamodb.requests")
+                .description("Latency of DynamoDB calls")
+                .tag("operation", operation != null ? operation : "unknown")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -2,17 +2,21 @@ package com.clubconnect.notificationservice.config;
 
 import java.util.Properties;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 
 @Configuration
 public class EmailConfig {
 
+    // JavaMail's protocol trace goes straight to stdout, bypassing the logging configuration
+    @Value("${mail.debug:false}")
+    private boolean mailDebug;
+
     @Bean
-    public JavaMailSender mailSender() {
+    public JavaMailSenderImpl mailSender() {
 
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
         mailSender.setHost("smtp.gmail.com"); // Replace with your SMTP host
@@ -25,7 +29,10 @@ public class EmailConfig {
         props.put("mail.transport.protocol", "smtp");
         props.put("mail.smtp.auth", "true");
         props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.debug", "true");
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "10000");
+        props.put("mail.smtp.writetimeout", "10000");
+        props.put("mail.debug", String.valueOf(mailDebug));
 
         return mailSender;
     }
@@ -0,0 +1,49 @@
+package com.clubconnect.notificationservice.config;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.clubconnect.notificationservice.service.FanoutExecutor;
+import com.clubconnect.notificationservice.service.MailDeliveryEngine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges of the work queued or in flight in the notification pipeline. The per-stage timers
+ * are recorded by {@link com.clubconnect.notificationservice.service.NotificationMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder pipelineGauges(FanoutExecutor fanoutExecutor, MailDeliveryEngine mailDeliveryEngine, AmqpAdmin amqpAdmin) {
+        return registry -> {
+            Gauge.builder("notification.fanout.in_flight", fanoutExecutor, FanoutExecutor::inFlightFanouts)
+                    .description("Fan-outs in progress")
+                    .register(registry);
+            Gauge.builder("notification.fanout.tasks", fanoutExecutor, FanoutExecutor::inFlightTasks)
+                    .description("Fan-out tasks running")
+                    .register(registry);
+            Gauge.builder("mail.delivery.queue.depth", mailDeliveryEngine, MailDeliveryEngine::queuedMessages)
+                    .description("Messages waiting for an SMTP worker")
+                    .register(registry);
+            // Read from the broker on each scrape
+            Gauge.builder("notification.delivery.queue.depth", amqpAdmin, MetricsConfig::deliveryQueueDepth)
+                    .description("Delivery tasks waiting on the delivery queue")
+                    .tag("queue", RabbitMQConfig.DELIVERY_QUEUE_NAME)
+                    .register(registry);
+        };
+    }
+
+    private static double deliveryQueueDepth(AmqpAdmin amqpAdmin) {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(RabbitMQConfig.DELIVERY_QUEUE_NAME);
+            return info != null ? info.getMessageCount() : Double.NaN;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
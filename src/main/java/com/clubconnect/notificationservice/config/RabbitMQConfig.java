@@ -3,12 +3,18 @@ package com.clubconnect.notificationservice.config;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory.ConfirmType;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -20,6 +26,12 @@ public class RabbitMQConfig {
     public static final String QUEUE_NAME = "notificationQueue";
     public static final String EXCHANGE_NAME = "notificationExchange";
     public static final String ROUTING_KEY = "notificationKey";
+    public static final String DEAD_LETTER_EXCHANGE_NAME = "notificationDeadLetterExchange";
+    public static final String DEAD_LETTER_QUEUE_NAME = "notificationDeadLetterQueue";
+    public static final String DELIVERY_QUEUE_NAME = "notificationDeliveryQueue";
+    public static final String DELIVERY_ROUTING_KEY = "notificationDeliveryKey";
+    public static final String CHANGE_EXCHANGE_NAME = "subscriptionChangeExchange";
+    public static final String CHANGE_QUEUE_PREFIX = "subscriptionChanges.";
 
     @Value("${spring.rabbitmq.host}")
     private String rabbitMqHost;
@@ -36,9 +48,39 @@ public class RabbitMQConfig {
     @Value("${spring.rabbitmq.ssl.enabled}")
     private boolean sslEnabled;
 
+    @Value("${notification.listener.batch.size:50}")
+    private int batchSize;
+
+    @Value("${notification.listener.batch.receive-timeout-ms:200}")
+    private long batchReceiveTimeout;
+
+    @Value("${notification.listener.batch.prefetch:250}")
+    private int batchPrefetch;
+
+    /**
+     * Event queue. Events the batch listener rejects after a redelivery are routed to
+     * {@value #DEAD_LETTER_QUEUE_NAME} for inspection or replay.
+     */
     @Bean
     public Queue queue() {
-        return new Queue(QUEUE_NAME, true);
+        return QueueBuilder.durable(QUEUE_NAME)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE_NAME)
+                .build();
+    }
+
+    @Bean
+    public FanoutExchange deadLetterExchange() {
+        return new FanoutExchange(DEAD_LETTER_EXCHANGE_NAME);
+    }
+
+    @Bean
+    public Queue deadLetterQueue() {
+        return new Queue(DEAD_LETTER_QUEUE_NAME, true);
+    }
+
+    @Bean
+    public Binding deadLetterBinding(Queue deadLetterQueue, FanoutExchange deadLetterExchange) {
+        return BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange);
     }
 
     @Bean
@@ -51,6 +93,35 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(queue).to(exchange).with(ROUTING_KEY);
     }
 
+    @Bean
+    public Queue deliveryQueue() {
+        return new Queue(DELIVERY_QUEUE_NAME, true);
+    }
+
+    @Bean
+    public Binding deliveryBinding(Queue deliveryQueue, TopicExchange exchange) {
+        return BindingBuilder.bind(deliveryQueue).to(exchange).with(DELIVERY_ROUTING_KEY);
+    }
+
+    @Bean
+    public FanoutExchange subscriptionChangeExchange() {
+        return new FanoutExchange(CHANGE_EXCHANGE_NAME);
+    }
+
+    /**
+     * Queue of this node on the subscription change exchange: uniquely named, exclusive and
+     * deleted when the node disconnects, so every node receives every change.
+     */
+    @Bean
+    public Queue subscriptionChangeQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy(CHANGE_QUEUE_PREFIX));
+    }
+
+    @Bean
+    public Binding subscriptionChangeBinding(Queue subscriptionChangeQueue, FanoutExchange subscriptionChangeExchange) {
+        return BindingBuilder.bind(subscriptionChangeQueue).to(subscriptionChangeExchange);
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -66,6 +137,9 @@ public class RabbitMQConfig {
         connectionFactory.setVirtualHost("/"); // Amazon MQ default virtual host
         connectionFactory.setRequestedHeartBeat(30); // Optional: Heartbeat interval
         connectionFactory.setConnectionTimeout(30000); // Optional: Connection timeout in ms
+        // Correlated confirms and returns, used by the confirmed mode of NotificationProducer
+        connectionFactory.setPublisherConfirmType(ConfirmType.CORRELATED);
+        connectionFactory.setPublisherReturns(true);
 
         if (sslEnabled) {
             try {
@@ -88,4 +162,28 @@ public class RabbitMQConfig {
         factory.setMaxConcurrentConsumers(10); // Maximum number of consumers
         return factory;
     }
+
+    /**
+     * Listener container factory delivering events in batches of up to
+     * {@code notification.listener.batch.size} messages. A batch is closed early when no message
+     * arrives within the receive timeout, so quiet periods are not delayed. Acknowledgement is
+     * manual: the listener acks a whole batch at once after handing it off, or settles each
+     * message on its own when part of the batch failed. Messages are decoded with the same JSON
+     * converter the producer publishes with.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(CachingConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchReceiveTimeout);
+        factory.setPrefetchCount(Math.max(batchPrefetch, batchSize)); // The broker must be able to fill a batch
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(3);
+        factory.setMaxConcurrentConsumers(10);
+        return factory;
+    }
 }
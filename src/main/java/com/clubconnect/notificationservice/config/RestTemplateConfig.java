@@ -4,12 +4,16 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 
 @Configuration
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(MeterRegistry meterRegistry) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new UserLookupMetricsInterceptor(meterRegistry));
+        return restTemplate;
     }
 }
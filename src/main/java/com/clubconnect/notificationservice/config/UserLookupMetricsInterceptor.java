@@ -0,0 +1,58 @@
+package com.clubconnect.notificationservice.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the requests to the user service as {@code user.lookup}, tagged with the
+ * {@code method} (GET for single lookups, POST for batches) and the {@code outcome}: success,
+ * not_found, client_error, server_error or io_error. The URI is left out on purpose, as it
+ * contains the user ID.
+ */
+public class UserLookupMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    private final MeterRegistry registry;
+
+    public UserLookupMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        String outcome = "io_error";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            outcome = outcome(response.getStatusCode().value());
+            return response;
+        } finally {
+            Timer.builder("user.lookup")
+                    .description("Latency of user email lookups")
+                    .tag("method", request.getMethod().name())
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(int status) {
+        if (status == 404) {
+            return "not_found";
+        }
+        if (status >= 500) {
+            return "server_error";
+        }
+        if (status >= 400) {
+            return "client_error";
+        }
+        return "success";
+    }
+}
@@ -0,0 +1,247 @@
+package com.clubconnect.notificationservice.consumer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.model.DeliveryTask;
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+import com.clubconnect.notificationservice.service.DigestBuffer;
+import com.clubconnect.notificationservice.service.EmailService;
+import com.clubconnect.notificationservice.service.FanoutExecutor;
+import com.clubconnect.notificationservice.service.LogContext;
+import com.clubconnect.notificationservice.service.NotificationMetrics;
+import com.clubconnect.notificationservice.service.NotificationRenderer;
+import com.clubconnect.notificationservice.service.UserEmailCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+
+/**
+ * Second stage of the notification pipeline: looks up the recipients of a delivery task,
+ * renders their notifications and sends them. Recipients on an hourly or daily digest get
+ * their notification appended to the digest buffer instead. With
+ * {@code mail.delivery.bcc.enabled}, recipients of an identical body are sent together.
+ */
+@Component
+public class DeliveryConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryConsumer.class);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private NotificationRenderer notificationRenderer;
+
+    @Autowired
+    private UserEmailCache userEmailCache;
+
+    @Autowired
+    private DigestBuffer digestBuffer;
+
+    @Autowired
+    private FanoutExecutor fanoutExecutor;
+
+    @Autowired
+    private NotificationMetrics metrics;
+
+    @Value("${mail.delivery.bcc.enabled:false}")
+    private boolean bccEnabled;
+
+    @Value("${notification.logging.recipient-sample-rate:0.01}")
+    private double recipientLogSampleRate = 0.01;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @RabbitListener(queues = RabbitMQConfig.DELIVERY_QUEUE_NAME)
+    public void receiveDelivery(String message) {
+        AtomicInteger active = metrics.activeConsumers(RabbitMQConfig.DELIVERY_QUEUE_NAME);
+        active.incrementAndGet();
+        try {
+            DeliveryTask task = objectMapper.readValue(message, DeliveryTask.class);
+            try (MDC.MDCCloseable context = LogContext.event(task.getEventId())) {
+                deliver(task);
+            }
+        } catch (Exception e) {
+            log.error("Error parsing or processing delivery task: {}", e.getMessage());
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    void deliver(DeliveryTask task) {
+        String eventId = task.getEventId();
+        String clubId = task.getClubId();
+        List<String> tags = task.getTags() != null ? task.getTags() : List.of();
+        List<Recipient> recipients = new ArrayList<>();
+        if (task.getRecipients() != null) {
+            task.getRecipients().forEach(recipient -> {
+                DigestMode digest = recipient.getDigest() != null ? recipient.getDigest() : DigestMode.IMMEDIATE;
+                if (digest == DigestMode.IMMEDIATE) {
+                    recipients.add(recipient);
+                } else {
+                    buffer(digest, recipient, eventId, clubId, tags);
+                }
+            });
+        }
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        // Resolve the email of every recipient in bulk, served from the cache when possible
+        long lookupStart = metrics.start();
+        Map<String, String> userEmails = userEmailCache.getEmails(recipients.stream()
+                .map(Recipient::getUserId)
+                .collect(Collectors.toSet()));
+        metrics.record(NotificationMetrics.LOOKUP, lookupStart);
+
+        if (bccEnabled) {
+            deliverGrouped(recipients, userEmails, eventId, clubId, tags);
+            return;
+        }
+
+        // Recipients are sent concurrently; each task waits until its message was accepted, so the
+        // per-event concurrency cap and deadline of the fan-out executor also bound the SMTP work.
+        // A task past the deadline is interrupted and drops its message
+        fanoutExecutor.forEach(recipients, recipient -> {
+            String userId = recipient.getUserId();
+            try (MDC.MDCCloseable user = LogContext.recipient(userId)) {
+                String userEmailAddress = userEmails.get(userId);
+
+                // Skip processing if the email is null
+                if (userEmailAddress == null || userEmailAddress.isEmpty()) {
+                    if (LogContext.sampled(recipientLogSampleRate, userId)) {
+                        log.warn("No valid email found for userId: {}. Skipping.", userId);
+                    }
+                    metrics.emails("no_email", 1);
+                    return;
+                }
+
+                if (log.isDebugEnabled() && LogContext.sampled(recipientLogSampleRate, userId)) {
+                    log.debug("Sending notification to userId {} at {}", userId, userEmailAddress);
+                }
+
+                // One notification per user and event, listing every reason it matched; recipients
+                // matched the same way share one cached rendering
+                long renderStart = metrics.start();
+                RenderedMessage notification = notificationRenderer.render(recipient, eventId, clubId, tags);
+                metrics.record(NotificationMetrics.RENDER, renderStart);
+
+                long sendStart = metrics.start();
+                await(emailService.sendNotification(userEmailAddress, notification));
+                metrics.record(NotificationMetrics.SEND, sendStart);
+                metrics.emails("sent", 1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                metrics.emails("timed_out", 1);
+            } catch (Exception ex) {
+                metrics.emails("failed", 1);
+                log.warn("Error processing subscriptions {} (userId: {}): {}", recipient.getSubscriptionIds(), userId, ex.getMessage());
+            }
+        });
+    }
+
+    // Recipients with the same rendered body, e.g. all followers of the club, share envelopes of
+    // many RCPT TOs instead of one SMTP transaction each. Addresses are reduced to their bare
+    // form, the one rejections are reported in, and users sharing an address appear once per
+    // envelope.
+    private void deliverGrouped(List<Recipient> recipients, Map<String, String> userEmails,
+                                String eventId, String clubId, List<String> tags) {
+        Map<RenderedMessage, Set<String>> groups = new LinkedHashMap<>();
+        Map<String, List<String>> userIdsByEmail = new HashMap<>();
+        for (Recipient recipient : recipients) {
+            String userId = recipient.getUserId();
+            String userEmailAddress = userEmails.get(userId);
+            if (userEmailAddress == null || userEmailAddress.isEmpty()) {
+                if (LogContext.sampled(recipientLogSampleRate, userId)) {
+                    log.warn("No valid email found for userId: {}. Skipping.", userId);
+                }
+                metrics.emails("no_email", 1);
+                continue;
+            }
+            try {
+                long renderStart = metrics.start();
+                RenderedMessage notification = notificationRenderer.render(recipient, eventId, clubId, tags);
+                metrics.record(NotificationMetrics.RENDER, renderStart);
+                String address = bareAddress(userEmailAddress);
+                groups.computeIfAbsent(notification, key -> new LinkedHashSet<>()).add(address);
+                userIdsByEmail.computeIfAbsent(address, key -> new ArrayList<>()).add(userId);
+            } catch (Exception ex) {
+                metrics.emails("failed", 1);
+                log.warn("Error processing subscriptions {} (userId: {}): {}", recipient.getSubscriptionIds(), userId, ex.getMessage());
+            }
+        }
+
+        fanoutExecutor.forEach(groups.entrySet(), group -> {
+            long sendStart = metrics.start();
+            Set<String> failed;
+            try {
+                failed = await(emailService.sendBulkNotification(new ArrayList<>(group.getValue()), group.getKey()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metrics.emails("timed_out", group.getValue().size());
+                return;
+            } catch (ExecutionException e) {
+                failed = group.getValue();
+            }
+            metrics.record(NotificationMetrics.SEND, sendStart);
+            metrics.emails("sent", group.getValue().size() - failed.size());
+            metrics.emails("failed", failed.size());
+            failed.forEach(email -> userIdsByEmail.getOrDefault(bareAddress(email), List.of())
+                    .forEach(userId -> log.warn("Notification not delivered to userId: {}", userId)));
+        });
+    }
+
+    // e.g. "user1@example.com" for "User One <user1@example.com>"; unparsable input is kept as it is
+    static String bareAddress(String email) {
+        try {
+            return new InternetAddress(email.trim()).getAddress();
+        } catch (AddressException e) {
+            return email;
+        }
+    }
+
+    // Unlike join(), get() gives up when the fan-out executor interrupts the task at the deadline,
+    // freeing its thread; the send is cancelled so a message still queued is not sent late
+    private static <T> T await(CompletableFuture<T> send) throws InterruptedException, ExecutionException {
+        try {
+            return send.get();
+        } catch (InterruptedException e) {
+            send.cancel(false);
+            throw e;
+        }
+    }
+
+    private void buffer(DigestMode digest, Recipient recipient, String eventId, String clubId, List<String> tags) {
+        try {
+            DigestEntry entry = new DigestEntry(eventId, clubId, tags, recipient.isClub(),
+                    recipient.getTags() != null ? recipient.getTags() : List.of(), System.currentTimeMillis());
+            digestBuffer.append(digest, recipient.getUserId(), entry);
+            metrics.emails("digest", 1);
+        } catch (Exception ex) {
+            log.warn("Error buffering digest entry for userId {}: {}", recipient.getUserId(), ex.getMessage());
+        }
+    }
+}
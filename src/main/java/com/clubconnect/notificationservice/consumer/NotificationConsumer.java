@@ -1,131 +1,279 @@
 package com.clubconnect.notificationservice.consumer;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import com.clubconnect.notificationservice.config.RabbitMQConfig;
-import com.clubconnect.notificationservice.service.EmailService;
-import com.clubconnect.notificationservice.service.SubscriptionService;
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.producer.DeliveryTaskProducer;
+import com.clubconnect.notificationservice.service.AudienceExpression;
+import com.clubconnect.notificationservice.service.LogContext;
+import com.clubconnect.notificationservice.service.NotificationMatcher;
+import com.clubconnect.notificationservice.service.NotificationMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
 
+/**
+ * First stage of the notification pipeline: resolves the audience of each event and fans it
+ * out as delivery tasks on the delivery queue, handled by {@link DeliveryConsumer}.
+ */
 @Component
 public class NotificationConsumer {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificationConsumer.class);
+
     @Autowired
-    private EmailService emailService;
+    private NotificationMatcher notificationMatcher;
 
     @Autowired
-    private SubscriptionService subscriptionService;
+    private DeliveryTaskProducer deliveryTaskProducer;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private NotificationMetrics metrics;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Same converter as the producer's RabbitTemplate, to decode batch bodies
+    @Autowired
+    private Jackson2JsonMessageConverter messageConverter;
 
-    @Value("${userEmailUrl}")
-    private String userEmailUrl;
+    // Raw and parsed event dumps, at DEBUG
+    @Value("${notification.logging.payloads:false}")
+    private boolean logPayloads;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME)
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME,
+            autoStartup = "#{!${notification.listener.batch.enabled:false}}")
     public void receiveMessage(String message) {
-        System.out.println("Received raw message from RabbitMQ: " + message);
+        if (logPayloads && log.isDebugEnabled()) {
+            log.debug("Received raw message from RabbitMQ: {}", message);
+        }
 
+        AtomicInteger active = metrics.activeConsumers(RabbitMQConfig.QUEUE_NAME);
+        active.incrementAndGet();
+        NotificationEvent event = null;
         try {
-            // Parse the JSON string into a Map
-            Map<String, Object> eventMessage = objectMapper.readValue(message, new TypeReference<>() {});
-            System.out.println("Parsed event message: " + eventMessage);
-
-            // Extract event details
-            String eventId = String.valueOf(eventMessage.get("eventId"));
-            String clubId = String.valueOf(eventMessage.get("clubId"));
-            @SuppressWarnings("unchecked")
-            List<String> tags = (List<String>) eventMessage.get("tags");
-
-            if (eventId == null || clubId == null || tags == null) {
-                System.err.println("Invalid event message: Missing required fields.");
+            event = parseTimed(message);
+            if (event == null) {
+                metrics.events("invalid", 1);
                 return;
             }
 
-            // Process subscriptions
-            Map<String, Map<String, String>> allSubscriptions = subscriptionService.getAllSubscriptions();
-            System.out.println("Subscriptions: " + allSubscriptions);
+            try (MDC.MDCCloseable context = LogContext.event(event.getEventId())) {
+                // Resolve the subscriptions matching the event's club or tags
+                dispatch(event, event.getAudience() != null
+                        ? notificationMatcher.matchAudience(event.getClubId(), event.getTags(), event.getAudience())
+                        : notificationMatcher.match(event.getClubId(), event.getTags()));
+            }
+            metrics.events("dispatched", 1);
+        } catch (Exception e) {
+            metrics.events("failed", 1);
+            log.error("Error parsing or processing event {}: {}", event != null ? event.getEventId() : null, e.getMessage());
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Batch variant of {@link #receiveMessage(String)}, used when
+     * {@code notification.listener.batch.enabled} is set. The events of a batch are matched in
+     * one pass and each is dispatched on its own; an event whose audience lookup failed fails
+     * alone. When every event has been dispatched the whole batch is acknowledged with a single
+     * multiple-ack. Otherwise the dispatched and malformed
+     * messages are acked one by one, and each failed one is requeued once; if it fails again
+     * after redelivery it is rejected to the dead-letter exchange rather than requeued forever.
+     *
+     * @param messages The messages of the batch, in delivery order.
+     * @param channel  The channel the batch was received on.
+     */
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME,
+            containerFactory = "batchListenerContainerFactory",
+            autoStartup = "${notification.listener.batch.enabled:false}")
+    public void receiveBatch(List<Message> messages, Channel channel) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        log.debug("Received batch of {} messages from RabbitMQ", messages.size());
 
-            allSubscriptions.forEach((subscriptionId, subscriptionDetails) -> {
+        AtomicInteger active = metrics.activeConsumers(RabbitMQConfig.QUEUE_NAME);
+        active.incrementAndGet();
+        try {
+            // Malformed events are dropped, as in single-message mode
+            List<NotificationEvent> events = new ArrayList<>(messages.size());
+            List<Integer> positions = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
                 try {
-                    // Extract userId from subscriptionDetails
-                    String userId = subscriptionDetails.get("userId");
-                    if (userId == null || userId.isEmpty()) {
-                        System.err.println("No userId found for subscription ID: " + subscriptionId + ". Skipping.");
-                        return;
+                    NotificationEvent event = parseTimed(decode(messages.get(i)));
+                    if (event != null) {
+                        events.add(event);
+                        positions.add(i);
+                    } else {
+                        metrics.events("invalid", 1);
+                    }
+                } catch (Exception e) {
+                    metrics.events("invalid", 1);
+                    log.warn("Error parsing message: {}", e.getMessage());
+                }
+            }
+
+            boolean[] failed = new boolean[messages.size()];
+            int failures = 0;
+            List<CompletableFuture<List<Recipient>>> audiences = null;
+            try {
+                audiences = notificationMatcher.matchAll(events);
+            } catch (Exception e) {
+                log.error("Error matching batch of {} events: {}", events.size(), e.getMessage());
+            }
+            for (int i = 0; i < events.size(); i++) {
+                try (MDC.MDCCloseable context = LogContext.event(events.get(i).getEventId())) {
+                    List<Recipient> recipients;
+                    try {
+                        recipients = audiences != null ? audiences.get(i).join() : null;
+                    } catch (CompletionException e) {
+                        log.error("Error matching event: {}", e.getCause().getMessage());
+                        recipients = null;
                     }
+                    if (recipients == null) {
+                        failed[positions.get(i)] = true;
+                        failures++;
+                        continue;
+                    }
+                    try {
+                        dispatch(events.get(i), recipients);
+                    } catch (Exception e) {
+                        log.error("Error dispatching event: {}", e.getMessage());
+                        failed[positions.get(i)] = true;
+                        failures++;
+                    }
+                }
+            }
+            metrics.events("dispatched", events.size() - failures);
+
+            if (failures == 0) {
+                channel.basicAck(lastDeliveryTag, true);
+                return;
+            }
+            settle(messages, failed, channel);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
 
-                    System.out.println("Processing userId: " + userId);
+    // Ack what was handled; requeue each failure once, then dead-letter it
+    private void settle(List<Message> messages, boolean[] failed, Channel channel) throws IOException {
+        int requeued = 0;
+        int deadLettered = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            MessageProperties properties = messages.get(i).getMessageProperties();
+            if (!failed[i]) {
+                channel.basicAck(properties.getDeliveryTag(), false);
+            } else if (Boolean.TRUE.equals(properties.isRedelivered())) {
+                channel.basicNack(properties.getDeliveryTag(), false, false);
+                deadLettered++;
+            } else {
+                channel.basicNack(properties.getDeliveryTag(), false, true);
+                requeued++;
+            }
+        }
+        metrics.events("requeued", requeued);
+        metrics.events("dead-lettered", deadLettered);
+        log.warn("Requeued {} and dead-lettered {} of {} messages in batch", requeued, deadLettered, messages.size());
+    }
 
-                    // Replace {username} with userId in the userEmailUrl
-                    String resolvedUserEmailUrl = userEmailUrl.replace("{username}", userId);
+    /**
+     * Decodes a batch message into the event JSON, as the single-message listener receives it.
+     * {@code NotificationProducer} publishes through the JSON converter, which quotes the event
+     * string; bodies the converter does not turn into a string are taken as raw JSON.
+     *
+     * @param message The message received in a batch.
+     * @return The event JSON.
+     */
+    String decode(Message message) {
+        try {
+            Object body = messageConverter.fromMessage(message);
+            if (body instanceof String) {
+                return (String) body;
+            }
+        } catch (MessageConversionException e) {
+            // JSON content without a type header, read as raw JSON below
+        }
+        return new String(message.getBody(), StandardCharsets.UTF_8);
+    }
 
-                    // Fetch the user email using RestTemplate
-                    String userEmailAddress = restTemplate.getForObject(resolvedUserEmailUrl, String.class);
+    private NotificationEvent parseTimed(String message) throws JsonProcessingException {
+        long start = metrics.start();
+        try {
+            return parse(message);
+        } finally {
+            metrics.record(NotificationMetrics.PARSE, start);
+        }
+    }
 
-                    // Skip processing if the email is null
-                    if (userEmailAddress == null || userEmailAddress.isEmpty()) {
-                        System.err.println("No valid email found for userId: " + userId + ". Skipping.");
-                        return;
-                    }
+    NotificationEvent parse(String message) throws JsonProcessingException {
+        // Parse the JSON string into a Map
+        Map<String, Object> eventMessage = objectMapper.readValue(message, new TypeReference<>() {});
+        if (logPayloads && log.isDebugEnabled()) {
+            log.debug("Parsed event message: {}", eventMessage);
+        }
 
-                    System.out.println("User email for userId " + userId + ": " + userEmailAddress);
-
-                    // Check for club subscriptions
-                    if (clubId.equals(subscriptionDetails.get("clubId"))) {
-                        String clubMessage = String.format(
-                            "Hello!\n\n" +
-                            "A new event has been added to the club you follow.\n\n" +
-                            "Club ID: %s\n" +
-                            "Event ID: %s\n" +
-                            "Tags: %s\n\n" +
-                            "Don't miss it!\n\n" +
-                            "Best regards,\n" +
-                            "ClubConnect Team",
-                            clubId, 
-                            eventId, 
-                            tags.isEmpty() ? "None" : String.join(", ", tags)
-                        );
-
-                        System.out.println("Club notification email body: " + clubMessage);
-                        emailService.sendNotification(userEmailAddress, eventId, clubMessage);
-                    }
+        // Extract event details
+        String eventId = String.valueOf(eventMessage.get("eventId"));
+        String clubId = String.valueOf(eventMessage.get("clubId"));
+        @SuppressWarnings("unchecked")
+        List<String> tags = (List<String>) eventMessage.get("tags");
+        Object audienceValue = eventMessage.get("audience");
+        String audience = audienceValue instanceof String && !((String) audienceValue).isBlank() ? (String) audienceValue : null;
+        if (audience != null && tags == null) {
+            // Tags are optional when an audience expression selects the recipients
+            tags = List.of();
+        }
 
-                    // Check for tag subscriptions
-                    tags.forEach(tag -> {
-                        if (tag.equals(subscriptionDetails.get("tag"))) {
-                            String tagMessage = String.format(
-                                "Hi!\n\n" +
-                                "A new event matching your interest in '%s' has been added.\n\n" +
-                                "Event ID: %s\n" +
-                                "Club ID: %s\n\n" +
-                                "Check it out!\n\n" +
-                                "Best regards,\n" +
-                                "ClubConnect Team",
-                                tag, eventId, clubId
-                            );
-
-                            System.out.println("Tag notification email body: " + tagMessage);
-                            emailService.sendNotification(userEmailAddress, eventId, tagMessage);
-                        }
-                    });
-                } catch (Exception ex) {
-                    System.err.println("Error processing subscription for subscription ID " + subscriptionId + " (userId: " + subscriptionDetails.get("userId") + "): " + ex.getMessage());
-                }
-            });
+        if (eventId == null || clubId == null || tags == null) {
+            log.warn("Invalid event message: missing required fields");
+            return null;
+        }
+        if (audience != null) {
+            try {
+                AudienceExpression.parse(audience);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid event message: {}", e.getMessage());
+                return null;
+            }
+        }
+        return new NotificationEvent(eventId, clubId, tags, audience);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error parsing or processing message: " + e.getMessage());
+    private void dispatch(NotificationEvent event, List<Recipient> recipients) throws JsonProcessingException {
+        if (recipients.isEmpty()) {
+            log.debug("No matching subscriptions");
+            return;
         }
+
+        // Hand the deliveries off to the delivery queue in chunks
+        long start = metrics.start();
+        int tasks = deliveryTaskProducer.publish(event.getEventId(), event.getClubId(), event.getTags(), recipients);
+        metrics.record(NotificationMetrics.PUBLISH, start);
+        log.info("Matched {} recipients, published {} delivery tasks", recipients.size(), tasks);
     }
 }
@@ -1,28 +1,33 @@
 package com.clubconnect.notificationservice.controller;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.producer.NotificationProducer;
 
 @RestController
 @RequestMapping("/api/test")
 public class RabbitMQTestController {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final NotificationProducer notificationProducer;
 
     @Autowired
-    public RabbitMQTestController(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public RabbitMQTestController(NotificationProducer notificationProducer) {
+        this.notificationProducer = notificationProducer;
     }
 
     @PostMapping("/send")
     public String sendTestMessage(@RequestParam String message) {
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message);
+        notificationProducer.sendNotification(message);
         return "Message sent to RabbitMQ: " + message;
     }
+
+    @GetMapping("/producer-stats")
+    public NotificationProducer.Stats producerStats() {
+        return notificationProducer.stats();
+    }
 }
@@ -1,10 +1,18 @@
 package com.clubconnect.notificationservice.controller;
 
-import java.util.HashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,19 +21,39 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.clubconnect.notificationservice.model.BulkWriteResult;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.model.SubscriptionPage;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
+import com.clubconnect.notificationservice.repository.VersionConflictException;
 import com.clubconnect.notificationservice.service.SubscriptionService;
-
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/subscriptions")
 @CrossOrigin(origins = "http://localhost:4200",allowedHeaders = "*")
 public class SubscriptionController {
 
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final SubscriptionService subscriptionService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${subscriptions.bulk.max-items:10000}")
+    private int bulkMaxItems = 10000;
+
+    @Value("${subscriptions.page.max-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${subscriptions.batch-get.max-keys:1000}")
+    private int batchGetMaxKeys = 1000;
 
     public SubscriptionController(SubscriptionService subscriptionService) {
         this.subscriptionService = subscriptionService;
@@ -53,20 +81,8 @@ public class SubscriptionController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Subscription ID cannot be null or empty.");
             }
 
-            // Validate and process the input
-            Map<String, String> processedSubscriptions = new HashMap<>();
-            subscriptions.forEach((key, value) -> {
-                if (value instanceof String) {
-                    processedSubscriptions.put(key, (String) value);
-                } else if (value instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<String> list = (List<String>) value;
-                    processedSubscriptions.put(key, String.join(",", list)); // Store lists as comma-separated values
-                }
-            });
-
-            // Save the processed subscriptions with userId and subscriptionId
-            subscriptionService.addSubscription(userId, subscriptionId, processedSubscriptions);
+            // Save the subscription with userId and subscriptionId
+            subscriptionService.addSubscription(SubscriptionCodec.fromRequest(userId, subscriptionId, subscriptions));
 
             return ResponseEntity.status(HttpStatus.CREATED).body("Subscription created successfully.");
         } catch (IllegalArgumentException e) {
@@ -76,34 +92,147 @@ public class SubscriptionController {
         }
     }
 
+    /**
+     * Create many subscriptions in one request. Each subscription carries its own userId and
+     * subscriptionId next to its details.
+     *
+     * @param subscriptions JSON array of subscriptions.
+     * @return Per-subscription outcome, in request order.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createSubscriptions(@RequestBody List<Map<String, Object>> subscriptions) {
+        return bulkCreate(subscriptions);
+    }
+
+    /**
+     * Create many subscriptions from a newline-delimited JSON stream, one subscription per line.
+     *
+     * @param body NDJSON request body.
+     * @return Per-subscription outcome, in request order.
+     */
+    @PostMapping(value = "/bulk", consumes = NDJSON_VALUE)
+    public ResponseEntity<?> createSubscriptionsFromStream(InputStream body) {
+        List<Map<String, Object>> subscriptions = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (subscriptions.size() == bulkMaxItems) {
+                    return tooManyItems();
+                }
+                try {
+                    subscriptions.add(objectMapper.readValue(line, new TypeReference<>() {}));
+                } catch (JsonProcessingException e) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid input on line " + lineNumber + ": " + e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error reading request body: " + e.getMessage());
+        }
+        return bulkCreate(subscriptions);
+    }
+
+    private ResponseEntity<?> bulkCreate(List<Map<String, Object>> subscriptions) {
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No subscriptions provided.");
+        }
+        if (subscriptions.size() > bulkMaxItems) {
+            return tooManyItems();
+        }
+
+        try {
+            List<Subscription> processedSubscriptions = new ArrayList<>(subscriptions.size());
+            subscriptions.forEach(subscription -> processedSubscriptions.add(SubscriptionCodec.fromRequest(null, null, subscription)));
+
+            List<BulkWriteResult> results = subscriptionService.addSubscriptions(processedSubscriptions);
+            long written = results.stream().filter(BulkWriteResult::isSuccess).count();
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("written", written);
+            response.put("failed", results.size() - written);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error creating subscriptions: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> tooManyItems() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body("At most " + bulkMaxItems + " subscriptions can be created per request.");
+    }
 
+    /**
+     * List the subscriptions of a user, one page at a time.
+     *
+     * @param userId ID of the user.
+     * @param limit  Maximum number of subscriptions per page.
+     * @param cursor Cursor of the page to read, as returned with the previous page.
+     * @param fields Attributes to return besides the keys; all of them when omitted.
+     * @return The page of subscriptions and the cursor of the next page, if any.
+     */
+    @GetMapping("/{userId}")
+    public ResponseEntity<?> listSubscriptions(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields) {
+        if (limit < 1 || limit > maxPageSize) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be between 1 and " + maxPageSize + ".");
+        }
+        try {
+            SubscriptionPage page = subscriptionService.listSubscriptions(userId, limit, cursor, fields);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid input: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error listing subscriptions: " + e.getMessage());
+        }
+    }
 
-   
-    
-        /**
+    /**
+     * Fetch several subscriptions in one request.
+     *
+     * @param keys   Keys of the subscriptions, each with a userId and a subscriptionId.
+     * @param fields Attributes to return besides the keys; all of them when omitted.
+     * @return The subscriptions found; missing ones are left out.
+     */
+    @PostMapping("/batch-get")
+    public ResponseEntity<?> getSubscriptions(
+            @RequestBody List<Map<String, String>> keys,
+            @RequestParam(required = false) List<String> fields) {
+        if (keys == null || keys.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No subscription keys provided.");
+        }
+        if (keys.size() > batchGetMaxKeys) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("At most " + batchGetMaxKeys + " subscriptions can be fetched per request.");
+        }
+        try {
+            return ResponseEntity.ok(subscriptionService.getSubscriptions(keys, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid input: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error retrieving subscriptions: " + e.getMessage());
+        }
+    }
+
+    /**
      * Get a subscription by user ID and subscription ID.
      *
     * @param userId         ID of the user.
     * @param subscriptionId ID of the subscription.
-    * @return Map of the subscription details or an error response.
+    * @return The subscription, empty if it does not exist, or an error response.
     */
     @GetMapping("/{userId}/{subscriptionId}")
     public ResponseEntity<?> getSubscription(@PathVariable String userId, @PathVariable String subscriptionId) {
         try {
-            // Fetch raw subscription data
-            Map<String, AttributeValue> rawSubscription = subscriptionService.getSubscription(userId, subscriptionId);
-
-            // Process raw AttributeValue map into a String map for user-friendly response
-            Map<String, String> processedSubscription = new HashMap<>();
-            if (rawSubscription != null && !rawSubscription.isEmpty()) {
-                rawSubscription.forEach((key, value) -> {
-                    if (value.s() != null) { // Convert only non-null string attributes
-                        processedSubscription.put(key, value.s());
-                    }
-                });
-            }
-
-            return ResponseEntity.ok(processedSubscription);
+            Subscription subscription = subscriptionService.getSubscription(userId, subscriptionId);
+            return ResponseEntity.ok(subscription != null ? subscription : Map.of());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
@@ -155,24 +284,22 @@ public class SubscriptionController {
     public ResponseEntity<?> updateSubscription(
             @PathVariable String userId,
             @PathVariable String subscriptionId,
-            @RequestBody Map<String, Object> subscriptions) {
+            @RequestBody Map<String, Object> subscriptions,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            // Validate and process the request body
-            Map<String, String> processedSubscriptions = new HashMap<>();
-            subscriptions.forEach((key, value) -> {
-                if (value instanceof String) {
-                    processedSubscriptions.put(key, (String) value);
-                } else if (value instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<String> list = (List<String>) value;
-                    processedSubscriptions.put(key, list.toString()); // Store as list representation
-                }
-            });
-
-            // Call the service to update the subscription
-            subscriptionService.updateSubscription(userId, subscriptionId, processedSubscriptions);
+            // Call the service to update the subscription, only at the expected version if one was given
+            Long expectedVersion = parseVersion(ifMatch);
+            if (expectedVersion == null) {
+                subscriptionService.updateSubscription(userId, subscriptionId, subscriptions);
+            } else {
+                subscriptionService.updateSubscription(userId, subscriptionId, subscriptions, expectedVersion);
+            }
 
             return ResponseEntity.ok("Subscription updated successfully.");
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid If-Match version: " + ifMatch);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
@@ -181,5 +308,55 @@ public class SubscriptionController {
         }
     }
 
+    /**
+     * Add a single tag to a subscription.
+     *
+     * @param userId         ID of the user.
+     * @param subscriptionId ID of the subscription.
+     * @param tag            Tag to add.
+     * @return Response indicating success or failure.
+     */
+    @PostMapping("/{userId}/{subscriptionId}/tags/{tag}")
+    public ResponseEntity<?> addTag(@PathVariable String userId, @PathVariable String subscriptionId, @PathVariable String tag) {
+        try {
+            subscriptionService.addTags(userId, subscriptionId, List.of(tag));
+            return ResponseEntity.ok("Tag added successfully.");
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error adding tag: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove a single tag from a subscription.
+     *
+     * @param userId         ID of the user.
+     * @param subscriptionId ID of the subscription.
+     * @param tag            Tag to remove.
+     * @return Response indicating success or failure.
+     */
+    @DeleteMapping("/{userId}/{subscriptionId}/tags/{tag}")
+    public ResponseEntity<?> removeTag(@PathVariable String userId, @PathVariable String subscriptionId, @PathVariable String tag) {
+        try {
+            subscriptionService.removeTags(userId, subscriptionId, List.of(tag));
+            return ResponseEntity.ok("Tag removed successfully.");
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error removing tag: " + e.getMessage());
+        }
+    }
 
+    // Versions are sent as an entity tag, e.g. If-Match: "3"
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        return Long.parseLong(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+    }
 }
@@ -0,0 +1,16 @@
+package com.clubconnect.notificationservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkWriteResult {
+    private int index;              // Position of the subscription in the request
+    private String userId;          // User owning the subscription
+    private String subscriptionId;  // ID of the subscription
+    private boolean success;        // Whether the subscription was written
+    private String error;           // Reason of the failure, null on success
+}
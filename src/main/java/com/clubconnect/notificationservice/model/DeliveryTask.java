@@ -0,0 +1,17 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeliveryTask {
+    private String eventId;              // Event the notifications are about
+    private String clubId;               // Club publishing the event
+    private List<String> tags;           // Tags of the event
+    private List<Recipient> recipients;  // Chunk of the event's audience
+}
@@ -0,0 +1,19 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DigestEntry {
+    private String eventId;           // Event the notification is about
+    private String clubId;            // Club publishing the event
+    private List<String> tags;        // Tags of the event
+    private boolean club;             // Matched through the club the user follows
+    private List<String> matchedTags; // Interests of the user matched by the event
+    private long createdAt;           // When the notification was buffered (epoch millis)
+}
@@ -0,0 +1,55 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * How a user wants to receive notifications: straight away, or collected into an hourly or
+ * daily digest. Declared from most to least urgent.
+ */
+public enum DigestMode {
+    IMMEDIATE,
+    HOURLY,
+    DAILY;
+
+    /**
+     * Parse the "digest" attribute of a subscription. Missing or unknown values mean immediate.
+     *
+     * @param value Attribute value, e.g. "hourly".
+     * @return The digest mode.
+     */
+    @JsonCreator
+    public static DigestMode from(String value) {
+        if (value != null) {
+            for (DigestMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return IMMEDIATE;
+    }
+
+    /**
+     * The attribute value of the mode, as stored and sent in JSON, e.g. "hourly".
+     */
+    @JsonValue
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The more urgent of two modes, used when a user's subscriptions disagree.
+     */
+    public static DigestMode mostUrgent(DigestMode first, DigestMode second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.ordinal() <= second.ordinal() ? first : second;
+    }
+}
@@ -0,0 +1,24 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationEvent {
+    private String eventId;     // Event to notify about
+    private String clubId;      // Club publishing the event
+    private List<String> tags;  // Tags of the event
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String audience;    // Optional audience expression, replacing the club and tag match
+
+    public NotificationEvent(String eventId, String clubId, List<String> tags) {
+        this(eventId, clubId, tags, null);
+    }
+}
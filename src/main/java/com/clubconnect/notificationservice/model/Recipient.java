@@ -0,0 +1,18 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Recipient {
+    private String userId;               // User to notify
+    private List<String> subscriptionIds; // Every subscription of the user that matched
+    private boolean club;                // Matched through the event's club
+    private List<String> tags;           // Event tags matched by any of the user's subscriptions
+    private DigestMode digest;           // Most urgent delivery preference among the matches
+}
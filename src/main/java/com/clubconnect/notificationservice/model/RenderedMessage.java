@@ -0,0 +1,12 @@
+package com.clubconnect.notificationservice.model;
+
+/**
+ * A notification rendered from a template, ready to be sent. {@code html} is null when the
+ * template has no HTML variant, in which case the email is sent as plain text only.
+ */
+public record RenderedMessage(
+        String subject,  // Subject line
+        String text,     // Plain text body
+        String html      // HTML body, or null
+) {
+}
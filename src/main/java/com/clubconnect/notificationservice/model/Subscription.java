@@ -1,17 +1,42 @@
 package com.clubconnect.notificationservice.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import java.util.Map;
+import java.util.Set;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class Subscription {
-    private String subscriptionId; // Unique ID for the subscription
-    private String userId;         // User ID subscribing
-    private String type;           // 'club' or 'tag'
-    private String clubId;         // Club ID if type = 'club'
-    private String tag;            // Tag if type = 'tag'
-    private String preferences;    // Email or Push Notifications
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A subscription as used throughout the service, decoded once from its DynamoDB item by
+ * {@code SubscriptionCodec}.
+ *
+ * {@code tags} holds every tag the subscription matches, including the indexed {@code tag},
+ * already parsed. Attributes the model does not know are kept in {@code attributes}. Absent
+ * values are null (or empty), so projected reads only carry what was requested.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record Subscription(
+        String userId,                  // User ID subscribing
+        String subscriptionId,          // Unique ID for the subscription
+        String type,                    // 'club' or 'tag'
+        String clubId,                  // Club ID if type = 'club'
+        String tag,                     // Tag if type = 'tag', posted in the tag index
+        Set<String> tags,               // All tags of the subscription, including tag
+        String preferences,             // Email or Push Notifications
+        DigestMode digest,              // Delivery preference, null if not set
+        String userEmail,               // Email address, if stored with the subscription
+        Long version,                   // Version incremented on every update
+        Map<String, String> attributes  // Any other string attributes
+) {
+
+    public Subscription {
+        tags = tags == null ? Set.of() : tags;
+        attributes = attributes == null ? Map.of() : attributes;
+    }
+
+    /**
+     * The delivery preference, immediate when none is set.
+     */
+    public DigestMode digestOrDefault() {
+        return digest == null ? DigestMode.IMMEDIATE : digest;
+    }
 }
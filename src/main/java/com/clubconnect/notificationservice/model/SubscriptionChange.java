@@ -0,0 +1,28 @@
+package com.clubconnect.notificationservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A write to the Subscriptions table, broadcast to every node so each can keep its in-memory
+ * index in sync.
+ *
+ * Every node numbers its changes from 1 under an origin ID chosen at startup, so a receiver
+ * can tell from the sequence whether it missed one. Heartbeats carry no change and repeat the
+ * last sequence of the origin, which exposes a lost change even when no other write follows.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SubscriptionChange(
+        String origin,              // Node that made the change, unique per process
+        long sequence,              // Position in the changes of the origin; last position for a heartbeat
+        Type type,                  // What changed
+        String userId,              // Owner of the subscription, null for a delete by subscription ID
+        String subscriptionId,      // ID of the subscription, null for a heartbeat
+        Subscription subscription   // The subscription as written, for a put
+) {
+
+    public enum Type {
+        PUT,
+        DELETE,
+        HEARTBEAT
+    }
+}
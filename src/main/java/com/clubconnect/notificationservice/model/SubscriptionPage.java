@@ -0,0 +1,15 @@
+package com.clubconnect.notificationservice.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SubscriptionPage {
+    private List<Subscription> subscriptions;  // Subscriptions of this page
+    private String nextCursor;                 // Cursor of the next page, null on the last one
+}
@@ -0,0 +1,56 @@
+package com.clubconnect.notificationservice.producer;
+
+import java.util.List;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.model.DeliveryTask;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Splits the audience of an event into chunks and publishes each chunk as a
+ * {@link DeliveryTask} on the delivery queue, so deliveries spread across all replicas.
+ */
+@Service
+public class DeliveryTaskProducer {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${notification.fanout.chunk-size:100}")
+    private int chunkSize = 100;
+
+    public DeliveryTaskProducer(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    /**
+     * Publish the delivery tasks of an event.
+     *
+     * @param eventId    The ID of the event.
+     * @param clubId     The ID of the club publishing the event.
+     * @param tags       The tags of the event.
+     * @param recipients The recipients of the event.
+     * @return The number of delivery tasks published.
+     */
+    public int publish(String eventId, String clubId, List<String> tags, List<Recipient> recipients) throws JsonProcessingException {
+        int tasks = 0;
+        for (int from = 0; from < recipients.size(); from += chunkSize) {
+            List<Recipient> chunk = recipients.subList(from, Math.min(from + chunkSize, recipients.size()));
+            DeliveryTask task = new DeliveryTask(eventId, clubId, tags, List.copyOf(chunk));
+
+            rabbitTemplate.convertAndSend(
+                    RabbitMQConfig.EXCHANGE_NAME,
+                    RabbitMQConfig.DELIVERY_ROUTING_KEY,
+                    objectMapper.writeValueAsString(task)
+            );
+            tasks++;
+        }
+        return tasks;
+    }
+}
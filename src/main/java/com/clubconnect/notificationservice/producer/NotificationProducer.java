@@ -1,27 +1,292 @@
 package com.clubconnect.notificationservice.producer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.clubconnect.notificationservice.config.RabbitMQConfig;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes events to the notification exchange.
+ *
+ * The mode is chosen by {@code notification.producer.mode}; the shipped application.properties
+ * selects {@code confirmed}, and {@code direct} is used only when the property is unset.
+ *
+ * In {@code direct} mode every message is sent immediately and without confirmation. In
+ * {@code confirmed} mode messages are queued and published in batches of up to
+ * {@code notification.producer.batch-size} (or whatever arrived within
+ * {@code notification.producer.linger-ms}) on a single channel, with asynchronous publisher
+ * confirms correlated per message. Nacked and returned messages are republished up to
+ * {@code notification.producer.max-retries} times before their future fails. On shutdown the
+ * producer waits up to {@code notification.producer.shutdown-timeout-ms} for queued messages to
+ * be published and confirmed, and fails the futures of those still outstanding.
+ */
 @Service
 public class NotificationProducer {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificationProducer.class);
+
     private final RabbitTemplate rabbitTemplate;
 
+    @Value("${notification.producer.mode:direct}")
+    private String mode = "direct";
+
+    @Value("${notification.producer.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${notification.producer.linger-ms:5}")
+    private long lingerMillis = 5;
+
+    @Value("${notification.producer.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${notification.producer.max-in-flight:5000}")
+    private int maxInFlight = 5000;
+
+    @Value("${notification.producer.max-retries:3}")
+    private int maxRetries = 3;
+
+    @Value("${notification.producer.submit-timeout-ms:5000}")
+    private long submitTimeoutMillis = 5000;
+
+    @Value("${notification.producer.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMillis = 10000;
+
+    private BlockingQueue<PendingMessage> queue;
+    private Semaphore inFlight;
+    private Thread publisher;
+    private volatile boolean running = false;
+    // Set once stop() gave up waiting; retries are no longer queued
+    private volatile boolean closed = false;
+    // Sent and not yet confirmed, nacked or returned
+    private final Set<PendingMessage> unconfirmed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong nacked = new AtomicLong();
+    private final AtomicLong returned = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong confirmLatencyNanos = new AtomicLong();
+    private final AtomicLong maxConfirmLatencyNanos = new AtomicLong();
+    private volatile long startedAt = System.nanoTime();
+
     @Autowired
     public NotificationProducer(RabbitTemplate rabbitTemplate) {
         this.rabbitTemplate = rabbitTemplate;
     }
 
-    public void sendNotification(String message) {
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EXCHANGE_NAME, 
-                RabbitMQConfig.ROUTING_KEY, 
-                message
-        );
-        System.out.println("Message sent to queue: " + message);
+    @PostConstruct
+    public synchronized void start() {
+        if (!isConfirmed() || running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        maxInFlight = Math.max(maxInFlight, batchSize); // A whole batch must fit in flight
+        inFlight = new Semaphore(maxInFlight);
+        startedAt = System.nanoTime();
+        closed = false;
+        running = true;
+        publisher = new Thread(this::publishLoop, "notification-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // The publisher drains the queue and waits for outstanding confirms before it exits
+        running = false;
+        publisher.join(shutdownTimeoutMillis);
+        closed = true;
+
+        List<PendingMessage> abandoned = new ArrayList<>(unconfirmed);
+        unconfirmed.clear();
+        queue.drainTo(abandoned);
+        if (!abandoned.isEmpty()) {
+            log.warn("Notification producer stopped with {} messages not confirmed", abandoned.size());
+            abandoned.forEach(pending -> {
+                failed.incrementAndGet();
+                pending.completion().completeExceptionally(
+                        new AmqpException("Notification producer stopped before the message was confirmed"));
+            });
+        }
+    }
+
+    /**
+     * Publish an event message.
+     *
+     * @param message The message to publish.
+     * @return A future completed once the broker confirmed the message; in direct mode it is
+     *         completed as soon as the message was handed to the client.
+     */
+    public CompletableFuture<Void> sendNotification(String message) {
+        if (!isConfirmed()) {
+            rabbitTemplate.convertAndSend(
+                    RabbitMQConfig.EXCHANGE_NAME,
+                    RabbitMQConfig.ROUTING_KEY,
+                    message
+            );
+            log.debug("Message sent to queue: {}", message);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        if (!running) {
+            completion.completeExceptionally(new RejectedExecutionException("Notification producer is not running"));
+            return completion;
+        }
+        try {
+            if (!queue.offer(new PendingMessage(message, completion, 0), submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                completion.completeExceptionally(new RejectedExecutionException("Notification producer queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion.completeExceptionally(e);
+        }
+        return completion;
+    }
+
+    private boolean isConfirmed() {
+        return "confirmed".equalsIgnoreCase(mode);
+    }
+
+    private void publishLoop() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed && (running || !queue.isEmpty() || !unconfirmed.isEmpty())) {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long lingerDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    PendingMessage next = queue.poll(Math.max(0, lingerDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                publishBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Publishes the batch on one channel; confirms arrive asynchronously on the connection thread
+    void publishBatch(List<PendingMessage> batch) throws InterruptedException {
+        for (PendingMessage pending : batch) {
+            inFlight.acquire();
+        }
+        try {
+            rabbitTemplate.invoke(operations -> {
+                batch.forEach(pending -> publish(operations, pending));
+                return null;
+            });
+        } catch (AmqpException e) {
+            // No channel could be obtained, so nothing of the batch was sent
+            inFlight.release(batch.size());
+            batch.forEach(pending -> retry(pending, e.getMessage()));
+        }
+    }
+
+    private void publish(RabbitOperations operations, PendingMessage pending) {
+        CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+        long sentAt = System.nanoTime();
+        unconfirmed.add(pending);
+        try {
+            operations.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, pending.message(), correlation);
+            published.incrementAndGet();
+        } catch (AmqpException e) {
+            unconfirmed.remove(pending);
+            inFlight.release();
+            retry(pending, e.getMessage());
+            return;
+        }
+        correlation.getFuture().whenComplete((confirm, error) -> {
+            inFlight.release();
+            if (error != null || !confirm.isAck()) {
+                nacked.incrementAndGet();
+                retry(pending, error != null ? error.getMessage() : confirm.getReason());
+            } else if (correlation.getReturned() != null) {
+                returned.incrementAndGet();
+                retry(pending, "returned: " + correlation.getReturned().getReplyText());
+            } else {
+                long latency = System.nanoTime() - sentAt;
+                confirmLatencyNanos.addAndGet(latency);
+                maxConfirmLatencyNanos.accumulateAndGet(latency, Math::max);
+                confirmed.incrementAndGet();
+                pending.completion().complete(null);
+            }
+            // Only after a retry was queued, so the publisher never sees both empty in between
+            unconfirmed.remove(pending);
+        });
+    }
+
+    private void retry(PendingMessage pending, String reason) {
+        if (!closed && pending.attempt() < maxRetries
+                && queue.offer(new PendingMessage(pending.message(), pending.completion(), pending.attempt() + 1))) {
+            retried.incrementAndGet();
+            return;
+        }
+        failed.incrementAndGet();
+        log.error("Failed to publish message after {} attempts: {}", pending.attempt() + 1, reason);
+        pending.completion().completeExceptionally(new AmqpException("Message was not confirmed by the broker: " + reason));
+    }
+
+    public Stats stats() {
+        long confirmedCount = confirmed.get();
+        double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        return new Stats(
+                mode,
+                published.get(),
+                confirmedCount,
+                nacked.get(),
+                returned.get(),
+                retried.get(),
+                failed.get(),
+                queue != null ? queue.size() : 0,
+                inFlight != null ? maxInFlight - inFlight.availablePermits() : 0,
+                confirmedCount / elapsedSeconds,
+                confirmedCount == 0 ? 0 : confirmLatencyNanos.get() / 1e6 / confirmedCount,
+                maxConfirmLatencyNanos.get() / 1e6);
+    }
+
+    record PendingMessage(String message, CompletableFuture<Void> completion, int attempt) {
+    }
+
+    /**
+     * Snapshot of the producer counters. Throughput is confirmed messages per second since start.
+     */
+    public record Stats(String mode, long published, long confirmed, long nacked, long returned, long retried,
+                        long failed, int queued, int unconfirmed, double confirmedPerSecond,
+                        double avgConfirmLatencyMillis, double maxConfirmLatencyMillis) {
     }
 }
@@ -0,0 +1,309 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import com.clubconnect.notificationservice.model.Subscription;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Non-blocking counterpart of {@link SubscriptionRepository} on the {@link DynamoDbAsyncClient}.
+ *
+ * Every method returns immediately with a future completed on the SDK's event loop, so callers
+ * can have many requests in flight without holding a thread for each. Continuations attached
+ * to the futures should not block.
+ */
+@Repository
+public class AsyncSubscriptionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncSubscriptionRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final String tableName = SubscriptionTableSchema.TABLE_NAME;
+    private final String tagTableName = SubscriptionTableSchema.TAG_TABLE_NAME;
+
+    @Value("${dynamodb.batch-write.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${dynamodb.batch-write.base-backoff-ms:50}")
+    private long baseBackoffMillis = 50;
+
+    @Value("${dynamodb.batch-write.max-backoff-ms:5000}")
+    private long maxBackoffMillis = 5000;
+
+    @Autowired
+    public AsyncSubscriptionRepository(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    }
+
+    /**
+     * Retrieve a subscription.
+     *
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     * @return A future of the item, empty if the subscription does not exist.
+     */
+    public CompletableFuture<Map<String, AttributeValue>> getSubscription(String userId, String subscriptionId) {
+        if (userId == null || userId.isEmpty() || subscriptionId == null || subscriptionId.isEmpty()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Both userId and subscriptionId must be provided"));
+        }
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(tableName)
+                .key(key(userId, subscriptionId))
+                .build();
+        return dynamoDbAsyncClient.getItem(request)
+                .thenApply(response -> response.hasItem() ? response.item() : Map.of());
+    }
+
+    /**
+     * Add a new subscription or replace an existing one. Its tag memberships are written
+     * first, and the memberships of tags the replaced subscription had are removed after.
+     *
+     * @param subscription The subscription, with its userId and subscriptionId.
+     * @return A future completed once the item was written.
+     */
+    public CompletableFuture<Void> putSubscription(Subscription subscription) {
+        if (subscription.userId() == null || subscription.userId().isEmpty()
+                || subscription.subscriptionId() == null || subscription.subscriptionId().isEmpty()) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Both userId and subscriptionId must be provided"));
+        }
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(tableName)
+                .item(SubscriptionCodec.encode(subscription))
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+        return writeMemberships(SubscriptionRepository.membershipPuts(
+                        subscription.userId(), subscription.subscriptionId(), subscription.tags()), 0)
+                .thenCompose(written -> dynamoDbAsyncClient.putItem(request))
+                .thenApply(response -> {
+                    if (response.hasAttributes()) {
+                        deleteMemberships(SubscriptionRepository.lostMemberships(subscription.userId(),
+                                subscription.subscriptionId(),
+                                SubscriptionCodec.decode(response.attributes()).tags(), subscription.tags()));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Delete a subscription, then its tag memberships.
+     *
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     * @return A future completed once the item was deleted.
+     */
+    public CompletableFuture<Void> deleteSubscription(String userId, String subscriptionId) {
+        DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(key(userId, subscriptionId))
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+        return dynamoDbAsyncClient.deleteItem(request).thenApply(response -> {
+            if (response.hasAttributes()) {
+                deleteMemberships(SubscriptionRepository.lostMemberships(userId, subscriptionId,
+                        SubscriptionCodec.decode(response.attributes()).tags(), Set.of()));
+            }
+            return null;
+        });
+    }
+
+    // Retrieve all subscriptions following a club, through the clubId index
+    public CompletableFuture<List<Map<String, AttributeValue>>> findByClubId(String clubId) {
+        return queryIndex(SubscriptionTableSchema.CLUB_INDEX, "clubId", clubId);
+    }
+
+    /**
+     * Retrieve the subscriptions interested in any of the given tags, with one Query per tag on
+     * the membership table and a BatchGetItem of the subscriptions found; see
+     * {@link SubscriptionRepository#findByTags(Collection)}. Stale memberships are deleted in
+     * the background.
+     *
+     * @param tags The tags.
+     * @return A future of the matching items.
+     */
+    public CompletableFuture<List<Map<String, AttributeValue>>> findByTags(Collection<String> tags) {
+        List<String> distinct;
+        try {
+            distinct = SubscriptionRepository.distinctTags(tags);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> queries = distinct.stream()
+                .map(tag -> queryPage(tagTableName, null, SubscriptionTableSchema.TAG_KEY, tag, null, new ArrayList<>()))
+                .toList();
+        return CompletableFuture.allOf(queries.toArray(CompletableFuture[]::new)).thenCompose(done -> {
+            Map<String, Map<String, AttributeValue>> keys = new LinkedHashMap<>();
+            Map<String, Set<String>> tagsByMember = new HashMap<>();
+            queries.forEach(query -> query.join()
+                    .forEach(membership -> SubscriptionRepository.addMembership(membership, keys, tagsByMember)));
+            if (keys.isEmpty()) {
+                return CompletableFuture.completedFuture(List.of());
+            }
+            return batchGetSubscriptions(new ArrayList<>(keys.values())).thenApply(items -> {
+                List<Map<String, AttributeValue>> stale = new ArrayList<>();
+                List<Map<String, AttributeValue>> kept = SubscriptionRepository.keepMembers(items, tagsByMember, stale);
+                deleteMemberships(stale);
+                return kept;
+            });
+        });
+    }
+
+    // Best effort and not awaited: a membership left behind is dropped by the next lookup of its tag
+    private void deleteMemberships(List<Map<String, AttributeValue>> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        writeMemberships(SubscriptionRepository.membershipDeletes(keys), 0).whenComplete((done, e) -> {
+            if (e != null) {
+                log.warn("Could not delete {} stale tag memberships: {}", keys.size(), e.getMessage());
+            }
+        });
+    }
+
+    // Write membership items 25 at a time, retrying unprocessed ones after a jittered backoff
+    private CompletableFuture<Void> writeMemberships(List<WriteRequest> writes, int attempt) {
+        if (writes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<List<WriteRequest>>> chunks = new ArrayList<>();
+        for (int start = 0; start < writes.size(); start += SubscriptionRepository.BATCH_WRITE_LIMIT) {
+            BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(tagTableName, new ArrayList<>(writes.subList(start,
+                            Math.min(writes.size(), start + SubscriptionRepository.BATCH_WRITE_LIMIT)))))
+                    .build();
+            chunks.add(dynamoDbAsyncClient.batchWriteItem(request).thenApply(response -> response.hasUnprocessedItems()
+                    ? response.unprocessedItems().getOrDefault(tagTableName, List.of())
+                    : List.of()));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenCompose(done -> {
+            List<WriteRequest> unprocessed = new ArrayList<>();
+            chunks.forEach(chunk -> unprocessed.addAll(chunk.join()));
+            if (unprocessed.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (attempt + 1 >= maxAttempts) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        unprocessed.size() + " tag memberships still unprocessed after " + maxAttempts + " attempts"));
+            }
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> writeMemberships(unprocessed, attempt + 1));
+        });
+    }
+
+    // Run a Query against a secondary index, requesting the next page when the previous one arrived
+    private CompletableFuture<List<Map<String, AttributeValue>>> queryIndex(String indexName, String keyName, String keyValue) {
+        if (keyValue == null || keyValue.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(keyName + " must be provided"));
+        }
+        return queryPage(tableName, indexName, keyName, keyValue, null, new ArrayList<>());
+    }
+
+    // Query a table, or one of its indexes if indexName is set, one page at a time
+    private CompletableFuture<List<Map<String, AttributeValue>>> queryPage(String table, String indexName,
+                                                                          String keyName, String keyValue,
+                                                                          Map<String, AttributeValue> exclusiveStartKey,
+                                                                          List<Map<String, AttributeValue>> items) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(table)
+                .indexName(indexName)
+                .keyConditionExpression("#k = :v")
+                .expressionAttributeNames(Map.of("#k", keyName))
+                .expressionAttributeValues(Map.of(":v", AttributeValue.builder().s(keyValue).build()))
+                .exclusiveStartKey(exclusiveStartKey)
+                .build();
+
+        return dynamoDbAsyncClient.query(request).thenCompose(response -> {
+            items.addAll(response.items());
+            if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+                return queryPage(table, indexName, keyName, keyValue, response.lastEvaluatedKey(), items);
+            }
+            return CompletableFuture.completedFuture(items);
+        });
+    }
+
+    /**
+     * Retrieve several subscriptions by key. Keys are requested 100 at a time, all chunks
+     * concurrently, and unprocessed keys are retried with jittered exponential backoff.
+     *
+     * @param keys The keys to fetch, each with userId and subscriptionId.
+     * @return A future of the items found; missing subscriptions are left out.
+     */
+    public CompletableFuture<List<Map<String, AttributeValue>>> batchGetSubscriptions(List<Map<String, AttributeValue>> keys) {
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> chunks = new ArrayList<>();
+        for (int start = 0; start < keys.size(); start += SubscriptionRepository.BATCH_GET_LIMIT) {
+            List<Map<String, AttributeValue>> chunk =
+                    keys.subList(start, Math.min(keys.size(), start + SubscriptionRepository.BATCH_GET_LIMIT));
+            chunks.add(getChunk(new ArrayList<>(chunk), new ArrayList<>(), 0));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    List<Map<String, AttributeValue>> items = new ArrayList<>();
+                    chunks.forEach(chunk -> items.addAll(chunk.join()));
+                    return items;
+                });
+    }
+
+    private CompletableFuture<List<Map<String, AttributeValue>>> getChunk(List<Map<String, AttributeValue>> keys,
+                                                                         List<Map<String, AttributeValue>> found,
+                                                                         int attempt) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder()
+                .requestItems(Map.of(tableName, KeysAndAttributes.builder().keys(keys).build()))
+                .build();
+        return dynamoDbAsyncClient.batchGetItem(request).thenCompose(response -> {
+            found.addAll(response.responses().getOrDefault(tableName, List.of()));
+            KeysAndAttributes unprocessed = response.unprocessedKeys().get(tableName);
+            if (unprocessed == null || unprocessed.keys().isEmpty()) {
+                return CompletableFuture.completedFuture(found);
+            }
+            if (attempt + 1 >= maxAttempts) {
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                        unprocessed.keys().size() + " keys still unprocessed after " + maxAttempts + " attempts"));
+            }
+            // Wait on the shared delayed executor instead of sleeping on the event loop
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> getChunk(unprocessed.keys(), found, attempt + 1));
+        });
+    }
+
+    // Full jitter: a random delay up to the exponential bound for the attempt
+    private long backoffMillis(int attempt) {
+        long bound = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static Map<String, AttributeValue> key(String userId, String subscriptionId) {
+        return Map.of(
+                "userId", AttributeValue.builder().s(userId).build(),
+                "subscriptionId", AttributeValue.builder().s(subscriptionId).build());
+    }
+}
@@ -0,0 +1,70 @@
+package com.clubconnect.notificationservice.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * Definition of the table buffering digest notifications, shared by every node.
+ *
+ * Items are partitioned by {@value #BUFFER_KEY}, the digest window and user
+ * ({@code hourly#user1}), and sorted by {@value #ENTRY_KEY}, the zero-padded creation time
+ * followed by a unique suffix, so a Query returns a user's notifications in order. Each
+ * partition also holds one {@value #CLAIM_ENTRY} item, which records who is flushing the
+ * buffer and when it was last flushed.
+ */
+public final class DigestTableSchema {
+
+    public static final String TABLE_NAME = "NotificationDigests";
+    public static final String BUFFER_KEY = "buffer";
+    public static final String ENTRY_KEY = "entry";
+    // Sorts after every entry, whose keys start with a digit
+    public static final String CLAIM_ENTRY = "~claim";
+
+    private DigestTableSchema() {
+    }
+
+    /**
+     * Build the request that creates the digest table.
+     *
+     * @param tableName Name of the table to create.
+     * @return CreateTableRequest instance
+     */
+    public static CreateTableRequest createTableRequest(String tableName) {
+        return CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(stringAttribute(BUFFER_KEY), stringAttribute(ENTRY_KEY))
+                .keySchema(
+                        KeySchemaElement.builder().attributeName(BUFFER_KEY).keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName(ENTRY_KEY).keyType(KeyType.RANGE).build())
+                .build();
+    }
+
+    /**
+     * Create the table if it does not exist yet, e.g. against DynamoDB Local.
+     *
+     * @param dynamoDbClient Client to use.
+     * @param tableName      Name of the table.
+     */
+    public static void createTableIfMissing(DynamoDbClient dynamoDbClient, String tableName) {
+        try {
+            dynamoDbClient.describeTable(builder -> builder.tableName(tableName));
+        } catch (ResourceNotFoundException e) {
+            dynamoDbClient.createTable(createTableRequest(tableName));
+            dynamoDbClient.waiter().waitUntilTableExists(builder -> builder.tableName(tableName));
+        }
+    }
+
+    private static AttributeDefinition stringAttribute(String name) {
+        return AttributeDefinition.builder()
+                .attributeName(name)
+                .attributeType(ScalarAttributeType.S)
+                .build();
+    }
+}
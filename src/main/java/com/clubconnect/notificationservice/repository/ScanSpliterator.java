@@ -0,0 +1,72 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+/**
+ * Lazily walks a DynamoDB Scan page by page, following LastEvaluatedKey until the table
+ * (or segment) is exhausted. Only the current page is held in memory.
+ */
+class ScanSpliterator implements Spliterator<Map<String, AttributeValue>> {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ScanRequest baseRequest;
+
+    private Iterator<Map<String, AttributeValue>> page = Collections.emptyIterator();
+    private Map<String, AttributeValue> exclusiveStartKey;
+    private boolean lastPageFetched = false;
+
+    ScanSpliterator(DynamoDbClient dynamoDbClient, ScanRequest baseRequest) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.baseRequest = baseRequest;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<String, AttributeValue>> action) {
+        while (!page.hasNext()) {
+            if (lastPageFetched) {
+                return false;
+            }
+            fetchNextPage();
+        }
+        action.accept(page.next());
+        return true;
+    }
+
+    private void fetchNextPage() {
+        ScanResponse response = dynamoDbClient.scan(baseRequest.toBuilder()
+                .exclusiveStartKey(exclusiveStartKey)
+                .build());
+
+        page = response.items().iterator();
+        if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+            exclusiveStartKey = response.lastEvaluatedKey();
+        } else {
+            lastPageFetched = true;
+        }
+    }
+
+    @Override
+    public Spliterator<Map<String, AttributeValue>> trySplit() {
+        // Parallelism comes from scan segments, not from splitting a single segment
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+}
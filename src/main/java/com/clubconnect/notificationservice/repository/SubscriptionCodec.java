@@ -0,0 +1,263 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Subscription;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Maps subscriptions between DynamoDB items, request bodies and the typed {@link Subscription}.
+ *
+ * Items are decoded in a single pass over their attributes, without an intermediate map.
+ * Identifiers and tags are interned, so the many subscriptions sharing a club, tag or user
+ * share one string. Tags are always written as a string set; the legacy comma-separated and
+ * {@code [a, b]} string forms are still read.
+ */
+public final class SubscriptionCodec {
+
+    static final String USER_ID = "userId";
+    static final String SUBSCRIPTION_ID = "subscriptionId";
+    static final String TYPE = "type";
+    static final String CLUB_ID = "clubId";
+    static final String TAG = "tag";
+    static final String TAGS = "tags";
+    static final String PREFERENCES = "preferences";
+    static final String DIGEST = "digest";
+    static final String USER_EMAIL = "userEmail";
+
+    private SubscriptionCodec() {
+    }
+
+    /**
+     * Decode a DynamoDB item. Attributes missing from the item, e.g. because of a projection,
+     * are left null.
+     *
+     * @param item The item.
+     * @return The subscription.
+     */
+    public static Subscription decode(Map<String, AttributeValue> item) {
+        String userId = null;
+        String subscriptionId = null;
+        String type = null;
+        String clubId = null;
+        String tag = null;
+        Set<String> tags = null;
+        String preferences = null;
+        DigestMode digest = null;
+        String userEmail = null;
+        Long version = null;
+        Map<String, String> attributes = null;
+
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            AttributeValue value = entry.getValue();
+            switch (entry.getKey()) {
+                case USER_ID -> userId = intern(value.s());
+                case SUBSCRIPTION_ID -> subscriptionId = value.s();
+                case TYPE -> type = intern(value.s());
+                case CLUB_ID -> clubId = intern(value.s());
+                case TAG -> tag = intern(value.s());
+                case TAGS -> tags = value.hasSs() ? internAll(value.ss()) : parseTags(value.s());
+                case PREFERENCES -> preferences = intern(value.s());
+                case DIGEST -> digest = value.s() != null ? DigestMode.from(value.s()) : null;
+                case USER_EMAIL -> userEmail = value.s();
+                case SubscriptionUpdate.VERSION -> version = value.n() != null ? Long.valueOf(value.n()) : null;
+                default -> {
+                    if (value.s() != null) {
+                        if (attributes == null) {
+                            attributes = new HashMap<>();
+                        }
+                        attributes.put(entry.getKey(), value.s());
+                    }
+                }
+            }
+        }
+        return new Subscription(userId, subscriptionId, type, clubId, tag, withTag(tags, tag), preferences,
+                digest, userEmail, version, attributes == null ? null : Map.copyOf(attributes));
+    }
+
+    /**
+     * Encode a subscription as a DynamoDB item. The version is left to the repository.
+     *
+     * @param subscription The subscription.
+     * @return The item.
+     */
+    public static Map<String, AttributeValue> encode(Subscription subscription) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        subscription.attributes().forEach((name, value) -> put(item, name, value));
+        put(item, USER_ID, subscription.userId());
+        put(item, SUBSCRIPTION_ID, subscription.subscriptionId());
+        put(item, TYPE, subscription.type());
+        put(item, CLUB_ID, subscription.clubId());
+        put(item, TAG, subscription.tag());
+        if (!subscription.tags().isEmpty()) {
+            item.put(TAGS, AttributeValue.builder().ss(subscription.tags()).build());
+        }
+        put(item, PREFERENCES, subscription.preferences());
+        put(item, DIGEST, subscription.digest() != null ? subscription.digest().value() : null);
+        put(item, USER_EMAIL, subscription.userEmail());
+        return item;
+    }
+
+    /**
+     * Build a subscription from a JSON request body. Tags may be sent as a list or as a
+     * comma-separated string; other values must be strings, anything else is ignored. The
+     * version cannot be set by a client.
+     *
+     * @param userId         The ID of the user, or null to take it from the body.
+     * @param subscriptionId The ID of the subscription, or null to take it from the body.
+     * @param body           The request body.
+     * @return The subscription.
+     */
+    public static Subscription fromRequest(String userId, String subscriptionId, Map<String, ?> body) {
+        String type = null;
+        String clubId = null;
+        String tag = null;
+        Set<String> tags = null;
+        String preferences = null;
+        DigestMode digest = null;
+        String userEmail = null;
+        Map<String, String> attributes = null;
+
+        for (Map.Entry<String, ?> entry : body.entrySet()) {
+            if (entry.getKey().equals(TAGS)) {
+                tags = tagsOf(entry.getValue());
+                continue;
+            }
+            if (!(entry.getValue() instanceof String) || ((String) entry.getValue()).isEmpty()) {
+                continue;
+            }
+            String value = (String) entry.getValue();
+            switch (entry.getKey()) {
+                case USER_ID -> userId = userId != null ? userId : value;
+                case SUBSCRIPTION_ID -> subscriptionId = subscriptionId != null ? subscriptionId : value;
+                case TYPE -> type = value.intern();
+                case CLUB_ID -> clubId = value.intern();
+                case TAG -> tag = value.intern();
+                case PREFERENCES -> preferences = value.intern();
+                case DIGEST -> digest = DigestMode.from(value);
+                case USER_EMAIL -> userEmail = value;
+                case SubscriptionUpdate.VERSION -> {
+                    // Managed by the repository
+                }
+                default -> {
+                    if (attributes == null) {
+                        attributes = new HashMap<>();
+                    }
+                    attributes.put(entry.getKey(), value);
+                }
+            }
+        }
+        return new Subscription(intern(userId), subscriptionId, type, clubId, tag, withTag(tags, tag), preferences,
+                digest, userEmail, null, attributes == null ? null : Map.copyOf(attributes));
+    }
+
+    /**
+     * Turn changes sent by a client into an update. Empty values are skipped and keys cannot
+     * be changed; tags replace the current tags, and an empty tag list removes them.
+     *
+     * @param changes The changed attributes.
+     * @return The update.
+     */
+    public static SubscriptionUpdate toUpdate(Map<String, ?> changes) {
+        SubscriptionUpdate update = new SubscriptionUpdate();
+        changes.forEach((name, value) -> {
+            if (isKey(name) || value == null || "".equals(value)) {
+                return;
+            }
+            if (name.equals(TAGS)) {
+                Set<String> tags = tagsOf(value);
+                if (tags.isEmpty()) {
+                    update.remove(TAGS);
+                } else {
+                    update.set(TAGS, AttributeValue.builder().ss(tags).build());
+                }
+            } else if (value instanceof String) {
+                update.set(name, name.equals(DIGEST) ? DigestMode.from((String) value).value() : (String) value);
+            }
+        });
+        return update;
+    }
+
+    /**
+     * Parse tags sent as a string: comma-separated, optionally in the {@code [a, b]} form.
+     *
+     * @param value The tags, may be null.
+     * @return The tags, interned.
+     */
+    public static Set<String> parseTags(String value) {
+        if (value == null || value.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> tags = new HashSet<>();
+        int start = value.startsWith("[") ? 1 : 0;
+        int end = value.endsWith("]") ? value.length() - 1 : value.length();
+        while (start < end) {
+            int comma = value.indexOf(',', start);
+            int stop = comma < 0 || comma > end ? end : comma;
+            String tag = value.substring(start, stop).trim();
+            if (!tag.isEmpty()) {
+                tags.add(tag.intern());
+            }
+            start = stop + 1;
+        }
+        return Set.copyOf(tags);
+    }
+
+    public static boolean isKey(String attribute) {
+        return attribute.equals(USER_ID) || attribute.equals(SUBSCRIPTION_ID) || attribute.equals(SubscriptionUpdate.VERSION);
+    }
+
+    private static Set<String> tagsOf(Object value) {
+        if (value instanceof String) {
+            return parseTags((String) value);
+        }
+        if (value instanceof Collection<?>) {
+            Set<String> tags = new HashSet<>();
+            ((Collection<?>) value).forEach(element -> {
+                if (element instanceof String && !((String) element).isBlank()) {
+                    tags.add(((String) element).trim().intern());
+                }
+            });
+            return Set.copyOf(tags);
+        }
+        return Set.of();
+    }
+
+    private static Set<String> internAll(Collection<String> values) {
+        Set<String> tags = new HashSet<>(values.size() * 2);
+        values.forEach(value -> tags.add(value.intern()));
+        return tags;
+    }
+
+    // The indexed tag is one of the subscription's tags too
+    private static Set<String> withTag(Set<String> tags, String tag) {
+        if (tag == null || tag.isEmpty()) {
+            return tags == null ? Set.of() : Set.copyOf(tags);
+        }
+        if (tags == null || tags.isEmpty()) {
+            return Set.of(tag);
+        }
+        if (tags.contains(tag)) {
+            return Set.copyOf(tags);
+        }
+        Set<String> all = new HashSet<>(tags);
+        all.add(tag);
+        return Set.copyOf(all);
+    }
+
+    private static void put(Map<String, AttributeValue> item, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            item.put(name, AttributeValue.builder().s(value).build());
+        }
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+}
@@ -1,24 +1,88 @@
 package com.clubconnect.notificationservice.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import com.clubconnect.notificationservice.model.Subscription;
+
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 @Repository
 public class SubscriptionRepository {
 
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionRepository.class);
+
     private final DynamoDbClient dynamoDbClient;
-    private final String tableName = "Subscriptions"; // Replace with your actual table name
+    private final String tableName = SubscriptionTableSchema.TABLE_NAME;
+    private final String tagTableName = SubscriptionTableSchema.TAG_TABLE_NAME;
+
+    @Value("${dynamodb.scan.segments:4}")
+    private int scanSegments = 4;
+
+    @Value("${dynamodb.scan.threads:4}")
+    private int scanThreads = 4;
+
+    // BatchWriteItem accepts at most 25 items per request, BatchGetItem at most 100 keys
+    static final int BATCH_WRITE_LIMIT = 25;
+    static final int BATCH_GET_LIMIT = 100;
+
+    @Value("${dynamodb.batch-write.concurrency:4}")
+    private int batchWriteConcurrency = 4;
+
+    @Value("${dynamodb.batch-write.max-attempts:8}")
+    private int batchWriteMaxAttempts = 8;
+
+    @Value("${dynamodb.batch-write.base-backoff-ms:50}")
+    private long batchWriteBaseBackoffMillis = 50;
+
+    @Value("${dynamodb.batch-write.max-backoff-ms:5000}")
+    private long batchWriteMaxBackoffMillis = 5000;
+
+    @Value("${dynamodb.update.max-attempts:5}")
+    private int updateMaxAttempts = 5;
 
     @Autowired
     public SubscriptionRepository(DynamoDbClient dynamoDbClient) {
@@ -47,14 +111,14 @@ public class SubscriptionRepository {
     
             // Debugging logs
             if (item == null || item.isEmpty()) {
-                System.out.println("No subscription found for userId: " + userId + " and subscriptionId: " + subscriptionId);
+                log.debug("No subscription found for userId: {} and subscriptionId: {}", userId, subscriptionId);
             } else {
-                System.out.println("Retrieved subscription: " + item);
+                log.debug("Retrieved subscription: {}", item);
             }
     
             return item != null ? item : new HashMap<>();
         } catch (Exception e) {
-            System.err.println("Error retrieving subscription: " + e.getMessage());
+            log.error("Error retrieving subscription: {}", e.getMessage());
             throw e;
         }
     }
@@ -76,132 +140,773 @@ public class SubscriptionRepository {
         dynamoDbClient.putItem(request);
     }
 
-    // Retrieve all subscriptions from the table
+    // Retrieve all subscriptions from the table, keyed by subscriptionId
     public Map<String, Map<String, AttributeValue>> getAllSubscriptions() {
+        Map<String, Map<String, AttributeValue>> result = new HashMap<>();
+        try (Stream<Map<String, AttributeValue>> items = streamSubscriptions()) {
+            items.forEach(item -> result.put(item.get("subscriptionId").s(), item));
+        }
+        return result;
+    }
+
+    // Stream every subscription in the table, fetching pages lazily as the stream is consumed
+    public Stream<Map<String, AttributeValue>> streamSubscriptions() {
         ScanRequest scanRequest = ScanRequest.builder()
                 .tableName(tableName)
                 .build();
+        return StreamSupport.stream(new ScanSpliterator(dynamoDbClient, scanRequest), false);
+    }
 
-        ScanResponse scanResponse = dynamoDbClient.scan(scanRequest);
+    // Scan the whole table in parallel segments, handing each item to the sink as it arrives
+    public void scanSubscriptions(Consumer<Map<String, AttributeValue>> sink) {
+        scanSubscriptions(scanSegments, scanThreads, sink);
+    }
 
-        Map<String, Map<String, AttributeValue>> result = new HashMap<>();
-        scanResponse.items().forEach(item -> {
-            String subscriptionId = item.get("subscriptionId").s();
-            result.put(subscriptionId, item);
-        });
+    // The sink is called concurrently from up to `threads` threads and must be thread-safe
+    public void scanSubscriptions(int totalSegments, int threads, Consumer<Map<String, AttributeValue>> sink) {
+        if (totalSegments < 1 || threads < 1) {
+            throw new IllegalArgumentException("Scan segments and threads must be at least 1");
+        }
+        if (totalSegments == 1) {
+            try (Stream<Map<String, AttributeValue>> items = streamSubscriptions()) {
+                items.forEach(sink);
+            }
+            return;
+        }
 
-        return result;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(totalSegments, threads));
+        try {
+            List<Future<?>> segments = new ArrayList<>(totalSegments);
+            for (int segment = 0; segment < totalSegments; segment++) {
+                ScanRequest scanRequest = ScanRequest.builder()
+                        .tableName(tableName)
+                        .segment(segment)
+                        .totalSegments(totalSegments)
+                        .build();
+                segments.add(executor.submit(() ->
+                        new ScanSpliterator(dynamoDbClient, scanRequest).forEachRemaining(sink)));
+            }
+            for (Future<?> segment : segments) {
+                segment.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning subscriptions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error scanning subscriptions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    // Add a new subscription or update existing subscriptions
-    public void addSubscription(String userId, String subscriptionId, Map<String, String> subscriptionDetails) {
-        System.out.println("Request received 1");
-    
+    // Retrieve all subscriptions following a club, through the clubId index
+    public List<Map<String, AttributeValue>> findByClubId(String clubId) {
+        return queryIndex(SubscriptionTableSchema.CLUB_INDEX, "clubId", clubId);
+    }
+
+    /**
+     * Retrieve the subscriptions interested in any of the given tags. Each tag is one Query on
+     * the tag membership table, and the subscriptions found are fetched with BatchGetItem.
+     * Meant as the fallback while the in-memory index is not loaded.
+     *
+     * Memberships are written before the subscription and removed after it, so a lookup never
+     * misses a subscriber. Memberships left behind by tags a subscription lost, or by deleted
+     * subscriptions, are dropped from the result and deleted here.
+     *
+     * @param tags The tags.
+     * @return The subscriptions having one of the tags, each one once.
+     */
+    public List<Map<String, AttributeValue>> findByTags(Collection<String> tags) {
+        Map<String, Map<String, AttributeValue>> keys = new LinkedHashMap<>();
+        Map<String, Set<String>> tagsByMember = new HashMap<>();
+        for (String tag : distinctTags(tags)) {
+            query(tagTableName, null, SubscriptionTableSchema.TAG_KEY, tag)
+                    .forEach(membership -> addMembership(membership, keys, tagsByMember));
+        }
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, AttributeValue>> stale = new ArrayList<>();
+        List<Map<String, AttributeValue>> items =
+                keepMembers(batchGetSubscriptions(new ArrayList<>(keys.values()), List.of()), tagsByMember, stale);
+        deleteMemberships(stale);
+        return items;
+    }
+
+    /**
+     * Write the tag memberships of every subscription, for subscriptions written before the
+     * membership table existed. Writing a membership again is harmless, so this can be rerun.
+     *
+     * @return The number of memberships written.
+     */
+    public int backfillTagMemberships() {
+        int written = 0;
+        List<WriteRequest> pending = new ArrayList<>();
+        try (Stream<Map<String, AttributeValue>> items = streamSubscriptions()) {
+            Iterator<Map<String, AttributeValue>> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                Subscription subscription = SubscriptionCodec.decode(iterator.next());
+                pending.addAll(membershipPuts(subscription.userId(), subscription.subscriptionId(), subscription.tags()));
+                if (pending.size() >= BATCH_WRITE_LIMIT) {
+                    writeMemberships(pending);
+                    written += pending.size();
+                    pending = new ArrayList<>();
+                }
+            }
+        }
+        writeMemberships(pending);
+        return written + pending.size();
+    }
+
+    // The non-empty tags, each once
+    static List<String> distinctTags(Collection<String> tags) {
+        List<String> distinct = tags.stream().filter(tag -> tag != null && !tag.isEmpty()).distinct().toList();
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("At least one tag must be provided");
+        }
+        return distinct;
+    }
+
+    // Record the subscription key of a membership item and the tag it was found under
+    static void addMembership(Map<String, AttributeValue> membership, Map<String, Map<String, AttributeValue>> keys,
+                              Map<String, Set<String>> tagsByMember) {
+        String member = membership.get(SubscriptionTableSchema.MEMBER_KEY).s();
+        keys.computeIfAbsent(member, m -> Map.of(
+                "userId", membership.get("userId"),
+                "subscriptionId", membership.get("subscriptionId")));
+        tagsByMember.computeIfAbsent(member, m -> new HashSet<>()).add(membership.get(SubscriptionTableSchema.TAG_KEY).s());
+    }
+
+    /**
+     * Keep the subscriptions that still have a tag they were found under. The keys of the
+     * memberships that no longer hold, because the subscription lost the tag or is gone, are
+     * added to stale.
+     *
+     * @param items        The subscriptions fetched for the memberships.
+     * @param tagsByMember The tags each subscription was found under, keyed by member.
+     * @param stale        Receives the keys of the stale membership items.
+     * @return The subscriptions to return.
+     */
+    static List<Map<String, AttributeValue>> keepMembers(List<Map<String, AttributeValue>> items,
+                                                         Map<String, Set<String>> tagsByMember,
+                                                         List<Map<String, AttributeValue>> stale) {
+        Map<String, Set<String>> unmatched = new HashMap<>(tagsByMember);
+        List<Map<String, AttributeValue>> kept = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            Subscription subscription = SubscriptionCodec.decode(item);
+            String member = subscription.userId() + "#" + subscription.subscriptionId();
+            Set<String> found = unmatched.remove(member);
+            if (found == null) {
+                continue;
+            }
+            boolean matched = false;
+            for (String tag : found) {
+                if (subscription.tags().contains(tag)) {
+                    matched = true;
+                } else {
+                    stale.add(membershipKey(tag, member));
+                }
+            }
+            if (matched) {
+                kept.add(item);
+            }
+        }
+        unmatched.forEach((member, found) -> found.forEach(tag -> stale.add(membershipKey(tag, member))));
+        return kept;
+    }
+
+    static Map<String, AttributeValue> membershipKey(String tag, String member) {
+        return Map.of(
+                SubscriptionTableSchema.TAG_KEY, AttributeValue.builder().s(tag).build(),
+                SubscriptionTableSchema.MEMBER_KEY, AttributeValue.builder().s(member).build());
+    }
+
+    static List<WriteRequest> membershipPuts(String userId, String subscriptionId, Collection<String> tags) {
+        List<WriteRequest> writes = new ArrayList<>(tags.size());
+        tags.forEach(tag -> writes.add(WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(SubscriptionTableSchema.membership(tag, userId, subscriptionId)).build())
+                .build()));
+        return writes;
+    }
+
+    static List<WriteRequest> membershipDeletes(Collection<Map<String, AttributeValue>> keys) {
+        List<WriteRequest> writes = new ArrayList<>(keys.size());
+        keys.forEach(key -> writes.add(WriteRequest.builder()
+                .deleteRequest(DeleteRequest.builder().key(key).build())
+                .build()));
+        return writes;
+    }
+
+    // Memberships of the tags a subscription had before a write and no longer has
+    static List<Map<String, AttributeValue>> lostMemberships(String userId, String subscriptionId,
+                                                             Collection<String> before, Collection<String> after) {
+        List<Map<String, AttributeValue>> lost = new ArrayList<>();
+        before.stream()
+                .filter(tag -> !after.contains(tag))
+                .forEach(tag -> lost.add(membershipKey(tag, userId + "#" + subscriptionId)));
+        return lost;
+    }
+
+    // Best effort: a membership left behind is dropped by the next lookup of its tag
+    private void deleteMemberships(List<Map<String, AttributeValue>> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            writeMemberships(membershipDeletes(keys));
+        } catch (RuntimeException e) {
+            log.warn("Could not delete {} stale tag memberships: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private void deleteLostMemberships(String userId, String subscriptionId, Collection<String> before, Collection<String> after) {
+        deleteMemberships(lostMemberships(userId, subscriptionId, before, after));
+    }
+
+    // Write membership items 25 at a time, retrying unprocessed ones with backoff
+    private void writeMemberships(List<WriteRequest> writes) {
+        for (int from = 0; from < writes.size(); from += BATCH_WRITE_LIMIT) {
+            List<WriteRequest> remaining = writes.subList(from, Math.min(from + BATCH_WRITE_LIMIT, writes.size()));
+            try {
+                for (int attempt = 0; attempt < batchWriteMaxAttempts && !remaining.isEmpty(); attempt++) {
+                    if (attempt > 0) {
+                        backoff(attempt);
+                    }
+                    BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                            .requestItems(Map.of(tagTableName, new ArrayList<>(remaining)))
+                            .build());
+                    remaining = response.hasUnprocessedItems()
+                            ? response.unprocessedItems().getOrDefault(tagTableName, List.of())
+                            : List.of();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing tag memberships", e);
+            }
+            if (!remaining.isEmpty()) {
+                throw new IllegalStateException(remaining.size() + " tag memberships were still unprocessed after "
+                        + batchWriteMaxAttempts + " attempts");
+            }
+        }
+    }
+
+    // Run a Query against a secondary index, following every page
+    private List<Map<String, AttributeValue>> queryIndex(String indexName, String keyName, String keyValue) {
+        return query(tableName, indexName, keyName, keyValue);
+    }
+
+    // Run a Query on a table, or on one of its indexes if indexName is set, following every page
+    private List<Map<String, AttributeValue>> query(String table, String indexName, String keyName, String keyValue) {
+        if (keyValue == null || keyValue.isEmpty()) {
+            throw new IllegalArgumentException(keyName + " must be provided");
+        }
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryRequest request = QueryRequest.builder()
+                    .tableName(table)
+                    .indexName(indexName)
+                    .keyConditionExpression("#k = :v")
+                    .expressionAttributeNames(Map.of("#k", keyName))
+                    .expressionAttributeValues(Map.of(":v", AttributeValue.builder().s(keyValue).build()))
+                    .exclusiveStartKey(exclusiveStartKey)
+                    .build();
+
+            QueryResponse response = dynamoDbClient.query(request);
+            items.addAll(response.items());
+            exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+        } while (exclusiveStartKey != null);
+
+        return items;
+    }
+
+    /**
+     * Add a new subscription or replace an existing one. The item is written whole with the
+     * next version, through a put conditioned on the version it replaces, so the copies other
+     * nodes hold can be ordered; the put is retried if another writer got in between.
+     *
+     * @param subscription The subscription, with its userId and subscriptionId.
+     * @return The subscription as written, with its version.
+     */
+    public Subscription addSubscription(Subscription subscription) {
         // Validate that the subscriptionId and userId are not null or empty
-        if (subscriptionId == null || subscriptionId.isEmpty()) {
+        if (subscription.subscriptionId() == null || subscription.subscriptionId().isEmpty()) {
             throw new IllegalArgumentException("Subscription ID cannot be null or empty");
         }
-        if (userId == null || userId.isEmpty()) {
+        if (subscription.userId() == null || subscription.userId().isEmpty()) {
             throw new IllegalArgumentException("User ID cannot be null or empty");
         }
-    
-        System.out.println("Request received 2");
-    
-        // Create a map for the new subscription
-        Map<String, AttributeValue> newSubscription = new HashMap<>();
-    
-        // Add the userId and subscriptionId explicitly (required for DynamoDB schema)
-        newSubscription.put("userId", AttributeValue.builder().s(userId).build());
-        newSubscription.put("subscriptionId", AttributeValue.builder().s(subscriptionId).build());
-    
-        System.out.println("Request received 3");
-    
-        // Add the provided subscription details
-        subscriptionDetails.forEach((key, value) -> {
-            if (value != null && !value.isEmpty()) {
-                newSubscription.put(key, AttributeValue.builder().s(value).build());
+
+        // Tag memberships go first, so a tag lookup never misses the subscription
+        writeMemberships(membershipPuts(subscription.userId(), subscription.subscriptionId(), subscription.tags()));
+
+        // Most subscriptions are new, so the first attempt expects no version
+        long currentVersion = 0;
+        for (int attempt = 0; attempt < updateMaxAttempts; attempt++) {
+            Map<String, AttributeValue> item = SubscriptionCodec.encode(subscription);
+            item.put(SubscriptionUpdate.VERSION, number(currentVersion + 1));
+
+            // Build the PutItemRequest
+            PutItemRequest.Builder request = PutItemRequest.builder()
+                    .tableName(tableName) // Ensure the tableName matches the actual DynamoDB table name
+                    .item(item)
+                    .expressionAttributeNames(Map.of("#ver", SubscriptionUpdate.VERSION))
+                    .returnValues(ReturnValue.ALL_OLD);
+            if (currentVersion == 0) {
+                request.conditionExpression("attribute_not_exists(#ver)");
+            } else {
+                request.conditionExpression("#ver = :expected")
+                        .expressionAttributeValues(Map.of(":expected", number(currentVersion)));
             }
-        });
-    
-        System.out.println("Request received 4");
-    
-        // Build the PutItemRequest
-        PutItemRequest request = PutItemRequest.builder()
-                .tableName(tableName) // Ensure the tableName matches the actual DynamoDB table name
-                .item(newSubscription)
-                .build();
-    
-        System.out.println("Request received 5");
-    
-        // Save the subscription to DynamoDB
-        dynamoDbClient.putItem(request);
-    
-        System.out.println("Subscription saved successfully: " + newSubscription);
+
+            // Save the subscription to DynamoDB
+            try {
+                PutItemResponse response = dynamoDbClient.putItem(request.build());
+                if (response.hasAttributes()) {
+                    deleteLostMemberships(subscription.userId(), subscription.subscriptionId(),
+                            SubscriptionCodec.decode(response.attributes()).tags(), subscription.tags());
+                }
+                log.debug("Subscription saved successfully: {}", subscription);
+                return SubscriptionCodec.decode(item);
+            } catch (ConditionalCheckFailedException e) {
+                // The subscription exists or was written in between: replace the version read now
+                currentVersion = versionOf(getItem(subscription.userId(), subscription.subscriptionId()));
+            }
+        }
+        throw new VersionConflictException("Subscription " + subscription.subscriptionId() + " kept changing after "
+                + updateMaxAttempts + " attempts", currentVersion);
     }
-    
-    
-    
 
-    // Remove specific details from a subscription
-    public void removeSubscription(String userId, String subscriptionId, Map<String, String> detailsToRemove) {
-        // Retrieve the existing subscription using userId and subscriptionId
-        Map<String, AttributeValue> existingSubscription = getSubscription(userId, subscriptionId);
-    
-        if (existingSubscription == null || existingSubscription.isEmpty()) {
-            throw new IllegalArgumentException("Subscription with ID " + subscriptionId + " for user " + userId + " does not exist.");
+    /**
+     * Write many subscriptions through BatchWriteItem. Items are sent in chunks of 25, several
+     * chunks at a time, and unprocessed items are retried with exponential backoff and full
+     * jitter. Every item must carry its userId and subscriptionId, and keys must be unique.
+     * The tag memberships of a chunk are written before its items; memberships of tags an
+     * existing subscription lost are left for the next lookup of the tag to drop.
+     *
+     * BatchWriteItem takes no conditions, so the current versions of a chunk are read first and
+     * each item is written with the next one. Each item of the list is replaced by its versioned
+     * copy. A single write landing between the read and the batch can leave both at the same
+     * version; the later of the two is kept.
+     *
+     * @param items The subscription items to put, in a modifiable list.
+     * @return The error of every item that could not be written, keyed by its position in items.
+     */
+    public Map<Integer, String> batchPutSubscriptions(List<Map<String, AttributeValue>> items) {
+        Map<Integer, String> failures = new ConcurrentHashMap<>();
+        if (items.isEmpty()) {
+            return failures;
         }
-    
-        // Create a mutable copy of the existing subscription
-        Map<String, AttributeValue> updatedSubscription = new HashMap<>(existingSubscription);
-    
-        // Remove only the specified details
-        detailsToRemove.forEach((key, value) -> {
-            if (updatedSubscription.containsKey(key)) {
-                updatedSubscription.remove(key);
+
+        int chunks = (items.size() + BATCH_WRITE_LIMIT - 1) / BATCH_WRITE_LIMIT;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(chunks, Math.max(1, batchWriteConcurrency)));
+        try {
+            List<Future<?>> pending = new ArrayList<>(chunks);
+            for (int from = 0; from < items.size(); from += BATCH_WRITE_LIMIT) {
+                int start = from;
+                int end = Math.min(from + BATCH_WRITE_LIMIT, items.size());
+                pending.add(executor.submit(() -> writeChunk(items, start, end, failures)));
             }
-        });
-    
-        // Ensure partition and sort keys are not removed
-        updatedSubscription.put("userId", existingSubscription.get("userId"));
-        updatedSubscription.put("subscriptionId", existingSubscription.get("subscriptionId"));
-    
-        // Build the PutItemRequest
-        PutItemRequest request = PutItemRequest.builder()
+            for (Future<?> chunk : pending) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing subscriptions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error writing subscriptions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    private void writeChunk(List<Map<String, AttributeValue>> items, int start, int end, Map<Integer, String> failures) {
+        // Unprocessed items come back without their position, so track them by key
+        Map<String, Integer> positions = new HashMap<>();
+        Map<Integer, WriteRequest> remaining = new LinkedHashMap<>();
+        List<WriteRequest> memberships = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            positions.put(keyOf(items.get(i)), i);
+            remaining.put(i, WriteRequest.builder().putRequest(PutRequest.builder().item(items.get(i)).build()).build());
+            Subscription subscription = SubscriptionCodec.decode(items.get(i));
+            memberships.addAll(membershipPuts(subscription.userId(), subscription.subscriptionId(), subscription.tags()));
+        }
+
+        try {
+            Map<String, Long> versions = new HashMap<>();
+            List<Map<String, AttributeValue>> keys = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                keys.add(Map.of("userId", items.get(i).get("userId"), "subscriptionId", items.get(i).get("subscriptionId")));
+            }
+            batchGetSubscriptions(keys, List.of(SubscriptionUpdate.VERSION))
+                    .forEach(current -> versions.put(keyOf(current), versionOf(current)));
+            for (int i = start; i < end; i++) {
+                Map<String, AttributeValue> item = new HashMap<>(items.get(i));
+                item.put(SubscriptionUpdate.VERSION, number(versions.getOrDefault(keyOf(item), 0L) + 1));
+                items.set(i, item);
+                remaining.put(i, WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            }
+
+            writeMemberships(memberships);
+            for (int attempt = 0; attempt < batchWriteMaxAttempts && !remaining.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    backoff(attempt);
+                }
+
+                BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(tableName, new ArrayList<>(remaining.values())))
+                        .build());
+
+                List<WriteRequest> unprocessed = response.hasUnprocessedItems()
+                        ? response.unprocessedItems().getOrDefault(tableName, List.of())
+                        : List.of();
+                Map<Integer, WriteRequest> retry = new LinkedHashMap<>();
+                unprocessed.forEach(request -> {
+                    Integer position = positions.get(keyOf(request.putRequest().item()));
+                    if (position != null) {
+                        retry.put(position, request);
+                    }
+                });
+                remaining = retry;
+            }
+            remaining.keySet().forEach(position ->
+                    failures.put(position, "Unprocessed after " + batchWriteMaxAttempts + " attempts"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            remaining.keySet().forEach(position -> failures.put(position, "Interrupted"));
+        } catch (RuntimeException e) {
+            log.error("Error writing subscription batch: {}", e.getMessage());
+            remaining.keySet().forEach(position -> failures.put(position, e.getMessage()));
+        }
+    }
+
+    // Exponential backoff with full jitter before retrying unprocessed batch items
+    private void backoff(int attempt) throws InterruptedException {
+        long ceiling = Math.min(batchWriteMaxBackoffMillis, batchWriteBaseBackoffMillis << Math.min(attempt, 20));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    /**
+     * Read one page of a user's subscriptions with a Query on the userId partition key.
+     *
+     * @param userId            The ID of the user.
+     * @param limit             Maximum number of subscriptions in the page.
+     * @param exclusiveStartKey Key to resume after, from the previous page; null for the first page.
+     * @param attributes        Attributes to return besides the keys; empty for all of them.
+     * @return The page, with the key to resume from if there are more subscriptions.
+     */
+    public Page querySubscriptionsByUser(String userId, int limit, Map<String, AttributeValue> exclusiveStartKey,
+                                        List<String> attributes) {
+        if (userId == null || userId.isEmpty()) {
+            throw new IllegalArgumentException("userId must be provided");
+        }
+
+        Map<String, String> names = new HashMap<>();
+        names.put("#u", "userId");
+        QueryRequest.Builder request = QueryRequest.builder()
                 .tableName(tableName)
-                .item(updatedSubscription)
-                .build();
-    
-        // Save the updated subscription back to DynamoDB
-        dynamoDbClient.putItem(request);
-    
-        System.out.println("Subscription updated successfully for userId: " + userId + ", subscriptionId: " + subscriptionId);
+                .keyConditionExpression("#u = :u")
+                .expressionAttributeValues(Map.of(":u", AttributeValue.builder().s(userId).build()))
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey);
+        if (attributes != null && !attributes.isEmpty()) {
+            request.projectionExpression(projection(attributes, names));
+        }
+        request.expressionAttributeNames(names);
+
+        QueryResponse response = dynamoDbClient.query(request.build());
+        Map<String, AttributeValue> lastEvaluatedKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                ? response.lastEvaluatedKey()
+                : null;
+        return new Page(response.items(), lastEvaluatedKey);
+    }
+
+    /**
+     * Fetch many subscriptions by key through BatchGetItem, 100 keys per request. Unprocessed
+     * keys are retried with exponential backoff and full jitter. Missing subscriptions are
+     * simply absent from the result.
+     *
+     * @param keys       Keys of the subscriptions, each with a userId and a subscriptionId.
+     * @param attributes Attributes to return besides the keys; empty for all of them.
+     * @return The subscriptions found, in no particular order.
+     */
+    public List<Map<String, AttributeValue>> batchGetSubscriptions(List<Map<String, AttributeValue>> keys, List<String> attributes) {
+        List<Map<String, AttributeValue>> found = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += BATCH_GET_LIMIT) {
+            List<Map<String, AttributeValue>> remaining = keys.subList(from, Math.min(from + BATCH_GET_LIMIT, keys.size()));
+            try {
+                for (int attempt = 0; attempt < batchWriteMaxAttempts && !remaining.isEmpty(); attempt++) {
+                    if (attempt > 0) {
+                        backoff(attempt);
+                    }
+
+                    KeysAndAttributes.Builder request = KeysAndAttributes.builder().keys(remaining);
+                    if (attributes != null && !attributes.isEmpty()) {
+                        Map<String, String> names = new HashMap<>();
+                        request.projectionExpression(projection(attributes, names)).expressionAttributeNames(names);
+                    }
+                    BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                            .requestItems(Map.of(tableName, request.build()))
+                            .build());
+
+                    found.addAll(response.responses().getOrDefault(tableName, List.of()));
+                    KeysAndAttributes unprocessed = response.hasUnprocessedKeys()
+                            ? response.unprocessedKeys().get(tableName)
+                            : null;
+                    remaining = unprocessed != null ? unprocessed.keys() : List.of();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while fetching subscriptions", e);
+            }
+            if (!remaining.isEmpty()) {
+                throw new IllegalStateException(remaining.size() + " subscriptions were still unprocessed after "
+                        + batchWriteMaxAttempts + " attempts");
+            }
+        }
+        return found;
     }
-    
-    
 
-    // Update an existing subscription
-    public void updateSubscription(String userId, String subscriptionId, Map<String, AttributeValue> updatedSubscription) {
-        // Validate input
-        if (userId == null || subscriptionId == null || updatedSubscription == null || updatedSubscription.isEmpty()) {
-            throw new IllegalArgumentException("Invalid input for updating subscription");
+    // Build a projection of the keys plus the given attributes, registering their names
+    private static String projection(List<String> attributes, Map<String, String> names) {
+        names.put("#u", "userId");
+        names.put("#s", "subscriptionId");
+        StringBuilder projection = new StringBuilder("#u, #s");
+        int i = 0;
+        for (String attribute : attributes) {
+            if (attribute.equals("userId") || attribute.equals("subscriptionId")) {
+                continue;
+            }
+            String name = "#p" + i++;
+            names.put(name, attribute);
+            projection.append(", ").append(name);
         }
-    
-        // Ensure the keys are present
-        updatedSubscription.put("userId", AttributeValue.builder().s(userId).build());
-        updatedSubscription.put("subscriptionId", AttributeValue.builder().s(subscriptionId).build());
-    
-        // Build the PutItemRequest
-        PutItemRequest request = PutItemRequest.builder()
+        return projection.toString();
+    }
+
+    /**
+     * One page of a Query.
+     */
+    public record Page(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+    }
+
+    private static String keyOf(Map<String, AttributeValue> item) {
+        return item.get("userId").s() + '\u0000' + item.get("subscriptionId").s();
+    }
+
+    /**
+     * Apply a partial update to a subscription with a single UpdateItem, returning the updated
+     * item. The version attribute is incremented on every update. When an expected version is
+     * given, the update only applies if the subscription still has that version.
+     *
+     * Adding to or deleting from a set is conditioned on the attribute being a string set
+     * ({@code attribute_type}). When that check fails because the attribute is still a legacy
+     * comma-separated string, it is migrated to a string set with a versioned
+     * read-modify-write. If a condition failed but the subscription read back afterwards neither
+     * is missing, has a legacy attribute nor has moved past the expected version, another writer
+     * got in between and the update is retried, up to {@code dynamodb.update.max-attempts}
+     * times. A moved version is not retried: it is reported as a
+     * {@link VersionConflictException} and it is up to the caller to re-read and retry.
+     *
+     * @param userId          The ID of the user.
+     * @param subscriptionId  The ID of the subscription.
+     * @param update          The changes to apply.
+     * @param expectedVersion Version the subscription must have, or null to update unconditionally.
+     * @return All attributes of the subscription after the update.
+     */
+    public Map<String, AttributeValue> updateSubscription(String userId, String subscriptionId,
+                                                          SubscriptionUpdate update, Long expectedVersion) {
+        if (userId == null || userId.isEmpty() || subscriptionId == null || subscriptionId.isEmpty()) {
+            throw new IllegalArgumentException("Both userId and subscriptionId must be provided");
+        }
+
+        writeMemberships(membershipPuts(userId, subscriptionId, addedTags(update)));
+        Map<String, AttributeValue> updated = updateWithRetries(userId, subscriptionId, update, expectedVersion);
+        deleteLostMemberships(userId, subscriptionId, update.getDelete().getOrDefault(SubscriptionCodec.TAGS, Set.of()),
+                SubscriptionCodec.decode(updated).tags());
+        return updated;
+    }
+
+    // Tags the update may give the subscription
+    private static Set<String> addedTags(SubscriptionUpdate update) {
+        Set<String> tags = new LinkedHashSet<>(update.getAdd().getOrDefault(SubscriptionCodec.TAGS, Set.of()));
+        tags.addAll(stringValues(update.getSet().get(SubscriptionCodec.TAGS)));
+        tags.addAll(stringValues(update.getSet().get(SubscriptionCodec.TAG)));
+        return tags;
+    }
+
+    private Map<String, AttributeValue> updateWithRetries(String userId, String subscriptionId,
+                                                          SubscriptionUpdate update, Long expectedVersion) {
+        for (int attempt = 0; attempt < updateMaxAttempts; attempt++) {
+            try {
+                return applyUpdate(userId, subscriptionId, update, expectedVersion, expectedVersion != null && expectedVersion == 0);
+            } catch (ConditionalCheckFailedException e) {
+                // Find out which condition failed from the current item
+                Map<String, AttributeValue> current = getItem(userId, subscriptionId);
+                if (current.isEmpty()) {
+                    throw notFound(userId, subscriptionId);
+                }
+                if (hasLegacySets(current, update)) {
+                    return migrateSets(userId, subscriptionId, update, expectedVersion);
+                }
+                long currentVersion = versionOf(current);
+                if (expectedVersion != null && expectedVersion != currentVersion) {
+                    throw new VersionConflictException("Subscription " + subscriptionId + " is at version " + currentVersion
+                            + ", expected " + expectedVersion, currentVersion);
+                }
+                // The subscription changed between the update and the read: try again
+            }
+        }
+        throw new VersionConflictException("Subscription " + subscriptionId + " kept changing after "
+                + updateMaxAttempts + " attempts", versionOf(getItem(userId, subscriptionId)));
+    }
+
+    // Resolve set additions and deletions against the current value, then write it back if the
+    // version did not move in the meantime
+    private Map<String, AttributeValue> migrateSets(String userId, String subscriptionId,
+                                                    SubscriptionUpdate update, Long expectedVersion) {
+        for (int attempt = 0; attempt < updateMaxAttempts; attempt++) {
+            Map<String, AttributeValue> current = getItem(userId, subscriptionId);
+            if (current.isEmpty()) {
+                throw notFound(userId, subscriptionId);
+            }
+            long currentVersion = versionOf(current);
+            if (expectedVersion != null && expectedVersion != currentVersion) {
+                throw new VersionConflictException("Subscription " + subscriptionId + " is at version " + currentVersion
+                        + ", expected " + expectedVersion, currentVersion);
+            }
+
+            SubscriptionUpdate resolved = new SubscriptionUpdate();
+            update.getSet().forEach(resolved::set);
+            update.getRemove().forEach(resolved::remove);
+            for (String attribute : setAttributes(update)) {
+                Set<String> values = stringValues(current.get(attribute));
+                values.addAll(update.getAdd().getOrDefault(attribute, Set.of()));
+                values.removeAll(update.getDelete().getOrDefault(attribute, Set.of()));
+                if (values.isEmpty()) {
+                    resolved.remove(attribute);
+                } else {
+                    resolved.set(attribute, AttributeValue.builder().ss(values).build());
+                }
+            }
+
+            try {
+                return applyUpdate(userId, subscriptionId, resolved, currentVersion, !current.containsKey(SubscriptionUpdate.VERSION));
+            } catch (ConditionalCheckFailedException e) {
+                // Another writer updated the subscription since we read it: read it again
+            }
+        }
+        throw new VersionConflictException("Subscription " + subscriptionId + " kept changing after "
+                + updateMaxAttempts + " attempts", versionOf(getItem(userId, subscriptionId)));
+    }
+
+    private Map<String, AttributeValue> applyUpdate(String userId, String subscriptionId, SubscriptionUpdate update,
+                                                    Long expectedVersion, boolean allowMissingVersion) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        String expression = update.toExpression(names, values);
+
+        // The subscription must exist, and have the expected version if there is one
+        names.put("#u", "userId");
+        String condition = "attribute_exists(#u)";
+        if (expectedVersion != null) {
+            values.put(":expected", AttributeValue.builder().n(Long.toString(expectedVersion)).build());
+            condition += allowMissingVersion
+                    ? " AND (attribute_not_exists(#ver) OR #ver = :expected)"
+                    : " AND #ver = :expected";
+        }
+        // ADD and DELETE need a string set, not a legacy comma-separated string
+        int i = 0;
+        for (String attribute : setAttributes(update)) {
+            names.put("#t" + i, attribute);
+            condition += " AND (attribute_not_exists(#t" + i + ") OR attribute_type(#t" + i + ", :ss))";
+            i++;
+        }
+        if (i > 0) {
+            values.put(":ss", AttributeValue.builder().s("SS").build());
+        }
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
                 .tableName(tableName)
-                .item(updatedSubscription)
+                .key(Map.of(
+                        "userId", AttributeValue.builder().s(userId).build(),
+                        "subscriptionId", AttributeValue.builder().s(subscriptionId).build()))
+                .updateExpression(expression)
+                .conditionExpression(condition)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_NEW)
                 .build();
-    
-        // Update the item in DynamoDB
-        dynamoDbClient.putItem(request);
+
+        return dynamoDbClient.updateItem(request).attributes();
     }
-    
 
-    
+    // Attributes the update adds to or deletes from
+    private static Set<String> setAttributes(SubscriptionUpdate update) {
+        Set<String> attributes = new LinkedHashSet<>(update.getAdd().keySet());
+        attributes.addAll(update.getDelete().keySet());
+        return attributes;
+    }
+
+    private static boolean hasLegacySets(Map<String, AttributeValue> item, SubscriptionUpdate update) {
+        for (String attribute : setAttributes(update)) {
+            AttributeValue value = item.get(attribute);
+            if (value != null && !value.hasSs()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, AttributeValue> getItem(String userId, String subscriptionId) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(
+                        "userId", AttributeValue.builder().s(userId).build(),
+                        "subscriptionId", AttributeValue.builder().s(subscriptionId).build()))
+                .consistentRead(true)
+                .build()).item();
+        return item != null ? item : Map.of();
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    private static long versionOf(Map<String, AttributeValue> item) {
+        AttributeValue version = item.get(SubscriptionUpdate.VERSION);
+        return version != null && version.n() != null ? Long.parseLong(version.n()) : 0;
+    }
+
+    // Values of a string set, or of a legacy comma-separated string such as "AI,Music" or "[AI, Music]"
+    private static Set<String> stringValues(AttributeValue value) {
+        Set<String> values = new LinkedHashSet<>();
+        if (value == null) {
+            return values;
+        }
+        if (value.hasSs()) {
+            values.addAll(value.ss());
+        } else if (value.s() != null) {
+            for (String part : value.s().replace("[", "").replace("]", "").split(",")) {
+                if (!part.trim().isEmpty()) {
+                    values.add(part.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static IllegalArgumentException notFound(String userId, String subscriptionId) {
+        return new IllegalArgumentException("Subscription with ID " + subscriptionId + " for user " + userId + " does not exist.");
+    }
 
     // Add this method to your SubscriptionRepository class
     public void deleteSubscription(String subscriptionId) {
@@ -227,12 +932,16 @@ public class SubscriptionRepository {
         DeleteItemRequest deleteRequest = DeleteItemRequest.builder()
                 .tableName(tableName) // Replace with your DynamoDB table name
                 .key(key)
+                .returnValues(ReturnValue.ALL_OLD)
                 .build();
     
-        // Execute the delete operation
-        dynamoDbClient.deleteItem(deleteRequest);
+        // Execute the delete operation, then drop the tag memberships
+        DeleteItemResponse response = dynamoDbClient.deleteItem(deleteRequest);
+        if (response.hasAttributes()) {
+            deleteLostMemberships(userId, subscriptionId, SubscriptionCodec.decode(response.attributes()).tags(), Set.of());
+        }
     
-        System.out.println("Subscription deleted successfully for userId: " + userId + ", subscriptionId: " + subscriptionId);
+        log.debug("Subscription deleted successfully for userId: {}, subscriptionId: {}", userId, subscriptionId);
     }
     
 
@@ -0,0 +1,147 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.Map;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+/**
+ * Definition of the Subscriptions table and its secondary indexes.
+ *
+ * The table is keyed by (userId, subscriptionId). The global secondary index
+ * {@value #CLUB_INDEX}, partitioned by clubId, lets the followers of a club be read with a
+ * Query instead of a Scan. It projects all attributes so a Query returns complete
+ * subscriptions.
+ *
+ * Tags are stored as a string set, which cannot key an index. Instead every (tag, subscription)
+ * pair has a membership item in the {@value #TAG_TABLE_NAME} table, partitioned by
+ * {@value #TAG_KEY} and sorted by {@value #MEMBER_KEY} ({@code userId#subscriptionId}), so the
+ * subscribers of a tag are read with a Query until the in-memory index is loaded. The same
+ * definitions are used to create the tables in DynamoDB Local for tests.
+ */
+public final class SubscriptionTableSchema {
+
+    public static final String TABLE_NAME = "Subscriptions";
+    public static final String CLUB_INDEX = "clubId-index";
+    public static final String TAG_TABLE_NAME = "SubscriptionTags";
+    public static final String TAG_KEY = "tag";
+    public static final String MEMBER_KEY = "member";
+
+    private SubscriptionTableSchema() {
+    }
+
+    /**
+     * Build the request that creates the Subscriptions table with its indexes.
+     *
+     * @param tableName Name of the table to create.
+     * @return CreateTableRequest instance
+     */
+    public static CreateTableRequest createTableRequest(String tableName) {
+        return CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        stringAttribute("userId"),
+                        stringAttribute("subscriptionId"),
+                        stringAttribute("clubId"))
+                .keySchema(
+                        keyElement("userId", KeyType.HASH),
+                        keyElement("subscriptionId", KeyType.RANGE))
+                .globalSecondaryIndexes(index(CLUB_INDEX, "clubId"))
+                .build();
+    }
+
+    /**
+     * Build the request that creates the tag membership table.
+     *
+     * @param tableName Name of the table to create.
+     * @return CreateTableRequest instance
+     */
+    public static CreateTableRequest createTagTableRequest(String tableName) {
+        return CreateTableRequest.builder()
+                .tableName(tableName)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(stringAttribute(TAG_KEY), stringAttribute(MEMBER_KEY))
+                .keySchema(
+                        keyElement(TAG_KEY, KeyType.HASH),
+                        keyElement(MEMBER_KEY, KeyType.RANGE))
+                .build();
+    }
+
+    /**
+     * Create the table if it does not exist yet, e.g. against DynamoDB Local.
+     *
+     * @param dynamoDbClient Client to use.
+     * @param tableName      Name of the table.
+     */
+    public static void createTableIfMissing(DynamoDbClient dynamoDbClient, String tableName) {
+        createIfMissing(dynamoDbClient, createTableRequest(tableName));
+    }
+
+    /**
+     * Create the tag membership table if it does not exist yet, e.g. against DynamoDB Local.
+     *
+     * @param dynamoDbClient Client to use.
+     * @param tableName      Name of the table.
+     */
+    public static void createTagTableIfMissing(DynamoDbClient dynamoDbClient, String tableName) {
+        createIfMissing(dynamoDbClient, createTagTableRequest(tableName));
+    }
+
+    /**
+     * Build the membership item recording that a subscription has a tag.
+     *
+     * @param tag            The tag.
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     * @return The membership item, with the subscription's key.
+     */
+    public static Map<String, AttributeValue> membership(String tag, String userId, String subscriptionId) {
+        return Map.of(
+                TAG_KEY, AttributeValue.builder().s(tag).build(),
+                MEMBER_KEY, AttributeValue.builder().s(userId + "#" + subscriptionId).build(),
+                "userId", AttributeValue.builder().s(userId).build(),
+                "subscriptionId", AttributeValue.builder().s(subscriptionId).build());
+    }
+
+    private static void createIfMissing(DynamoDbClient dynamoDbClient, CreateTableRequest request) {
+        try {
+            dynamoDbClient.describeTable(builder -> builder.tableName(request.tableName()));
+        } catch (ResourceNotFoundException e) {
+            dynamoDbClient.createTable(request);
+            dynamoDbClient.waiter().waitUntilTableExists(builder -> builder.tableName(request.tableName()));
+        }
+    }
+
+    private static AttributeDefinition stringAttribute(String name) {
+        return AttributeDefinition.builder()
+                .attributeName(name)
+                .attributeType(ScalarAttributeType.S)
+                .build();
+    }
+
+    private static KeySchemaElement keyElement(String name, KeyType keyType) {
+        return KeySchemaElement.builder()
+                .attributeName(name)
+                .keyType(keyType)
+                .build();
+    }
+
+    private static GlobalSecondaryIndex index(String indexName, String partitionKey) {
+        return GlobalSecondaryIndex.builder()
+                .indexName(indexName)
+                .keySchema(keyElement(partitionKey, KeyType.HASH))
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.clubconnect.notificationservice.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Partial update of a subscription, turned into a single UpdateItem expression.
+ *
+ * Attributes can be set, removed, or have string values added to or deleted from a string
+ * set. The keys and the {@value #VERSION} attribute are managed by the repository and cannot
+ * be changed through an update.
+ */
+public class SubscriptionUpdate {
+
+    public static final String VERSION = "version";
+
+    private final Map<String, AttributeValue> set = new HashMap<>();
+    private final Set<String> remove = new LinkedHashSet<>();
+    private final Map<String, Set<String>> add = new HashMap<>();
+    private final Map<String, Set<String>> delete = new HashMap<>();
+
+    public SubscriptionUpdate set(String attribute, String value) {
+        return set(attribute, AttributeValue.builder().s(value).build());
+    }
+
+    public SubscriptionUpdate set(String attribute, AttributeValue value) {
+        checkAttribute(attribute);
+        set.put(attribute, value);
+        return this;
+    }
+
+    public SubscriptionUpdate remove(String attribute) {
+        checkAttribute(attribute);
+        remove.add(attribute);
+        return this;
+    }
+
+    public SubscriptionUpdate addToSet(String attribute, Collection<String> values) {
+        checkAttribute(attribute);
+        if (!values.isEmpty()) {
+            add.computeIfAbsent(attribute, key -> new LinkedHashSet<>()).addAll(values);
+        }
+        return this;
+    }
+
+    public SubscriptionUpdate deleteFromSet(String attribute, Collection<String> values) {
+        checkAttribute(attribute);
+        if (!values.isEmpty()) {
+            delete.computeIfAbsent(attribute, key -> new LinkedHashSet<>()).addAll(values);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return set.isEmpty() && remove.isEmpty() && add.isEmpty() && delete.isEmpty();
+    }
+
+    public Map<String, AttributeValue> getSet() {
+        return Collections.unmodifiableMap(set);
+    }
+
+    public Set<String> getRemove() {
+        return Collections.unmodifiableSet(remove);
+    }
+
+    public Map<String, Set<String>> getAdd() {
+        return Collections.unmodifiableMap(add);
+    }
+
+    public Map<String, Set<String>> getDelete() {
+        return Collections.unmodifiableMap(delete);
+    }
+
+    /**
+     * Build the update expression, registering attribute names and values. The version is
+     * always incremented.
+     *
+     * @param names  Expression attribute names to fill in.
+     * @param values Expression attribute values to fill in.
+     * @return The update expression.
+     */
+    String toExpression(Map<String, String> names, Map<String, AttributeValue> values) {
+        List<String> sets = new ArrayList<>();
+        List<String> removes = new ArrayList<>();
+        List<String> adds = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+
+        names.put("#ver", VERSION);
+        values.put(":zero", AttributeValue.builder().n("0").build());
+        values.put(":one", AttributeValue.builder().n("1").build());
+        sets.add("#ver = if_not_exists(#ver, :zero) + :one");
+
+        int i = 0;
+        for (Map.Entry<String, AttributeValue> entry : set.entrySet()) {
+            names.put("#a" + i, entry.getKey());
+            values.put(":a" + i, entry.getValue());
+            sets.add("#a" + i + " = :a" + i);
+            i++;
+        }
+        for (String attribute : remove) {
+            names.put("#a" + i, attribute);
+            removes.add("#a" + i);
+            i++;
+        }
+        for (Map.Entry<String, Set<String>> entry : add.entrySet()) {
+            names.put("#a" + i, entry.getKey());
+            values.put(":a" + i, AttributeValue.builder().ss(entry.getValue()).build());
+            adds.add("#a" + i + " :a" + i);
+            i++;
+        }
+        for (Map.Entry<String, Set<String>> entry : delete.entrySet()) {
+            names.put("#a" + i, entry.getKey());
+            values.put(":a" + i, AttributeValue.builder().ss(entry.getValue()).build());
+            deletes.add("#a" + i + " :a" + i);
+            i++;
+        }
+
+        StringBuilder expression = new StringBuilder("SET ").append(String.join(", ", sets));
+        if (!removes.isEmpty()) {
+            expression.append(" REMOVE ").append(String.join(", ", removes));
+        }
+        if (!adds.isEmpty()) {
+            expression.append(" ADD ").append(String.join(", ", adds));
+        }
+        if (!deletes.isEmpty()) {
+            expression.append(" DELETE ").append(String.join(", ", deletes));
+        }
+        return expression.toString();
+    }
+
+    private static void checkAttribute(String attribute) {
+        if (attribute == null || attribute.isEmpty()) {
+            throw new IllegalArgumentException("Attribute name must be provided");
+        }
+        if (attribute.equals("userId") || attribute.equals("subscriptionId") || attribute.equals(VERSION)) {
+            throw new IllegalArgumentException("Attribute " + attribute + " cannot be updated");
+        }
+    }
+}
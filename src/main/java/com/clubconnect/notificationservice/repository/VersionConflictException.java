@@ -0,0 +1,19 @@
+package com.clubconnect.notificationservice.repository;
+
+/**
+ * Thrown when a subscription was changed concurrently: its version no longer matches the one
+ * the caller expected, or a read-modify-write kept conflicting with other writers.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(String message, long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
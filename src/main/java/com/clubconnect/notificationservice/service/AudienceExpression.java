@@ -0,0 +1,78 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.List;
+
+/**
+ * A boolean expression selecting the users an event is sent to, e.g.
+ * {@code club:chess OR (tag:AI AND tag:Music) MINUS muted}.
+ *
+ * <ul>
+ *   <li>{@code club:<id>}, {@code tag:<name>}, {@code user:<id>}: the users with a subscription
+ *   to the club, with the tag, or the user itself. Values containing spaces or parentheses
+ *   are written in double quotes, e.g. {@code tag:"Machine Learning"}.</li>
+ *   <li>{@code muted}: the users who muted notifications, see {@link SubscriptionIndex}.</li>
+ *   <li>{@code AND} binds tighter than {@code OR}, which binds tighter than {@code MINUS}, so a
+ *   trailing {@code MINUS muted} applies to the whole audience. Keywords are
+ *   case-insensitive; parentheses group.</li>
+ * </ul>
+ *
+ * Expressions are evaluated against the bitmap postings of {@link SubscriptionIndex}.
+ */
+public sealed interface AudienceExpression {
+
+    record Club(String clubId) implements AudienceExpression {
+    }
+
+    record Tag(String tag) implements AudienceExpression {
+    }
+
+    record User(String userId) implements AudienceExpression {
+    }
+
+    record Muted() implements AudienceExpression {
+    }
+
+    record Or(AudienceExpression left, AudienceExpression right) implements AudienceExpression {
+    }
+
+    record And(AudienceExpression left, AudienceExpression right) implements AudienceExpression {
+    }
+
+    record Minus(AudienceExpression left, AudienceExpression right) implements AudienceExpression {
+    }
+
+    /**
+     * Parse an expression.
+     *
+     * @param source The expression.
+     * @return The parsed expression.
+     * @throws IllegalArgumentException if the expression is empty or malformed.
+     */
+    static AudienceExpression parse(String source) {
+        return AudienceParser.parse(source);
+    }
+
+    /**
+     * Collect the clubs and tags a user can be selected through, i.e. those referenced outside
+     * the right-hand side of a {@code MINUS}.
+     *
+     * @param expression The expression.
+     * @param clubs      Receives the club IDs.
+     * @param tags       Receives the tags.
+     */
+    static void selectingTerms(AudienceExpression expression, List<String> clubs, List<String> tags) {
+        if (expression instanceof Club club) {
+            clubs.add(club.clubId());
+        } else if (expression instanceof Tag tag) {
+            tags.add(tag.tag());
+        } else if (expression instanceof Or or) {
+            selectingTerms(or.left(), clubs, tags);
+            selectingTerms(or.right(), clubs, tags);
+        } else if (expression instanceof And and) {
+            selectingTerms(and.left(), clubs, tags);
+            selectingTerms(and.right(), clubs, tags);
+        } else if (expression instanceof Minus minus) {
+            selectingTerms(minus.left(), clubs, tags);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.clubconnect.notificationservice.service.AudienceExpression.And;
+import com.clubconnect.notificationservice.service.AudienceExpression.Club;
+import com.clubconnect.notificationservice.service.AudienceExpression.Minus;
+import com.clubconnect.notificationservice.service.AudienceExpression.Muted;
+import com.clubconnect.notificationservice.service.AudienceExpression.Or;
+import com.clubconnect.notificationservice.service.AudienceExpression.Tag;
+import com.clubconnect.notificationservice.service.AudienceExpression.User;
+
+/**
+ * Recursive-descent parser of {@link AudienceExpression}s.
+ */
+final class AudienceParser {
+
+    private final String source;
+    private final List<Token> tokens;
+    private int position;
+
+    private AudienceParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    // minus := or ('MINUS' or)*
+    private AudienceExpression minus() {
+        AudienceExpression left = or();
+        while (keyword("MINUS")) {
+            left = new Minus(left, or());
+        }
+        return left;
+    }
+
+    // or := and ('OR' and)*
+    private AudienceExpression or() {
+        AudienceExpression left = and();
+        while (keyword("OR")) {
+            left = new Or(left, and());
+        }
+        return left;
+    }
+
+    // and := term ('AND' term)*
+    private AudienceExpression and() {
+        AudienceExpression left = term();
+        while (keyword("AND")) {
+            left = new And(left, term());
+        }
+        return left;
+    }
+
+    // term := '(' minus ')' | 'muted' | club:<id> | tag:<name> | user:<id>
+    private AudienceExpression term() {
+        if (position >= tokens.size()) {
+            throw error("Unexpected end of expression");
+        }
+        Token token = tokens.get(position++);
+        if (token.text().equals("(") && !token.quoted()) {
+            AudienceExpression inner = minus();
+            if (position >= tokens.size() || !tokens.get(position).text().equals(")")) {
+                throw error("Missing ')'");
+            }
+            position++;
+            return inner;
+        }
+        if (!token.quoted() && token.text().equalsIgnoreCase("muted")) {
+            return new Muted();
+        }
+        int colon = token.text().indexOf(':');
+        if (colon <= 0 || colon == token.text().length() - 1) {
+            throw error("Expected club:, tag:, user: or muted but found '" + token.text() + "'");
+        }
+        String value = token.text().substring(colon + 1);
+        switch (token.text().substring(0, colon).toLowerCase(Locale.ROOT)) {
+            case "club":
+                return new Club(value.intern());
+            case "tag":
+                return new Tag(value.intern());
+            case "user":
+                return new User(value);
+            default:
+                throw error("Unknown audience term '" + token.text().substring(0, colon) + "'");
+        }
+    }
+
+    private boolean keyword(String keyword) {
+        if (position < tokens.size() && !tokens.get(position).quoted()
+                && tokens.get(position).text().equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " in audience expression: " + source);
+    }
+
+    // Words, parentheses and prefix:"quoted value" terms; a quoted term is never a keyword
+    private List<Token> tokenize(String source) {
+        List<Token> result = new ArrayList<>();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                result.add(new Token(String.valueOf(c), false));
+                i++;
+            } else {
+                StringBuilder text = new StringBuilder();
+                boolean quoted = false;
+                while (i < source.length()) {
+                    c = source.charAt(i);
+                    if (c == '"') {
+                        int end = source.indexOf('"', i + 1);
+                        if (end < 0) {
+                            throw new IllegalArgumentException("Unclosed quote in audience expression: " + source);
+                        }
+                        text.append(source, i + 1, end);
+                        quoted = true;
+                        i = end + 1;
+                    } else if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                        break;
+                    } else {
+                        text.append(c);
+                        i++;
+                    }
+                }
+                result.add(new Token(text.toString(), quoted));
+            }
+        }
+        return result;
+    }
+
+    static AudienceExpression parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("Empty audience expression");
+        }
+        AudienceParser parser = new AudienceParser(source);
+        AudienceExpression expression = parser.minus();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected '" + parser.tokens.get(parser.position).text() + "'");
+        }
+        return expression;
+    }
+
+    private record Token(String text, boolean quoted) {
+    }
+}
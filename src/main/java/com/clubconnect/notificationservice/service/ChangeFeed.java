@@ -0,0 +1,29 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.function.Consumer;
+
+import com.clubconnect.notificationservice.model.SubscriptionChange;
+
+/**
+ * Broadcast of subscription changes between the nodes of the service.
+ *
+ * A change published by one node is delivered to the listeners of every node, including the
+ * publisher, in the order that node published it. Delivery is best effort: a change may be
+ * lost, e.g. while a node is disconnected, which receivers detect from the sequence numbers.
+ */
+public interface ChangeFeed {
+
+    /**
+     * Broadcast a change.
+     *
+     * @param change The change.
+     */
+    void publish(SubscriptionChange change);
+
+    /**
+     * Receive the changes of every node from now on.
+     *
+     * @param listener Called once per change, never concurrently.
+     */
+    void subscribe(Consumer<SubscriptionChange> listener);
+}
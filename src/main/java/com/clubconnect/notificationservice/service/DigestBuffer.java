@@ -0,0 +1,43 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+
+/**
+ * Durable per-user buffer of notifications waiting for the user's next digest.
+ */
+public interface DigestBuffer {
+
+    /**
+     * Append a notification to a user's buffer.
+     *
+     * @param mode   Digest window the user is on.
+     * @param userId The ID of the user.
+     * @param entry  The notification.
+     */
+    void append(DigestMode mode, String userId, DigestEntry entry);
+
+    /**
+     * Get the users with buffered notifications.
+     *
+     * @param mode Digest window.
+     * @return The IDs of the users.
+     */
+    Set<String> pendingUsers(DigestMode mode);
+
+    /**
+     * Hand a user's buffered notifications to the sender. They are removed from the buffer only
+     * if the sender reports success; otherwise they are kept for the next flush. Notifications
+     * appended while the sender runs go to the next window.
+     *
+     * @param mode   Digest window.
+     * @param userId The ID of the user.
+     * @param sender Sends the digest, returning whether it succeeded.
+     * @return Whether the buffer was flushed; false also when another node is flushing it.
+     */
+    boolean flush(DigestMode mode, String userId, Predicate<List<DigestEntry>> sender);
+}
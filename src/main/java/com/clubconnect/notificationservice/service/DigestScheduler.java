@@ -0,0 +1,117 @@
+package com.clubconnect.notificationservice.service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+/**
+ * Sends the buffered notifications of digest users as one email per user at the end of each
+ * hourly or daily window, rendered from the "digest" template.
+ */
+@Component
+public class DigestScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(DigestScheduler.class);
+
+    private final DigestBuffer digestBuffer;
+    private final UserEmailCache userEmailCache;
+    private final EmailService emailService;
+    private final TemplateEngine templateEngine;
+
+    @Value("${notification.digest.send-timeout-seconds:30}")
+    private long sendTimeoutSeconds = 30;
+
+    public DigestScheduler(DigestBuffer digestBuffer, UserEmailCache userEmailCache, EmailService emailService,
+                           TemplateEngine templateEngine) {
+        this.digestBuffer = digestBuffer;
+        this.userEmailCache = userEmailCache;
+        this.emailService = emailService;
+        this.templateEngine = templateEngine;
+    }
+
+    @Scheduled(cron = "${notification.digest.hourly-cron:0 0 * * * *}")
+    public void flushHourly() {
+        flush(DigestMode.HOURLY);
+    }
+
+    @Scheduled(cron = "${notification.digest.daily-cron:0 0 8 * * *}")
+    public void flushDaily() {
+        flush(DigestMode.DAILY);
+    }
+
+    /**
+     * Send the digest of every user with buffered notifications in a window.
+     *
+     * @param mode Digest window to flush.
+     * @return The number of users whose buffer was flushed.
+     */
+    public int flush(DigestMode mode) {
+        int flushed = 0;
+        for (String userId : digestBuffer.pendingUsers(mode)) {
+            try {
+                if (digestBuffer.flush(mode, userId, entries -> sendDigest(mode, userId, entries))) {
+                    flushed++;
+                }
+            } catch (Exception e) {
+                log.warn("Error flushing {} digest for userId {}: {}", mode, userId, e.getMessage());
+            }
+        }
+        log.info("Flushed {} digests for {} users", mode, flushed);
+        return flushed;
+    }
+
+    private boolean sendDigest(DigestMode mode, String userId, List<DigestEntry> entries) {
+        String userEmailAddress = userEmailCache.getEmail(userId);
+        if (userEmailAddress == null || userEmailAddress.isEmpty()) {
+            // Nobody to send to: drop the buffered notifications like immediate ones would be
+            log.warn("No valid email found for userId: {}. Dropping digest.", userId);
+            return true;
+        }
+
+        try (MDC.MDCCloseable user = LogContext.recipient(userId)) {
+            emailService.sendNotification(userEmailAddress, renderDigest(mode, entries))
+                    .get(sendTimeoutSeconds, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            log.warn("Error sending {} digest to userId {}: {}", mode, userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Render the digest email from the "digest" template, one section per event, oldest first.
+     *
+     * @param mode    Digest window.
+     * @param entries The buffered notifications of the user.
+     * @return The rendered message.
+     */
+    RenderedMessage renderDigest(DigestMode mode, List<DigestEntry> entries) {
+        List<Map<String, String>> events = entries.stream()
+                .sorted(Comparator.comparingLong(DigestEntry::getCreatedAt))
+                .map(entry -> Map.of(
+                        "eventId", String.valueOf(entry.getEventId()),
+                        "clubId", String.valueOf(entry.getClubId()),
+                        "club", entry.isClub() ? "yes" : "",
+                        "interests", entry.getMatchedTags() != null ? String.join(", ", entry.getMatchedTags()) : "",
+                        "added", Instant.ofEpochMilli(entry.getCreatedAt()).toString()))
+                .toList();
+
+        return templateEngine.render("digest", Map.of(
+                "window", mode.value(),
+                "count", entries.size() + (entries.size() == 1 ? " new event" : " new events"),
+                "events", events));
+    }
+}
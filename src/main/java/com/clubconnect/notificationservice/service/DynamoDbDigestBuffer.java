@@ -0,0 +1,333 @@
+package com.clubconnect.notificationservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.repository.DigestTableSchema;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * {@link DigestBuffer} kept in the {@link DigestTableSchema digest table}, so every node sees
+ * the same buffers no matter which one consumed the delivery task.
+ *
+ * Every node's scheduler flushes at the end of each window, so a flush first takes a lease on
+ * the user's claim item with a conditional update. The lease is refused while another node
+ * holds it, and for half a window after the last successful flush, so a user gets one digest
+ * per window even when the nodes' clocks or schedules drift apart. Only entries written before
+ * the claim are sent and then deleted; later ones wait for the next window.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.digest.store", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDbDigestBuffer implements DigestBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoDbDigestBuffer.class);
+
+    // BatchWriteItem accepts at most 25 items per request
+    static final int BATCH_WRITE_LIMIT = 25;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final long claimLeaseMillis;
+    private final String owner = UUID.randomUUID().toString();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${dynamodb.batch-write.max-attempts:8}")
+    private int batchWriteMaxAttempts = 8;
+
+    @Value("${dynamodb.batch-write.base-backoff-ms:50}")
+    private long batchWriteBaseBackoffMillis = 50;
+
+    // Create the table when missing, e.g. against DynamoDB Local, instead of failing at startup
+    @Value("${notification.digest.create-table:false}")
+    private boolean createTable;
+
+    public DynamoDbDigestBuffer(DynamoDbClient dynamoDbClient,
+                                @Value("${notification.digest.table:" + DigestTableSchema.TABLE_NAME + "}") String tableName,
+                                @Value("${notification.digest.claim-lease-seconds:300}") long claimLeaseSeconds) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.claimLeaseMillis = Duration.ofSeconds(claimLeaseSeconds).toMillis();
+    }
+
+    /**
+     * Check the digest table at startup, so a deployment without it fails at once instead of
+     * losing every digest notification on append.
+     *
+     * @throws IllegalStateException if the table does not exist and may not be created.
+     */
+    @PostConstruct
+    public void verifyTable() {
+        if (createTable) {
+            DigestTableSchema.createTableIfMissing(dynamoDbClient, tableName);
+            return;
+        }
+        try {
+            dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build());
+        } catch (ResourceNotFoundException e) {
+            throw new IllegalStateException("Digest table " + tableName + " does not exist. Create it as described by "
+                    + "DigestTableSchema, set notification.digest.create-table=true, or set notification.digest.store=file", e);
+        } catch (SdkException e) {
+            // DynamoDB unreachable for now: appends fail and are logged until it is back
+            log.warn("Could not verify digest table {}: {}", tableName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void append(DigestMode mode, String userId, DigestEntry entry) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not buffer digest entry for userId " + userId, e);
+        }
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(DigestTableSchema.BUFFER_KEY, string(bufferKey(mode, userId)));
+        item.put(DigestTableSchema.ENTRY_KEY, string(entryKey(System.currentTimeMillis()) + "#" + UUID.randomUUID()));
+        item.put("mode", string(mode.value()));
+        item.put("userId", string(userId));
+        item.put("payload", string(payload));
+
+        dynamoDbClient.putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+    }
+
+    @Override
+    public Set<String> pendingUsers(DigestMode mode) {
+        // Claim items carry no mode, so only users with buffered entries are returned
+        ScanRequest request = ScanRequest.builder()
+                .tableName(tableName)
+                .filterExpression("#mode = :mode")
+                .projectionExpression("#userId")
+                .expressionAttributeNames(Map.of("#mode", "mode", "#userId", "userId"))
+                .expressionAttributeValues(Map.of(":mode", string(mode.value())))
+                .build();
+
+        Set<String> users = new HashSet<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            ScanResponse response = dynamoDbClient.scan(request.toBuilder().exclusiveStartKey(exclusiveStartKey).build());
+            response.items().forEach(item -> users.add(item.get("userId").s()));
+            exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (exclusiveStartKey != null);
+        return users;
+    }
+
+    @Override
+    public boolean flush(DigestMode mode, String userId, Predicate<List<DigestEntry>> sender) {
+        long now = System.currentTimeMillis();
+        if (!claim(mode, userId, now)) {
+            log.debug("Digest of userId {} is being or was recently flushed by another node", userId);
+            return false;
+        }
+
+        boolean sent = false;
+        try {
+            List<Map<String, AttributeValue>> items = queryEntries(mode, userId, now);
+            List<DigestEntry> entries = new ArrayList<>(items.size());
+            for (Map<String, AttributeValue> item : items) {
+                entries.add(parse(item.get("payload").s()));
+            }
+
+            if (!entries.isEmpty() && !sender.test(entries)) {
+                return false;
+            }
+            sent = true;
+            deleteEntries(userId, items);
+            return true;
+        } finally {
+            release(mode, userId, now, sent);
+        }
+    }
+
+    // Take the user's lease unless another node holds it or the window was already flushed
+    private boolean claim(DigestMode mode, String userId, long now) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(claimKey(mode, userId))
+                .updateExpression("SET #owner = :owner, #leaseUntil = :leaseUntil")
+                .conditionExpression("(attribute_not_exists(#leaseUntil) OR #leaseUntil < :now)"
+                        + " AND (attribute_not_exists(#flushedAt) OR #flushedAt < :flushedBefore)")
+                .expressionAttributeNames(Map.of(
+                        "#owner", "owner",
+                        "#leaseUntil", "leaseUntil",
+                        "#flushedAt", "flushedAt"))
+                .expressionAttributeValues(Map.of(
+                        ":owner", string(owner),
+                        ":leaseUntil", number(now + claimLeaseMillis),
+                        ":now", number(now),
+                        ":flushedBefore", number(now - windowMillis(mode) / 2)))
+                .build();
+        try {
+            dynamoDbClient.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // Drop the lease, recording the flush time if the digest went out
+    private void release(DigestMode mode, String userId, long now, boolean sent) {
+        Map<String, String> names = new HashMap<>(Map.of("#owner", "owner", "#leaseUntil", "leaseUntil"));
+        Map<String, AttributeValue> values = new HashMap<>(Map.of(":owner", string(owner)));
+        String update = "REMOVE #leaseUntil";
+        if (sent) {
+            update += " SET #flushedAt = :flushedAt";
+            names.put("#flushedAt", "flushedAt");
+            values.put(":flushedAt", number(now));
+        }
+
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(claimKey(mode, userId))
+                    .updateExpression(update)
+                    .conditionExpression("#owner = :owner")
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            log.warn("Digest lease of userId {} expired before the flush finished and was taken over", userId);
+        }
+    }
+
+    // Entries buffered up to the claim, oldest first
+    private List<Map<String, AttributeValue>> queryEntries(DigestMode mode, String userId, long now) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("#buffer = :buffer AND #entry < :before")
+                .expressionAttributeNames(Map.of(
+                        "#buffer", DigestTableSchema.BUFFER_KEY,
+                        "#entry", DigestTableSchema.ENTRY_KEY))
+                .expressionAttributeValues(Map.of(
+                        ":buffer", string(bufferKey(mode, userId)),
+                        ":before", string(entryKey(now + 1))))
+                .consistentRead(true)
+                .build();
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResponse response = dynamoDbClient.query(request.toBuilder().exclusiveStartKey(exclusiveStartKey).build());
+            items.addAll(response.items());
+            exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (exclusiveStartKey != null);
+        return items;
+    }
+
+    private void deleteEntries(String userId, List<Map<String, AttributeValue>> items) {
+        for (int start = 0; start < items.size(); start += BATCH_WRITE_LIMIT) {
+            List<WriteRequest> requests = new ArrayList<>();
+            for (Map<String, AttributeValue> item : items.subList(start, Math.min(start + BATCH_WRITE_LIMIT, items.size()))) {
+                Map<String, AttributeValue> key = Map.of(
+                        DigestTableSchema.BUFFER_KEY, item.get(DigestTableSchema.BUFFER_KEY),
+                        DigestTableSchema.ENTRY_KEY, item.get(DigestTableSchema.ENTRY_KEY));
+                requests.add(WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build());
+            }
+
+            for (int attempt = 1; !requests.isEmpty(); attempt++) {
+                if (attempt > batchWriteMaxAttempts) {
+                    // The entries stay buffered and will be sent again with the next digest
+                    log.warn("Could not delete {} sent digest entries of userId {}", requests.size(), userId);
+                    break;
+                }
+                if (attempt > 1) {
+                    sleep(batchWriteBaseBackoffMillis << Math.min(attempt - 2, 10));
+                }
+                BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(tableName, requests))
+                        .build());
+                requests = response.hasUnprocessedItems()
+                        ? response.unprocessedItems().getOrDefault(tableName, List.of())
+                        : List.of();
+            }
+        }
+    }
+
+    private DigestEntry parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, DigestEntry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read buffered digest entry", e);
+        }
+    }
+
+    private static long windowMillis(DigestMode mode) {
+        switch (mode) {
+            case HOURLY:
+                return Duration.ofHours(1).toMillis();
+            case DAILY:
+                return Duration.ofDays(1).toMillis();
+            default:
+                return 0;
+        }
+    }
+
+    private static Map<String, AttributeValue> claimKey(DigestMode mode, String userId) {
+        return Map.of(
+                DigestTableSchema.BUFFER_KEY, string(bufferKey(mode, userId)),
+                DigestTableSchema.ENTRY_KEY, string(DigestTableSchema.CLAIM_ENTRY));
+    }
+
+    static String bufferKey(DigestMode mode, String userId) {
+        return mode.value() + "#" + userId;
+    }
+
+    // Zero-padded so that entry keys sort by time
+    static String entryKey(long epochMillis) {
+        return String.format("%013d", epochMillis);
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while deleting digest entries", e);
+        }
+    }
+}
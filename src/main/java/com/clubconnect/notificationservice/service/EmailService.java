@@ -1,44 +1,182 @@
 package com.clubconnect.notificationservice.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+import jakarta.mail.Address;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
 @Service
 public class EmailService {
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+    private static final String DEFAULT_SUBJECT = "ClubConnect: New Event Notification";
+
     private final JavaMailSender mailSender;
+    private final MailDeliveryEngine deliveryEngine;
     
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-    public EmailService(JavaMailSender mailSender) {
+    @Value("${mail.delivery.bcc.max-recipients:50}")
+    private int maxRecipientsPerEnvelope = 50;
+
+    @Value("${notification.logging.recipient-sample-rate:0.01}")
+    private double recipientLogSampleRate = 0.01;
+
+    // Email body dumps, at DEBUG
+    @Value("${notification.logging.payloads:false}")
+    private boolean logPayloads;
+
+    public EmailService(JavaMailSender mailSender, MailDeliveryEngine deliveryEngine) {
         this.mailSender = mailSender;
+        this.deliveryEngine = deliveryEngine;
+    }
+
+    /**
+     * Queue a notification email for asynchronous delivery.
+     *
+     * @param userEmail Recipient address.
+     * @param eventId   The ID of the event the notification is about.
+     * @param message   Body of the email, sent as plain text.
+     * @return A future completed once the email has been accepted by the SMTP server.
+     */
+    public CompletableFuture<Void> sendNotification(String userEmail, String eventId, String message) {
+        return sendNotification(userEmail, new RenderedMessage(DEFAULT_SUBJECT, message, null));
+    }
+
+    /**
+     * Queue a rendered notification for asynchronous delivery. When the message has an HTML
+     * body it is sent as multipart/alternative with the text body as fallback.
+     *
+     * @param userEmail Recipient address.
+     * @param message   The rendered message.
+     * @return A future completed once the email has been accepted by the SMTP server.
+     *         Cancelling it drops the email if it has not been sent yet.
+     */
+    public CompletableFuture<Void> sendNotification(String userEmail, RenderedMessage message) {
+        try {
+            MimeMessage mailMessage = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mailMessage, message.html() != null, "UTF-8");
+            helper.setFrom(fromEmail);
+            helper.setTo(userEmail);
+            helper.setSubject(message.subject());
+            if (message.html() != null) {
+                helper.setText(message.text(), message.html());
+            } else {
+                helper.setText(message.text());
+            }
+
+            // Sampled on the user ID, like the caller's lines; the address only when no user is known
+            String userId = MDC.get(LogContext.USER_ID);
+            boolean sampled = log.isDebugEnabled()
+                    && LogContext.sampled(recipientLogSampleRate, userId != null ? userId : userEmail);
+            if (sampled) {
+                log.debug("Sending email to: {}", userEmail);
+            }
+            if (logPayloads && log.isDebugEnabled()) {
+                log.debug("Email body for {}: {}", userEmail, message.text());
+            }
+
+            // Completions run on the delivery workers, with the caller's log context
+            Map<String, String> context = LogContext.capture();
+            CompletableFuture<Void> delivery = deliveryEngine.submit(mailMessage);
+            return MailDeliveryEngine.cancelling(delivery.whenComplete((result, error) -> LogContext.run(context, () -> {
+                if (error != null) {
+                    log.warn("Error sending email to {}: {}", userEmail, error.getMessage());
+                } else if (sampled) {
+                    log.debug("Email sent successfully to: {}", userEmail);
+                }
+            })), List.of(delivery));
+        } catch (Exception e) {
+            log.error("Error sending email to {}", userEmail, e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Queue one notification for many recipients. Recipients are grouped into envelopes of at
+     * most {@code mail.delivery.bcc.max-recipients}; each envelope is a single SMTP transaction
+     * with one {@code RCPT TO} per recipient, and no recipient address appears in the headers.
+     *
+     * @param userEmails Recipient addresses.
+     * @param message    The rendered message, identical for every recipient.
+     * @return A future completed, once every envelope was handled, with the addresses that did
+     *         not get the message; it never completes exceptionally. Cancelling it drops the
+     *         envelopes not sent yet.
+     */
+    public CompletableFuture<Set<String>> sendBulkNotification(List<String> userEmails, RenderedMessage message) {
+        if (userEmails.size() == 1) {
+            String userEmail = userEmails.get(0);
+            CompletableFuture<Void> delivery = sendNotification(userEmail, message);
+            return MailDeliveryEngine.cancelling(
+                    delivery.handle((result, error) -> error != null ? Set.of(userEmail) : Set.of()), List.of(delivery));
+        }
+
+        List<CompletableFuture<Set<String>>> envelopes = new ArrayList<>();
+        for (int start = 0; start < userEmails.size(); start += maxRecipientsPerEnvelope) {
+            List<String> group = userEmails.subList(start, Math.min(start + maxRecipientsPerEnvelope, userEmails.size()));
+            envelopes.add(sendEnvelope(group, message));
+        }
+        return MailDeliveryEngine.cancelling(CompletableFuture.allOf(envelopes.toArray(new CompletableFuture[0])).thenApply(done -> {
+            Set<String> failed = new LinkedHashSet<>();
+            envelopes.forEach(envelope -> failed.addAll(envelope.join()));
+            return failed;
+        }), envelopes);
     }
 
-    public void sendNotification(String userEmail, String eventId, String message) {
+    private CompletableFuture<Set<String>> sendEnvelope(List<String> group, RenderedMessage message) {
         try {
-            SimpleMailMessage mailMessage = new SimpleMailMessage();
-            mailMessage.setFrom(fromEmail);
-            mailMessage.setTo(userEmail);
-            mailMessage.setSubject("ClubConnect: New Event Notification");
-            
-            // Create a formatted message
-            String formattedMessage = String.format(
-                message.replaceAll("[{}\"]", "")  // Remove JSON formatting
-                      .replaceAll(",", "\n")      // Put each field on a new line
-            );
-            
-            mailMessage.setText(formattedMessage);
-
-            System.out.println("Sending email to: " + userEmail);
-            System.out.println("Email content:\n" + formattedMessage);
-
-            mailSender.send(mailMessage);
-            System.out.println("Email sent successfully to: " + userEmail);
+            MimeMessage mailMessage = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mailMessage, message.html() != null, "UTF-8");
+            helper.setFrom(fromEmail);
+            mailMessage.setHeader("To", "undisclosed-recipients:;");
+            helper.setSubject(message.subject());
+            if (message.html() != null) {
+                helper.setText(message.text(), message.html());
+            } else {
+                helper.setText(message.text());
+            }
+
+            Address[] envelope = new Address[group.size()];
+            for (int i = 0; i < envelope.length; i++) {
+                envelope[i] = new InternetAddress(group.get(i));
+            }
+
+            log.debug("Sending email to {} recipients in one envelope", group.size());
+            if (logPayloads && log.isDebugEnabled()) {
+                log.debug("Email body for {} recipients: {}", group.size(), message.text());
+            }
+
+            Map<String, String> context = LogContext.capture();
+            CompletableFuture<Set<String>> delivery = deliveryEngine.submit(mailMessage, envelope);
+            return MailDeliveryEngine.cancelling(delivery.handle((rejected, error) -> {
+                LogContext.run(context, () -> {
+                    if (error != null) {
+                        log.warn("Error sending email to {} recipients: {}", group.size(), error.getMessage());
+                    } else if (!rejected.isEmpty()) {
+                        log.warn("Recipients rejected by the SMTP server: {}", rejected);
+                    }
+                });
+                return error != null ? Set.copyOf(group) : rejected;
+            }), List.of(delivery));
         } catch (Exception e) {
-            System.err.println("Error sending email: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error sending email to {} recipients", group.size(), e);
+            return CompletableFuture.completedFuture(Set.copyOf(group));
         }
     }
-}
\ No newline at end of file
+}
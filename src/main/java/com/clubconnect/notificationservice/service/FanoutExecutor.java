@@ -0,0 +1,199 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the per-recipient work of an event concurrently, so blocking lookups and sends overlap
+ * instead of adding up.
+ *
+ * Two modes are supported through {@code notification.fanout.executor.mode}:
+ * <ul>
+ *   <li>{@code platform}: a fixed pool of {@code notification.fanout.executor.pool-size} threads.</li>
+ *   <li>{@code virtual}: one virtual thread per task. Needs a JDK with virtual threads (21+);
+ *       on older JDKs the platform pool is used instead.</li>
+ * </ul>
+ * In both modes a single event never runs more than {@code max-concurrency-per-event} tasks at
+ * once, and tasks still running when the event's deadline passes are cancelled.
+ */
+@Component
+public class FanoutExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(FanoutExecutor.class);
+
+    private final ExecutorService executor;
+    private final String mode;
+    private final int maxConcurrencyPerEvent;
+    private final long deadlineNanos;
+    private final AtomicInteger inFlightFanouts = new AtomicInteger();
+    private final AtomicInteger inFlightTasks = new AtomicInteger();
+
+    public FanoutExecutor(@Value("${notification.fanout.executor.mode:platform}") String mode,
+                          @Value("${notification.fanout.executor.pool-size:16}") int poolSize,
+                          @Value("${notification.fanout.executor.max-concurrency-per-event:32}") int maxConcurrencyPerEvent,
+                          @Value("${notification.fanout.executor.deadline-ms:60000}") long deadlineMillis) {
+        if (poolSize < 1 || maxConcurrencyPerEvent < 1 || deadlineMillis < 1) {
+            throw new IllegalArgumentException("Fan-out pool size, concurrency and deadline must be at least 1");
+        }
+        this.maxConcurrencyPerEvent = maxConcurrencyPerEvent;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        ExecutorService virtual = "virtual".equals(mode.toLowerCase(Locale.ROOT)) ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.executor = virtual;
+            this.mode = "virtual";
+        } else {
+            this.executor = Executors.newFixedThreadPool(poolSize, new FanoutThreadFactory());
+            this.mode = "platform";
+        }
+    }
+
+    // Looked up reflectively so the service still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on this JDK; using a platform thread pool for fan-out");
+            return null;
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Run a task for every item and wait for all of them, at most until the deadline.
+     * Failures of individual tasks are counted, not propagated. Tasks still running at the
+     * deadline are interrupted, so a task must wait interruptibly (e.g. {@code Future.get}
+     * rather than {@code CompletableFuture.join}) for its thread to be freed.
+     *
+     * @param items Items to process, e.g. the recipients of an event.
+     * @param task  Work to run for each item.
+     * @return Counts of completed, failed and timed out tasks.
+     */
+    public <T> FanoutResult forEach(Collection<? extends T> items, Consumer<? super T> task) {
+        inFlightFanouts.incrementAndGet();
+        try {
+            return run(items, task);
+        } finally {
+            inFlightFanouts.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Fan-outs in progress, e.g. delivery tasks being sent.
+     */
+    public int inFlightFanouts() {
+        return inFlightFanouts.get();
+    }
+
+    /**
+     * @return Tasks running, over all fan-outs.
+     */
+    public int inFlightTasks() {
+        return inFlightTasks.get();
+    }
+
+    private <T> FanoutResult run(Collection<? extends T> items, Consumer<? super T> task) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        Semaphore permits = new Semaphore(maxConcurrencyPerEvent);
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        // Tasks log with the caller's context, e.g. the ID of the event
+        Map<String, String> context = LogContext.capture();
+
+        try {
+            for (T item : items) {
+                if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                try {
+                    futures.add(executor.submit(() -> LogContext.run(context, () -> {
+                        inFlightTasks.incrementAndGet();
+                        try {
+                            task.accept(item);
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                            log.warn("Fan-out task failed: {}", e.getMessage());
+                        } finally {
+                            inFlightTasks.decrementAndGet();
+                            permits.release();
+                        }
+                    })));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    failed.incrementAndGet();
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+            // Handled below: whatever has not finished by now is cancelled
+        }
+
+        int completed = 0;
+        for (Future<?> future : futures) {
+            if (future.isDone() && !future.isCancelled()) {
+                completed++;
+            } else {
+                future.cancel(true);
+            }
+        }
+        completed -= failed.get();
+        int timedOut = items.size() - completed - failed.get();
+        if (timedOut > 0) {
+            log.warn("Fan-out deadline exceeded: {} of {} tasks did not complete", timedOut, items.size());
+        }
+        return new FanoutResult(completed, failed.get(), timedOut);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Outcome of a fan-out.
+     */
+    public record FanoutResult(int completed, int failed, int timedOut) {
+    }
+
+    private static class FanoutThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "fanout-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
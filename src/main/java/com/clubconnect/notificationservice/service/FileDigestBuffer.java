@@ -0,0 +1,145 @@
+package com.clubconnect.notificationservice.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link DigestBuffer} kept as one append-only JSON-lines log per user and digest window under
+ * {@code notification.digest.dir}.
+ *
+ * A flush first renames the log out of the way, so new notifications start a fresh log, and
+ * deletes the renamed file only once the digest has been sent. Files left behind by a failed
+ * flush are picked up again by the next one.
+ *
+ * The files are local to the node, so this buffer only suits a single-node deployment; enable it
+ * with {@code notification.digest.store=file}.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.digest.store", havingValue = "file")
+public class FileDigestBuffer implements DigestBuffer {
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String FLUSHING_SUFFIX = ".flushing";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FileDigestBuffer(@Value("${notification.digest.dir:digests}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    @Override
+    public synchronized void append(DigestMode mode, String userId, DigestEntry entry) {
+        try {
+            Path log = logFile(mode, userId);
+            Files.createDirectories(log.getParent());
+            byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(log, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not buffer digest entry for userId " + userId, e);
+        }
+    }
+
+    @Override
+    public Set<String> pendingUsers(DigestMode mode) {
+        Set<String> users = new HashSet<>();
+        Path modeDirectory = directory.resolve(mode.name().toLowerCase(Locale.ROOT));
+        if (!Files.isDirectory(modeDirectory)) {
+            return users;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(modeDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int end = name.indexOf('.');
+                if (end > 0) {
+                    users.add(decode(name.substring(0, end)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list digest buffers in " + modeDirectory, e);
+        }
+        return users;
+    }
+
+    @Override
+    public boolean flush(DigestMode mode, String userId, Predicate<List<DigestEntry>> sender) {
+        try {
+            List<Path> claimed = claim(mode, userId);
+            List<DigestEntry> entries = new ArrayList<>();
+            for (Path file : claimed) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        entries.add(parse(line));
+                    }
+                }
+            }
+
+            if (!entries.isEmpty() && !sender.test(entries)) {
+                return false;
+            }
+            for (Path file : claimed) {
+                Files.deleteIfExists(file);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush digest buffer for userId " + userId, e);
+        }
+    }
+
+    // Move the live log aside and collect it together with any leftovers of failed flushes
+    private synchronized List<Path> claim(DigestMode mode, String userId) throws IOException {
+        Path log = logFile(mode, userId);
+        if (Files.exists(log)) {
+            Path flushing = log.resolveSibling(encode(userId) + FLUSHING_SUFFIX + "." + System.nanoTime());
+            Files.move(log, flushing, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        List<Path> claimed = new ArrayList<>();
+        if (Files.isDirectory(log.getParent())) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(log.getParent(), encode(userId) + FLUSHING_SUFFIX + ".*")) {
+                files.forEach(claimed::add);
+            }
+        }
+        claimed.sort(null);
+        return claimed;
+    }
+
+    private DigestEntry parse(String line) throws JsonProcessingException {
+        return objectMapper.readValue(line, DigestEntry.class);
+    }
+
+    private Path logFile(DigestMode mode, String userId) {
+        return directory.resolve(mode.name().toLowerCase(Locale.ROOT)).resolve(encode(userId) + LOG_SUFFIX);
+    }
+
+    // User IDs are encoded so that any ID maps to a safe file name
+    private static String encode(String userId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String fileName) {
+        return new String(Base64.getUrlDecoder().decode(fileName), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * {@link UserDirectory} backed by the remote user service.
+ *
+ * Users are split into chunks of {@code user-directory.batch-size}, and up to
+ * {@code user-directory.max-concurrent-batches} chunks are resolved at the same time. When
+ * {@code userEmailBatchUrl} is set, each chunk is a single POST of the user IDs, answered with
+ * a userId to email map. Otherwise each chunk falls back to one GET per user on
+ * {@code userEmailUrl}, which still overlaps the chunks with each other but costs one round
+ * trip per recipient. The user service has no batch endpoint by default, so a warning is
+ * logged at startup until {@code userEmailBatchUrl} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "user-directory.mode", havingValue = "http", matchIfMissing = true)
+public class HttpUserDirectory implements UserDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpUserDirectory.class);
+
+    private static final ParameterizedTypeReference<Map<String, String>> EMAIL_MAP =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final String userEmailUrl;
+    private final String userEmailBatchUrl;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public HttpUserDirectory(RestTemplate restTemplate,
+                             @Value("${userEmailUrl}") String userEmailUrl,
+                             @Value("${userEmailBatchUrl:}") String userEmailBatchUrl,
+                             @Value("${user-directory.batch-size:100}") int batchSize,
+                             @Value("${user-directory.max-concurrent-batches:4}") int maxConcurrentBatches) {
+        if (batchSize < 1 || maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("Batch size and concurrency must be at least 1");
+        }
+        this.restTemplate = restTemplate;
+        this.userEmailUrl = userEmailUrl;
+        this.userEmailBatchUrl = userEmailBatchUrl;
+        this.batchSize = batchSize;
+        this.executor = Executors.newFixedThreadPool(maxConcurrentBatches);
+        if (userEmailBatchUrl == null || userEmailBatchUrl.isEmpty()) {
+            log.warn("userEmailBatchUrl is not set: user emails are resolved with one GET per user");
+        }
+    }
+
+    @Override
+    public Map<String, String> resolveEmails(Collection<String> userIds) {
+        List<List<String>> chunks = chunk(userIds);
+        if (chunks.size() == 1) {
+            return resolveChunk(chunks.get(0));
+        }
+
+        List<Future<Map<String, String>>> pending = new ArrayList<>(chunks.size());
+        chunks.forEach(chunk -> pending.add(executor.submit(() -> resolveChunk(chunk))));
+
+        Map<String, String> emails = new HashMap<>();
+        for (Future<Map<String, String>> future : pending) {
+            try {
+                emails.putAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.error("Error resolving user emails: {}", e.getCause().getMessage());
+            }
+        }
+        return emails;
+    }
+
+    private List<List<String>> chunk(Collection<String> userIds) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(userIds));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            chunks.add(distinct.subList(from, Math.min(from + batchSize, distinct.size())));
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(List.of());
+        }
+        return chunks;
+    }
+
+    private Map<String, String> resolveChunk(List<String> userIds) {
+        Map<String, String> emails = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return emails;
+        }
+
+        if (userEmailBatchUrl != null && !userEmailBatchUrl.isEmpty()) {
+            try {
+                Map<String, String> response = restTemplate.exchange(
+                        userEmailBatchUrl, HttpMethod.POST, new HttpEntity<>(userIds), EMAIL_MAP).getBody();
+                // The service answered for the whole chunk: users it left out are unknown
+                userIds.forEach(userId -> emails.put(userId, response != null ? response.get(userId) : null));
+            } catch (RestClientException e) {
+                log.error("Error resolving {} user emails: {}", userIds.size(), e.getMessage());
+            }
+            return emails;
+        }
+
+        for (String userId : userIds) {
+            try {
+                // Replace {username} with userId in the userEmailUrl
+                emails.put(userId, restTemplate.getForObject(userEmailUrl.replace("{username}", userId), String.class));
+            } catch (HttpClientErrorException.NotFound e) {
+                emails.put(userId, null);
+            } catch (RestClientException e) {
+                log.warn("Error resolving email for userId {}: {}", userId, e.getMessage());
+            }
+        }
+        return emails;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,33 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.SubscriptionChange;
+
+/**
+ * In-process {@link ChangeFeed} for tests, benchmarks and single-node runs.
+ *
+ * Changes are handed to the listeners on the publishing thread. Several services sharing one
+ * instance behave like nodes sharing a broker.
+ */
+@Component
+@ConditionalOnProperty(name = "subscriptions.change-feed.mode", havingValue = "local")
+public class LocalChangeFeed implements ChangeFeed {
+
+    private final List<Consumer<SubscriptionChange>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public synchronized void publish(SubscriptionChange change) {
+        listeners.forEach(listener -> listener.accept(change));
+    }
+
+    @Override
+    public void subscribe(Consumer<SubscriptionChange> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,58 @@
+package com.clubconnect.notificationservice.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory {@link UserDirectory} for tests, benchmarks and local runs.
+ *
+ * Addresses can be preloaded from a properties file of {@code userId=email} lines set with
+ * {@code user-directory.local.file}.
+ */
+@Component
+@ConditionalOnProperty(name = "user-directory.mode", havingValue = "local")
+public class LocalUserDirectory implements UserDirectory {
+
+    private final Map<String, String> emails = new ConcurrentHashMap<>();
+
+    public LocalUserDirectory() {
+    }
+
+    public LocalUserDirectory(Map<String, String> emails) {
+        this.emails.putAll(emails);
+    }
+
+    @Autowired
+    public LocalUserDirectory(@Value("${user-directory.local.file:}") String file) throws IOException {
+        if (file != null && !file.isEmpty()) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                properties.load(reader);
+            }
+            properties.forEach((userId, email) -> emails.put((String) userId, (String) email));
+        }
+    }
+
+    public void put(String userId, String email) {
+        emails.put(userId, email);
+    }
+
+    @Override
+    public Map<String, String> resolveEmails(Collection<String> userIds) {
+        Map<String, String> result = new HashMap<>();
+        userIds.forEach(userId -> result.put(userId, emails.get(userId)));
+        return result;
+    }
+}
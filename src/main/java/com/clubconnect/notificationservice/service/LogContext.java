@@ -0,0 +1,101 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.Map;
+
+import org.slf4j.MDC;
+
+/**
+ * Correlation and sampling of the pipeline's logs.
+ *
+ * While an event or one of its delivery tasks is handled, its ID is in the MDC as
+ * {@code eventId}, so every line of the event can be found with one filter. The context is
+ * carried over to fan-out tasks and mail completion callbacks, which run on other threads.
+ *
+ * Per-recipient lines are sampled rather than written for every recipient. The decision
+ * hashes the event and the recipient's user ID, so a sampled recipient is logged at every stage
+ * of the event, from delivery task to SMTP. Stages that only know the address, such as the mail
+ * sender, read the user ID from the MDC, where it is put as {@code userId} while a recipient is
+ * handled.
+ */
+public final class LogContext {
+
+    public static final String EVENT_ID = "eventId";
+    public static final String USER_ID = "userId";
+
+    private LogContext() {
+    }
+
+    /**
+     * Put the ID of an event in the MDC of the current thread.
+     *
+     * @param eventId The ID of the event.
+     * @return Removes the ID when closed.
+     */
+    public static MDC.MDCCloseable event(String eventId) {
+        return MDC.putCloseable(EVENT_ID, String.valueOf(eventId));
+    }
+
+    /**
+     * Put the user ID of the recipient being handled in the MDC of the current thread.
+     *
+     * @param userId The ID of the user.
+     * @return Removes the ID when closed.
+     */
+    public static MDC.MDCCloseable recipient(String userId) {
+        return MDC.putCloseable(USER_ID, String.valueOf(userId));
+    }
+
+    /**
+     * Whether the per-recipient lines of a recipient are logged for the current event.
+     *
+     * @param rate      Fraction of recipients logged, from 0 to 1.
+     * @param recipient The user ID of the recipient.
+     * @return true if the recipient is in the sample.
+     */
+    public static boolean sampled(double rate, String recipient) {
+        if (rate >= 1) {
+            return true;
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        int hash = 31 * String.valueOf(MDC.get(EVENT_ID)).hashCode() + String.valueOf(recipient).hashCode();
+        // Spread the bits, so similar IDs fall in different buckets
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return (hash & Integer.MAX_VALUE) < rate * Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return The MDC of the current thread, to restore on another thread with
+     *         {@link #run(Map, Runnable)}.
+     */
+    public static Map<String, String> capture() {
+        return MDC.getCopyOfContextMap();
+    }
+
+    /**
+     * Run an action with a captured MDC, then restore the MDC of the current thread.
+     *
+     * @param context The MDC returned by {@link #capture()}, may be null.
+     * @param action  The action.
+     */
+    public static void run(Map<String, String> context, Runnable action) {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (context != null) {
+            MDC.setContextMap(context);
+        } else {
+            MDC.clear();
+        }
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Asynchronous SMTP delivery engine.
+ *
+ * Messages are put on a bounded queue and sent by a fixed pool of workers. Each worker keeps
+ * its own SMTP connection open and sends many messages over it, so STARTTLS and AUTH are paid
+ * once per connection instead of once per message. A worker reconnects when its connection
+ * fails and recycles it after {@code mail.delivery.max-messages-per-connection} messages.
+ * A message may be sent to an explicit envelope of many recipients in one transaction.
+ * Cancelling the future of a queued message drops it: workers skip jobs already completed.
+ */
+@Component
+public class MailDeliveryEngine {
+
+    private final JavaMailSenderImpl mailSender;
+    private final int workerCount;
+    private final int maxMessagesPerConnection;
+    private final long submitTimeoutMillis;
+    private final BlockingQueue<DeliveryJob> queue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running = false;
+
+    public MailDeliveryEngine(JavaMailSenderImpl mailSender,
+                              @Value("${mail.delivery.workers:4}") int workerCount,
+                              @Value("${mail.delivery.queue-capacity:1000}") int queueCapacity,
+                              @Value("${mail.delivery.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                              @Value("${mail.delivery.submit-timeout-ms:5000}") long submitTimeoutMillis) {
+        if (workerCount < 1 || queueCapacity < 1 || maxMessagesPerConnection < 1) {
+            throw new IllegalArgumentException("Mail delivery workers, queue capacity and messages per connection must be at least 1");
+        }
+        this.mailSender = mailSender;
+        this.workerCount = workerCount;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(new Worker(), "mail-delivery-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        DeliveryJob job;
+        while ((job = queue.poll()) != null) {
+            job.completion.completeExceptionally(new RejectedExecutionException("Mail delivery engine stopped"));
+        }
+    }
+
+    /**
+     * Queue a message for delivery to all of its recipients. If the queue is full the caller
+     * waits up to {@code mail.delivery.submit-timeout-ms} before the message is rejected.
+     *
+     * @param message The message to send.
+     * @return A future completed once the message has been accepted by the SMTP server for
+     *         every recipient. Cancelling it drops the message if no worker has taken it yet.
+     */
+    public CompletableFuture<Void> submit(MimeMessage message) {
+        CompletableFuture<Set<String>> job = submit(message, null);
+        return cancelling(job.thenAccept(rejected -> {
+            if (!rejected.isEmpty()) {
+                throw new CompletionException(new SendFailedException("Recipients rejected: " + rejected));
+            }
+        }), List.of(job));
+    }
+
+    /**
+     * Make a future derived from queued messages cancel them when it is cancelled itself;
+     * cancelling a dependent stage does not reach the futures it depends on.
+     *
+     * @param stage The derived future.
+     * @param jobs  The futures of the queued messages.
+     * @return The derived future.
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<T> stage, List<? extends CompletableFuture<?>> jobs) {
+        stage.whenComplete((result, error) -> {
+            if (stage.isCancelled()) {
+                jobs.forEach(job -> job.cancel(false));
+            }
+        });
+        return stage;
+    }
+
+    /**
+     * Queue a message for delivery to an explicit envelope, sent as one SMTP transaction with
+     * one {@code RCPT TO} per recipient. The recipients need not appear in the headers, which
+     * is how one body is sent to many users without disclosing their addresses.
+     *
+     * Recipients rejected by the server do not fail the others: the message is sent again to
+     * the remaining valid recipients if the server did not accept it for them, and the rejected
+     * addresses are reported.
+     *
+     * @param message    The message to send.
+     * @param recipients Envelope recipients, or null for the recipients of the message headers.
+     * @return A future completed with the rejected addresses once the message has been accepted
+     *         for all other recipients, or failed if it could not be sent to any of them.
+     *         Cancelling it drops the message if no worker has taken it yet.
+     */
+    public CompletableFuture<Set<String>> submit(MimeMessage message, Address[] recipients) {
+        CompletableFuture<Set<String>> completion = new CompletableFuture<>();
+        if (!running) {
+            completion.completeExceptionally(new RejectedExecutionException("Mail delivery engine is not running"));
+            return completion;
+        }
+        try {
+            if (!queue.offer(new DeliveryJob(message, recipients, completion), submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                completion.completeExceptionally(new RejectedExecutionException("Mail delivery queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion.completeExceptionally(e);
+        }
+        return completion;
+    }
+
+    public int queuedMessages() {
+        return queue.size();
+    }
+
+    private record DeliveryJob(MimeMessage message, Address[] recipients, CompletableFuture<Set<String>> completion) {
+    }
+
+    private class Worker implements Runnable {
+
+        private Transport transport;
+        private int sentOnConnection;
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    DeliveryJob job = queue.take();
+                    // Cancelled by the sender, e.g. past its fan-out deadline
+                    if (!job.completion().isDone()) {
+                        deliver(job);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void deliver(DeliveryJob job) {
+            try {
+                MimeMessage message = job.message();
+                if (message.getSentDate() == null) {
+                    message.setSentDate(new Date());
+                }
+                message.saveChanges();
+                Address[] recipients = job.recipients() != null ? job.recipients() : message.getAllRecipients();
+
+                Set<String> rejected = new LinkedHashSet<>();
+                try {
+                    sendPartial(message, recipients, rejected);
+                } catch (MessagingException e) {
+                    if (e instanceof SendFailedException) {
+                        throw e;
+                    }
+                    // The pooled connection may have been dropped by the server: retry once on a fresh one
+                    disconnect();
+                    rejected.clear();
+                    sendPartial(message, recipients, rejected);
+                }
+                job.completion().complete(rejected);
+            } catch (Exception e) {
+                disconnect();
+                job.completion().completeExceptionally(e);
+            }
+        }
+
+        // Sends to every recipient the server accepts and collects the ones it rejects. Without
+        // mail.smtp.sendpartial the server aborts the whole transaction on a bad recipient, so the
+        // message is sent once more to the valid recipients that did not get it.
+        private void sendPartial(MimeMessage message, Address[] recipients, Set<String> rejected) throws MessagingException {
+            try {
+                send(message, recipients);
+            } catch (SendFailedException e) {
+                Address[] invalid = e.getInvalidAddresses();
+                Address[] validUnsent = e.getValidUnsentAddresses();
+                Address[] validSent = e.getValidSentAddresses();
+                boolean partial = (invalid != null && invalid.length > 0)
+                        && ((validSent != null && validSent.length > 0) || (validUnsent != null && validUnsent.length > 0));
+                if (!partial) {
+                    throw e;
+                }
+                for (Address address : invalid) {
+                    rejected.add(addressOf(address));
+                }
+                if (validUnsent != null && validUnsent.length > 0) {
+                    try {
+                        send(message, validUnsent);
+                    } catch (SendFailedException retry) {
+                        for (Address address : validUnsent) {
+                            rejected.add(addressOf(address));
+                        }
+                    }
+                }
+            }
+        }
+
+        // The bare address, as callers passed it: toString() may add a personal name or quoting
+        private String addressOf(Address address) {
+            return address instanceof InternetAddress internetAddress ? internetAddress.getAddress() : address.toString();
+        }
+
+        private void send(MimeMessage message, Address[] recipients) throws MessagingException {
+            if (transport == null || sentOnConnection >= maxMessagesPerConnection) {
+                connect();
+            }
+            transport.sendMessage(message, recipients);
+            sentOnConnection++;
+        }
+
+        private void connect() throws MessagingException {
+            disconnect();
+            String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+            Transport fresh = mailSender.getSession().getTransport(protocol);
+            fresh.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            transport = fresh;
+            sentOnConnection = 0;
+        }
+
+        private void disconnect() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    // The connection is being discarded either way
+                }
+                transport = null;
+            }
+        }
+    }
+}
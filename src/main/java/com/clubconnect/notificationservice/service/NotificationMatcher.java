@@ -0,0 +1,180 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.Subscription;
+
+@Service
+public class NotificationMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationMatcher.class);
+
+    private final SubscriptionService subscriptionService;
+    private final NotificationMetrics metrics;
+
+    public NotificationMatcher(SubscriptionService subscriptionService, NotificationMetrics metrics) {
+        this.subscriptionService = subscriptionService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Resolve the recipients of a batch of events in one pass. Events with the same club, tags
+     * and audience expression share one audience resolution, which is common during bursts of
+     * related events, and the distinct audiences are looked up concurrently. A lookup that fails
+     * only fails the events sharing its audience, so the rest of the batch can still be handled.
+     *
+     * @param events The events of the batch.
+     * @return The recipients of every event, in the order of the events, each as a completed
+     *         future that holds the failure of its lookup, if any.
+     */
+    public List<CompletableFuture<List<Recipient>>> matchAll(List<NotificationEvent> events) {
+        long start = metrics.start();
+        Map<List<String>, CompletableFuture<Collection<Subscription>>> lookups = new HashMap<>();
+        List<List<String>> keys = new ArrayList<>(events.size());
+        events.forEach(event -> {
+            List<String> audienceKey = new ArrayList<>();
+            audienceKey.add(event.getAudience());
+            audienceKey.add(event.getClubId());
+            audienceKey.addAll(event.getTags());
+            keys.add(audienceKey);
+            lookups.computeIfAbsent(audienceKey, key -> lookup(event));
+        });
+
+        // The lookups run concurrently: the batch spends one load, measured until all completed
+        CompletableFuture.allOf(lookups.values().toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+        metrics.record(NotificationMetrics.LOAD, start);
+
+        Map<List<String>, CompletableFuture<List<Recipient>>> audiences = new HashMap<>();
+        List<CompletableFuture<List<Recipient>>> results = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            NotificationEvent event = events.get(i);
+            results.add(audiences.computeIfAbsent(keys.get(i), key -> lookups.get(key).thenApply(
+                    subscriptions -> toRecipients(event.getClubId(), event.getTags(), audienceOf(event), subscriptions))));
+        }
+        return results;
+    }
+
+    // A lookup that throws instead of returning a failed future fails only its own events
+    private CompletableFuture<Collection<Subscription>> lookup(NotificationEvent event) {
+        try {
+            return event.getAudience() != null
+                    ? subscriptionService.findSubscriptionsForAudienceAsync(AudienceExpression.parse(event.getAudience()))
+                    : subscriptionService.findSubscriptionsForEventAsync(event.getClubId(), event.getTags());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Resolve the recipients of an event. All the subscriptions of a user matching the event's
+     * club or any of its tags are coalesced into a single recipient listing every reason it
+     * matched, so each user gets at most one notification per event. When the subscriptions
+     * disagree on the digest preference, the most urgent one wins.
+     *
+     * @param clubId The ID of the club publishing the event.
+     * @param tags   The tags of the event.
+     * @return The recipients of the event, one per user.
+     */
+    public List<Recipient> match(String clubId, List<String> tags) {
+        long start = metrics.start();
+        Collection<Subscription> subscriptions = subscriptionService.findSubscriptionsForEvent(clubId, tags);
+        metrics.record(NotificationMetrics.LOAD, start);
+        return toRecipients(clubId, tags, null, subscriptions);
+    }
+
+    /**
+     * Resolve the recipients of an event addressed to an audience expression instead of the
+     * followers of its club and tags. Every user the expression selects is a recipient; the
+     * reasons listed are the event's club and tags, and those of the expression, that the
+     * user's subscriptions carry.
+     *
+     * @param clubId   The ID of the club publishing the event.
+     * @param tags     The tags of the event.
+     * @param audience The audience expression, see {@link AudienceExpression}.
+     * @return The recipients of the event, one per user.
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    public List<Recipient> matchAudience(String clubId, List<String> tags, String audience) {
+        AudienceExpression expression = AudienceExpression.parse(audience);
+        long start = metrics.start();
+        Collection<Subscription> subscriptions = subscriptionService.findSubscriptionsForAudienceAsync(expression).join();
+        metrics.record(NotificationMetrics.LOAD, start);
+        return toRecipients(clubId, tags, expression, subscriptions);
+    }
+
+    private List<Recipient> toRecipients(String clubId, List<String> tags, AudienceExpression audience,
+                                         Collection<Subscription> matchingSubscriptions) {
+        long start = metrics.start();
+        try {
+            List<String> clubIds = new ArrayList<>();
+            if (clubId != null) {
+                clubIds.add(clubId);
+            }
+            if (audience == null) {
+                return coalesce(clubIds, tags, matchingSubscriptions, false);
+            }
+            List<String> reasonTags = new ArrayList<>(tags);
+            AudienceExpression.selectingTerms(audience, clubIds, reasonTags);
+            return coalesce(clubIds, reasonTags.stream().distinct().toList(), matchingSubscriptions, true);
+        } finally {
+            metrics.record(NotificationMetrics.MATCH, start);
+        }
+    }
+
+    private static AudienceExpression audienceOf(NotificationEvent event) {
+        return event.getAudience() != null ? AudienceExpression.parse(event.getAudience()) : null;
+    }
+
+    // With selected, every user of the subscriptions is a recipient even without a matching reason
+    private List<Recipient> coalesce(List<String> clubIds, List<String> tags, Collection<Subscription> matchingSubscriptions,
+                                     boolean selected) {
+        Map<String, Recipient> recipients = new LinkedHashMap<>();
+        matchingSubscriptions.forEach(subscription -> {
+            String subscriptionId = subscription.subscriptionId();
+            String userId = subscription.userId();
+            if (userId == null || userId.isEmpty()) {
+                log.warn("No userId found for subscription ID: {}. Skipping.", subscriptionId);
+                return;
+            }
+
+            boolean clubMatch = subscription.clubId() != null && clubIds.contains(subscription.clubId());
+            List<String> matchedTags = tags.stream().filter(subscription.tags()::contains).toList();
+            if (!selected && !clubMatch && matchedTags.isEmpty()) {
+                return;
+            }
+
+            Recipient recipient = recipients.computeIfAbsent(userId,
+                    id -> new Recipient(id, new ArrayList<>(), false, new ArrayList<>(), null));
+            if (subscriptionId != null && !recipient.getSubscriptionIds().contains(subscriptionId)) {
+                recipient.getSubscriptionIds().add(subscriptionId);
+            }
+            recipient.setClub(recipient.isClub() || clubMatch);
+            recipient.setDigest(DigestMode.mostUrgent(recipient.getDigest(), subscription.digestOrDefault()));
+            matchedTags.forEach(tag -> {
+                if (!recipient.getTags().contains(tag)) {
+                    recipient.getTags().add(tag);
+                }
+            });
+        });
+
+        // Keep matched tags in the order the event lists them
+        recipients.values().forEach(recipient -> recipient.setTags(
+                tags.stream().filter(recipient.getTags()::contains).distinct().toList()));
+        return new ArrayList<>(recipients.values());
+    }
+}
@@ -0,0 +1,113 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Metrics of the notification pipeline.
+ *
+ * <ul>
+ *   <li>{@code notification.stage}: one timer per stage, tagged {@code stage}. The event stages
+ *   are parse, load (reading the audience), match, publish (delivery tasks). The delivery
+ *   stages are lookup (emails), render and send (until accepted by SMTP).</li>
+ *   <li>{@code notification.events}: events handled, tagged {@code outcome}.</li>
+ *   <li>{@code notification.emails}: recipients handled, tagged {@code outcome}.</li>
+ *   <li>{@code notification.consumer.active}: listener invocations in progress, tagged {@code queue}.</li>
+ * </ul>
+ */
+@Component
+public class NotificationMetrics {
+
+    public static final String PARSE = "parse";
+    public static final String LOAD = "load";
+    public static final String MATCH = "match";
+    public static final String PUBLISH = "publish";
+    public static final String LOOKUP = "lookup";
+    public static final String RENDER = "render";
+    public static final String SEND = "send";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stages = new ConcurrentHashMap<>();
+    private final Map<String, Counter> events = new ConcurrentHashMap<>();
+    private final Map<String, Counter> emails = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeConsumers = new ConcurrentHashMap<>();
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Start timing a stage.
+     *
+     * @return The start time, to pass to {@link #record(String, long)}.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the duration of a stage.
+     *
+     * @param stage      The stage.
+     * @param startNanos The start time returned by {@link #start()}.
+     */
+    public void record(String stage, long startNanos) {
+        stages.computeIfAbsent(stage, name -> Timer.builder("notification.stage")
+                        .description("Duration of each stage of the notification pipeline")
+                        .tag("stage", name)
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count handled events.
+     *
+     * @param outcome e.g. dispatched, invalid or failed.
+     * @param count   Number of events.
+     */
+    public void events(String outcome, int count) {
+        events.computeIfAbsent(outcome, name -> Counter.builder("notification.events")
+                        .tag("outcome", name)
+                        .register(registry))
+                .increment(count);
+    }
+
+    /**
+     * Count handled recipients.
+     *
+     * @param outcome e.g. sent, failed, no_email or digest.
+     * @param count   Number of recipients.
+     */
+    public void emails(String outcome, int count) {
+        emails.computeIfAbsent(outcome, name -> Counter.builder("notification.emails")
+                        .tag("outcome", name)
+                        .register(registry))
+                .increment(count);
+    }
+
+    /**
+     * The number of listener invocations in progress on a queue, exported as a gauge.
+     *
+     * @param queue The queue.
+     * @return The counter to increment and decrement around each invocation.
+     */
+    public AtomicInteger activeConsumers(String queue) {
+        return activeConsumers.computeIfAbsent(queue, name -> {
+            AtomicInteger active = new AtomicInteger();
+            Gauge.builder("notification.consumer.active", active, AtomicInteger::get)
+                    .description("Listener invocations in progress")
+                    .tag("queue", name)
+                    .register(registry);
+            return active;
+        });
+    }
+}
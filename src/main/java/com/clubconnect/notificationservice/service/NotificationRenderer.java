@@ -0,0 +1,69 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+/**
+ * Renders event notifications from the compiled templates.
+ *
+ * A notification depends only on the event and on why the recipient matched it, not on who
+ * the recipient is. So all followers of a club, or all users matching the same tags, share one
+ * rendering. Renderings are kept in a small LRU cache keyed by event and match reasons, which
+ * spans the delivery tasks of an event. Each distinct body is rendered about once per event
+ * rather than once per recipient.
+ */
+@Component
+public class NotificationRenderer {
+
+    private final TemplateEngine templateEngine;
+    private final Map<RenderKey, RenderedMessage> cache;
+
+    public NotificationRenderer(TemplateEngine templateEngine,
+                                @Value("${notification.templates.render-cache-size:1024}") int cacheSize) {
+        this.templateEngine = templateEngine;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RenderKey, RenderedMessage> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Render the notification of an event for a recipient.
+     *
+     * @param recipient The recipient, with the reasons it matched.
+     * @param eventId   The ID of the event.
+     * @param clubId    The ID of the club publishing the event.
+     * @param tags      The tags of the event.
+     * @return The rendered message, shared with every recipient that matched the same way.
+     */
+    public RenderedMessage render(Recipient recipient, String eventId, String clubId, List<String> tags) {
+        List<String> matchedTags = recipient.getTags() != null ? recipient.getTags() : List.of();
+        RenderKey key = new RenderKey(eventId, clubId, tags, recipient.isClub(), matchedTags);
+        // Rendering is a few microseconds, so it is done under the lock and each key is rendered once
+        synchronized (cache) {
+            return cache.computeIfAbsent(key, k -> k.club()
+                    ? templateEngine.render("club", Map.of(
+                            "clubId", String.valueOf(clubId),
+                            "eventId", String.valueOf(eventId),
+                            "tags", tags.isEmpty() ? "None" : String.join(", ", tags),
+                            "interests", String.join(", ", matchedTags)))
+                    : templateEngine.render("tag", Map.of(
+                            "clubId", String.valueOf(clubId),
+                            "eventId", String.valueOf(eventId),
+                            "interests", matchedTags.stream().map(tag -> "'" + tag + "'").collect(Collectors.joining(", ")))));
+        }
+    }
+
+    private record RenderKey(String eventId, String clubId, List<String> tags, boolean club, List<String> matchedTags) {
+    }
+}
@@ -0,0 +1,151 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * A notification template compiled once into literal and placeholder parts.
+ *
+ * Placeholders are written {@code {{name}}}. A section {@code {{#name}}...{{/name}}} is only
+ * rendered when {@code name} has a non-empty value; when the value is a list of value maps, the
+ * section is rendered once per item, with the item's values added to the outer ones. In HTML
+ * templates placeholder values are
+ * escaped; literal text is copied as is. Rendering is a single pass over the parts, with no
+ * regular expressions.
+ */
+public final class NotificationTemplate {
+
+    private final String name;
+    private final boolean html;
+    private final List<Part> parts;
+    private final int literalLength;
+
+    private NotificationTemplate(String name, boolean html, List<Part> parts) {
+        this.name = name;
+        this.html = html;
+        this.parts = parts;
+        this.literalLength = literalLength(parts);
+    }
+
+    /**
+     * Compile a template.
+     *
+     * @param name   Name of the template, used in error messages.
+     * @param source Template text.
+     * @param html   Whether placeholder values must be HTML-escaped.
+     * @return The compiled template.
+     * @throws IllegalArgumentException if a placeholder or section is not closed.
+     */
+    public static NotificationTemplate compile(String name, String source, boolean html) {
+        List<List<Part>> stack = new ArrayList<>();
+        List<String> open = new ArrayList<>();
+        List<Part> current = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf("{{", position);
+            if (start < 0) {
+                current.add(new Literal(source.substring(position)));
+                break;
+            }
+            if (start > position) {
+                current.add(new Literal(source.substring(position, start)));
+            }
+            int end = source.indexOf("}}", start + 2);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template " + name + " at offset " + start);
+            }
+            String tag = source.substring(start + 2, end).trim();
+            if (tag.startsWith("#")) {
+                stack.add(current);
+                open.add(tag.substring(1).trim());
+                current = new ArrayList<>();
+            } else if (tag.startsWith("/")) {
+                String section = tag.substring(1).trim();
+                if (open.isEmpty() || !open.get(open.size() - 1).equals(section)) {
+                    throw new IllegalArgumentException("Unexpected end of section " + section + " in template " + name);
+                }
+                List<Part> body = current;
+                current = stack.remove(stack.size() - 1);
+                current.add(new Section(open.remove(open.size() - 1), List.copyOf(body)));
+            } else {
+                current.add(new Placeholder(tag));
+            }
+            position = end + 2;
+        }
+        if (!open.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed section " + open.get(open.size() - 1) + " in template " + name);
+        }
+        return new NotificationTemplate(name, html, List.copyOf(current));
+    }
+
+    /**
+     * Render the template. Missing values render as empty.
+     *
+     * @param values Placeholder values: strings, or lists of value maps for repeated sections.
+     * @return The rendered text.
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + 16 * values.size());
+        render(parts, values, out);
+        return out.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    private void render(List<Part> parts, Map<String, ?> values, StringBuilder out) {
+        for (Part part : parts) {
+            if (part instanceof Literal literal) {
+                out.append(literal.text());
+            } else if (part instanceof Placeholder placeholder) {
+                if (values.get(placeholder.name()) instanceof String value) {
+                    out.append(html ? HtmlUtils.htmlEscape(value) : value);
+                }
+            } else if (part instanceof Section section) {
+                Object value = values.get(section.name());
+                if (value instanceof List<?> items) {
+                    for (Object item : items) {
+                        Map<String, Object> itemValues = new HashMap<>(values);
+                        ((Map<?, ?>) item).forEach((name, itemValue) -> itemValues.put(String.valueOf(name), itemValue));
+                        render(section.parts(), itemValues, out);
+                    }
+                } else if (value instanceof String text && !text.isEmpty()) {
+                    render(section.parts(), values, out);
+                }
+            }
+        }
+    }
+
+    private static int literalLength(List<Part> parts) {
+        int length = 0;
+        for (Part part : parts) {
+            if (part instanceof Literal literal) {
+                length += literal.text().length();
+            } else if (part instanceof Section section) {
+                length += literalLength(section.parts());
+            }
+        }
+        return length;
+    }
+
+    private sealed interface Part permits Literal, Placeholder, Section {
+    }
+
+    private record Literal(String text) implements Part {
+    }
+
+    private record Placeholder(String name) implements Part {
+    }
+
+    private record Section(String name, List<Part> parts) implements Part {
+    }
+}
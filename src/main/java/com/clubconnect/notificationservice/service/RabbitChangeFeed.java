@@ -0,0 +1,79 @@
+package com.clubconnect.notificationservice.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.model.SubscriptionChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link ChangeFeed} over a RabbitMQ fanout exchange.
+ *
+ * Every node consumes from its own uniquely named queue bound to the exchange, see
+ * {@link RabbitMQConfig}. The queue is exclusive and deleted with the connection, so changes
+ * published while a node is disconnected are lost to it; the gap shows in the sequence of the
+ * next change or heartbeat. A single consumer keeps the changes of each origin in order.
+ */
+@Component
+@ConditionalOnProperty(name = "subscriptions.change-feed.mode", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitChangeFeed implements ChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(RabbitChangeFeed.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Consumer<SubscriptionChange>> listeners = new CopyOnWriteArrayList<>();
+
+    public RabbitChangeFeed(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @Override
+    public void publish(SubscriptionChange change) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.CHANGE_EXCHANGE_NAME, "", objectMapper.writeValueAsString(change));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<SubscriptionChange> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Hand a change received from the exchange to the listeners. Changes received before the
+     * first listener subscribed are dropped: they are covered by the index load that follows.
+     *
+     * @param message The change, as JSON.
+     */
+    @RabbitListener(queues = "#{subscriptionChangeQueue.name}", concurrency = "1")
+    public void receiveChange(String message) {
+        SubscriptionChange change;
+        try {
+            change = objectMapper.readValue(message, SubscriptionChange.class);
+        } catch (IOException e) {
+            // Dropped rather than requeued forever; the gap is detected with the next change
+            log.warn("Dropping malformed subscription change: {}", e.getMessage());
+            return;
+        }
+        try {
+            listeners.forEach(listener -> listener.accept(change));
+        } catch (RuntimeException e) {
+            log.error("Could not apply subscription change {}/{}: {}", change.origin(), change.sequence(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import com.clubconnect.notificationservice.model.Subscription;
+
+/**
+ * In-memory inverted index over the Subscriptions table.
+ *
+ * Users are interned to dense int IDs, and every club and tag has a compressed bitmap of the
+ * users with a subscription to it. An event's audience is the OR of the bitmaps of its club
+ * and tags; an {@link AudienceExpression} maps to OR, AND and ANDNOT. Only the subscriptions
+ * of the resulting users are then materialized, so the cost is proportional to the number
+ * of matches and the postings stay a few bytes per user.
+ *
+ * A user is muted when one of their subscriptions has the {@code muted} preference. Muted
+ * users can be excluded from an audience expression with {@code MINUS muted}.
+ *
+ * Reads share a read lock; writes are serialized under the write lock. User IDs are not
+ * reused once allocated; a reload builds a fresh index.
+ */
+public class SubscriptionIndex {
+
+    public static final String MUTED_PREFERENCE = "muted";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> userIds = new HashMap<>();
+    private final List<List<Subscription>> byUser = new ArrayList<>();
+    private final Map<String, RoaringBitmap> byClub = new HashMap<>();
+    private final Map<String, RoaringBitmap> byTag = new HashMap<>();
+    private final RoaringBitmap muted = new RoaringBitmap();
+    private int size;
+
+    /**
+     * Insert or replace a subscription. The last writer wins: a copy with a lower version than
+     * the indexed one is stale and ignored. Copies without a version, read from items written
+     * before writes were versioned, always replace the indexed copy.
+     *
+     * @param subscription The subscription, with its userId and subscriptionId.
+     * @return Whether the subscription was indexed.
+     */
+    public boolean put(Subscription subscription) {
+        lock.writeLock().lock();
+        try {
+            int user = userIds.computeIfAbsent(userKey(subscription.userId()), key -> {
+                byUser.add(new ArrayList<>(1));
+                return byUser.size() - 1;
+            });
+            List<Subscription> subscriptions = byUser.get(user);
+            Postings before = Postings.of(subscriptions);
+            int previous = indexOf(subscriptions, subscription.subscriptionId());
+            if (previous >= 0) {
+                if (isOlder(subscription, subscriptions.get(previous))) {
+                    return false;
+                }
+                subscriptions.set(previous, subscription);
+            } else {
+                subscriptions.add(subscription);
+                size++;
+            }
+            repost(user, before, Postings.of(subscriptions));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isOlder(Subscription candidate, Subscription indexed) {
+        return candidate.version() != null && indexed.version() != null && candidate.version() < indexed.version();
+    }
+
+    /**
+     * Remove a subscription.
+     *
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     */
+    public void remove(String userId, String subscriptionId) {
+        lock.writeLock().lock();
+        try {
+            Integer user = userIds.get(userKey(userId));
+            if (user != null) {
+                removeFrom(user, subscriptionId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every subscription with the given ID, regardless of the owning user.
+     *
+     * @param subscriptionId The ID of the subscription.
+     */
+    public void removeBySubscriptionId(String subscriptionId) {
+        lock.writeLock().lock();
+        try {
+            for (int user = 0; user < byUser.size(); user++) {
+                removeFrom(user, subscriptionId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the subscriptions following a club.
+     *
+     * @param clubId The ID of the club.
+     * @return The matching subscriptions.
+     */
+    public List<Subscription> findByClub(String clubId) {
+        if (clubId == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return collect(byClub.get(clubId), subscription -> clubId.equals(subscription.clubId()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the subscriptions interested in a tag.
+     *
+     * @param tag The tag.
+     * @return The matching subscriptions.
+     */
+    public List<Subscription> findByTag(String tag) {
+        if (tag == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return collect(byTag.get(tag), subscription -> subscription.tags().contains(tag));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the subscriptions matching an event, each subscription appearing at most once.
+     *
+     * @param clubId The ID of the club publishing the event.
+     * @param tags   The tags of the event.
+     * @return The matching subscriptions.
+     */
+    public Collection<Subscription> findForEvent(String clubId, Collection<String> tags) {
+        Set<String> eventTags = new HashSet<>();
+        if (tags != null) {
+            tags.forEach(tag -> {
+                if (tag != null) {
+                    eventTags.add(tag);
+                }
+            });
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap users = new RoaringBitmap();
+            if (clubId != null) {
+                or(users, byClub.get(clubId));
+            }
+            eventTags.forEach(tag -> or(users, byTag.get(tag)));
+            return collect(users, subscription -> (clubId != null && clubId.equals(subscription.clubId()))
+                    || containsAny(subscription.tags(), eventTags));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get every subscription of the users selected by an audience expression. Users are only
+     * known to the index through their subscriptions, so a {@code user:} term naming a user
+     * without any selects nobody.
+     *
+     * @param audience The audience expression.
+     * @return The subscriptions of the selected users.
+     */
+    public Collection<Subscription> findForAudience(AudienceExpression audience) {
+        lock.readLock().lock();
+        try {
+            return collect(evaluate(audience), subscription -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the users selected by an audience expression, without materializing them.
+     *
+     * @param audience The audience expression.
+     * @return The number of users.
+     */
+    public int countAudience(AudienceExpression audience) {
+        lock.readLock().lock();
+        try {
+            return evaluate(audience).getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns a bitmap owned by the caller: the postings themselves are never handed out
+    private RoaringBitmap evaluate(AudienceExpression expression) {
+        if (expression instanceof AudienceExpression.Club club) {
+            return copy(byClub.get(club.clubId()));
+        } else if (expression instanceof AudienceExpression.Tag tag) {
+            return copy(byTag.get(tag.tag()));
+        } else if (expression instanceof AudienceExpression.User user) {
+            Integer id = userIds.get(userKey(user.userId()));
+            return id != null ? RoaringBitmap.bitmapOf(id) : new RoaringBitmap();
+        } else if (expression instanceof AudienceExpression.Muted) {
+            return muted.clone();
+        } else if (expression instanceof AudienceExpression.Or or) {
+            RoaringBitmap result = evaluate(or.left());
+            result.or(evaluate(or.right()));
+            return result;
+        } else if (expression instanceof AudienceExpression.And and) {
+            RoaringBitmap result = evaluate(and.left());
+            if (!result.isEmpty()) {
+                result.and(evaluate(and.right()));
+            }
+            return result;
+        } else if (expression instanceof AudienceExpression.Minus minus) {
+            RoaringBitmap result = evaluate(minus.left());
+            if (!result.isEmpty()) {
+                result.andNot(evaluate(minus.right()));
+            }
+            return result;
+        }
+        throw new IllegalArgumentException("Unsupported audience expression: " + expression);
+    }
+
+    private void removeFrom(int user, String subscriptionId) {
+        List<Subscription> subscriptions = byUser.get(user);
+        int position = indexOf(subscriptions, subscriptionId);
+        if (position < 0) {
+            return;
+        }
+        Postings before = Postings.of(subscriptions);
+        subscriptions.remove(position);
+        size--;
+        repost(user, before, Postings.of(subscriptions));
+    }
+
+    // A user is posted under a term while any of their subscriptions carries it
+    private void repost(int user, Postings before, Postings after) {
+        before.clubs().forEach(clubId -> {
+            if (!after.clubs().contains(clubId)) {
+                unpost(byClub, clubId, user);
+            }
+        });
+        after.clubs().forEach(clubId -> byClub.computeIfAbsent(clubId, key -> new RoaringBitmap()).add(user));
+        before.tags().forEach(tag -> {
+            if (!after.tags().contains(tag)) {
+                unpost(byTag, tag, user);
+            }
+        });
+        after.tags().forEach(tag -> byTag.computeIfAbsent(tag, key -> new RoaringBitmap()).add(user));
+        if (after.muted()) {
+            muted.add(user);
+        } else {
+            muted.remove(user);
+        }
+    }
+
+    private static void unpost(Map<String, RoaringBitmap> postings, String term, int user) {
+        RoaringBitmap users = postings.get(term);
+        if (users != null) {
+            users.remove(user);
+            if (users.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private List<Subscription> collect(RoaringBitmap users, Predicate<Subscription> filter) {
+        if (users == null) {
+            return List.of();
+        }
+        List<Subscription> result = new ArrayList<>(users.getCardinality());
+        users.forEach((int user) -> byUser.get(user).forEach(subscription -> {
+            if (filter.test(subscription)) {
+                result.add(subscription);
+            }
+        }));
+        return result;
+    }
+
+    private static void or(RoaringBitmap target, RoaringBitmap users) {
+        if (users != null) {
+            target.or(users);
+        }
+    }
+
+    private static boolean containsAny(Set<String> tags, Set<String> eventTags) {
+        for (String tag : eventTags) {
+            if (tags.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RoaringBitmap copy(RoaringBitmap users) {
+        return users != null ? users.clone() : new RoaringBitmap();
+    }
+
+    private static int indexOf(List<Subscription> subscriptions, String subscriptionId) {
+        for (int i = 0; i < subscriptions.size(); i++) {
+            if (String.valueOf(subscriptions.get(i).subscriptionId()).equals(String.valueOf(subscriptionId))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String userKey(String userId) {
+        return userId == null ? "" : userId;
+    }
+
+    // The terms a user is posted under, derived from all of their subscriptions
+    private record Postings(Set<String> clubs, Set<String> tags, boolean muted) {
+
+        static Postings of(List<Subscription> subscriptions) {
+            Set<String> clubs = new HashSet<>();
+            Set<String> tags = new HashSet<>();
+            boolean muted = false;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.clubId() != null && !subscription.clubId().isEmpty()) {
+                    clubs.add(subscription.clubId());
+                }
+                tags.addAll(subscription.tags());
+                muted |= MUTED_PREFERENCE.equalsIgnoreCase(subscription.preferences());
+            }
+            return new Postings(clubs, tags, muted);
+        }
+    }
+}
@@ -1,37 +1,343 @@
 package com.clubconnect.notificationservice.service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.clubconnect.notificationservice.model.BulkWriteResult;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.model.SubscriptionChange;
+import com.clubconnect.notificationservice.model.SubscriptionPage;
+import com.clubconnect.notificationservice.repository.AsyncSubscriptionRepository;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
 import com.clubconnect.notificationservice.repository.SubscriptionRepository;
+import com.clubconnect.notificationservice.repository.SubscriptionUpdate;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+/**
+ * Subscriptions, served from DynamoDB and from an in-memory {@link SubscriptionIndex}.
+ *
+ * Every node keeps its own index. Writes made through this service update the local index
+ * and are broadcast on the {@link ChangeFeed}, from which the other nodes apply them, so
+ * matching never reads the table. Each node numbers its changes; a receiver keeps the last
+ * sequence applied per origin as its checkpoint. A change or heartbeat skipping past the
+ * checkpoint means changes were lost, and the index is rebuilt from the table.
+ *
+ * Changes from different nodes can arrive in any order, so a subscription only replaces the
+ * indexed copy if its version is not lower (see {@link SubscriptionIndex#put(Subscription)}).
+ * Local writes made while the index is rebuilt are replayed onto the fresh index before it
+ * is swapped in, as the scan may have read the table before them.
+ */
 @Service
 public class SubscriptionService {
 
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionService.class);
+
     private final SubscriptionRepository subscriptionRepository;
+    private final AsyncSubscriptionRepository asyncSubscriptionRepository;
+    private final ChangeFeed changeFeed;
+
+    private volatile SubscriptionIndex index = new SubscriptionIndex();
+    private volatile boolean indexLoaded = false;
+    // Local index writes and the swap of a rebuilt index are serialized under indexWriteLock
+    private final Object indexWriteLock = new Object();
+    // Local writes made during a rebuild, to replay onto the fresh index; null when no rebuild
+    // is running. Guarded by indexWriteLock
+    private List<Consumer<SubscriptionIndex>> pendingWrites;
+
+    // Changes published by this node, numbered from 1 under an origin unique to the process
+    private final String origin = UUID.randomUUID().toString();
+    private long sequence;
+    private final Object publishLock = new Object();
+    // Last sequence applied per origin; written while holding this, read without locking
+    private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Load the index once the application is ready; when off, events are matched through the
+    // table until something loads it
+    @Value("${subscriptions.index.load-at-startup:true}")
+    private boolean loadIndexAtStartup = true;
+
+    // Write the tag memberships of subscriptions stored before the membership table existed
+    @Value("${subscriptions.tag-memberships.backfill:false}")
+    private boolean backfillTagMemberships = false;
 
-    public SubscriptionService(SubscriptionRepository subscriptionRepository) {
+    public SubscriptionService(SubscriptionRepository subscriptionRepository,
+                               AsyncSubscriptionRepository asyncSubscriptionRepository) {
+        this(subscriptionRepository, asyncSubscriptionRepository, new LocalChangeFeed());
+    }
+
+    @Autowired
+    public SubscriptionService(SubscriptionRepository subscriptionRepository,
+                               AsyncSubscriptionRepository asyncSubscriptionRepository,
+                               ChangeFeed changeFeed) {
         this.subscriptionRepository = subscriptionRepository;
+        this.asyncSubscriptionRepository = asyncSubscriptionRepository;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Start following the change feed, then load the subscription index. Loading after the
+     * feed is attached means every write is either in the scan or delivered afterwards. If
+     * DynamoDB is unreachable the service still starts, and the index is loaded lazily on
+     * first use instead. With {@code subscriptions.index.load-at-startup} off, the index is not
+     * loaded here either. When enabled, the tag memberships are backfilled afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndex() {
+        changeFeed.subscribe(this::applyChange);
+        if (loadIndexAtStartup) {
+            try {
+                reloadIndex();
+            } catch (Exception e) {
+                log.error("Could not load subscription index at startup: {}", e.getMessage());
+            }
+        }
+        if (backfillTagMemberships) {
+            try {
+                log.info("Backfilled {} tag memberships", subscriptionRepository.backfillTagMemberships());
+            } catch (Exception e) {
+                log.error("Could not backfill tag memberships: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuild the subscription index from the table and swap it in. Local writes are not
+     * blocked by the scan; those made while it runs are recorded and replayed before the swap.
+     *
+     * The checkpoints are kept as they were when the scan started: the table already held the
+     * changes they cover, and changes received during the scan wait for it and are checked
+     * against them afterwards, so a change lost meanwhile is still detected. Such a change may
+     * also be in the scan; its version keeps it from overwriting a newer copy.
+     */
+    public synchronized void reloadIndex() {
+        synchronized (indexWriteLock) {
+            pendingWrites = new ArrayList<>();
+        }
+        try {
+            SubscriptionIndex fresh = new SubscriptionIndex();
+            subscriptionRepository.scanSubscriptions(item -> fresh.put(SubscriptionCodec.decode(item)));
+            synchronized (indexWriteLock) {
+                pendingWrites.forEach(write -> write.accept(fresh));
+                index = fresh;
+            }
+            indexLoaded = true;
+            log.info("Subscription index loaded with {} subscriptions", fresh.size());
+        } finally {
+            synchronized (indexWriteLock) {
+                pendingWrites = null;
+            }
+        }
+    }
+
+    /**
+     * Apply a change received from the feed to the index. Changes of this node are already
+     * applied, and changes at or before the checkpoint of their origin are repeats. The first
+     * change or heartbeat of an origin sets its checkpoint; after that, one skipping past the
+     * checkpoint triggers a resync from the table.
+     *
+     * @param change The change.
+     */
+    public synchronized void applyChange(SubscriptionChange change) {
+        if (origin.equals(change.origin())) {
+            return;
+        }
+        Long checkpoint = checkpoints.get(change.origin());
+        if (checkpoint != null && change.sequence() <= checkpoint) {
+            return;
+        }
+        // A heartbeat repeats the last sequence published, a change follows the previous one
+        long expected = change.type() == SubscriptionChange.Type.HEARTBEAT ? change.sequence() : change.sequence() - 1;
+        if (checkpoint != null && checkpoint < expected) {
+            resync(change, checkpoint);
+            return;
+        }
+
+        switch (change.type()) {
+            case PUT -> {
+                if (!index.put(change.subscription())) {
+                    log.debug("Ignored stale version {} of subscription {} from node {}",
+                            change.subscription().version(), change.subscriptionId(), change.origin());
+                }
+            }
+            case DELETE -> {
+                if (change.userId() != null) {
+                    index.remove(change.userId(), change.subscriptionId());
+                } else {
+                    index.removeBySubscriptionId(change.subscriptionId());
+                }
+            }
+            case HEARTBEAT -> { }
+        }
+        checkpoints.put(change.origin(), change.sequence());
+    }
+
+    /**
+     * Broadcast the last sequence published by this node, so the others notice a lost change
+     * even when no write follows it.
+     */
+    @Scheduled(fixedDelayString = "${subscriptions.change-feed.heartbeat-ms:5000}")
+    public void publishHeartbeat() {
+        publish(SubscriptionChange.Type.HEARTBEAT, null, null, null);
+    }
+
+    /**
+     * @return The ID this node publishes its changes under.
+     */
+    public String origin() {
+        return origin;
+    }
+
+    /**
+     * @param origin The ID of a node.
+     * @return The last sequence applied from the node, or null if none was.
+     */
+    public Long checkpoint(String origin) {
+        return checkpoints.get(origin);
+    }
+
+    // The table already holds the change, so the scan covers it and everything before it
+    private void resync(SubscriptionChange change, long checkpoint) {
+        log.warn("Missed subscription changes {} to {} from node {}, reloading the index",
+                checkpoint + 1, change.sequence(), change.origin());
+        try {
+            reloadIndex();
+            checkpoints.put(change.origin(), change.sequence());
+        } catch (RuntimeException e) {
+            // Match through the secondary indexes until a later change retries the reload
+            indexLoaded = false;
+            log.error("Could not reload subscription index: {}", e.getMessage());
+        }
+    }
+
+    private void put(Subscription subscription) {
+        write(target -> target.put(subscription));
+        publish(SubscriptionChange.Type.PUT, subscription.userId(), subscription.subscriptionId(), subscription);
+    }
+
+    private void delete(String userId, String subscriptionId) {
+        write(target -> {
+            if (userId != null) {
+                target.remove(userId, subscriptionId);
+            } else {
+                target.removeBySubscriptionId(subscriptionId);
+            }
+        });
+        publish(SubscriptionChange.Type.DELETE, userId, subscriptionId, null);
+    }
+
+    // Apply a local write to the current index, and record it if a rebuild is running
+    private void write(Consumer<SubscriptionIndex> write) {
+        synchronized (indexWriteLock) {
+            write.accept(index);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        }
+    }
+
+    // Sequences are published in order; a failed publish leaves a gap the other nodes detect
+    private void publish(SubscriptionChange.Type type, String userId, String subscriptionId, Subscription subscription) {
+        synchronized (publishLock) {
+            long next = type == SubscriptionChange.Type.HEARTBEAT ? sequence : ++sequence;
+            try {
+                changeFeed.publish(new SubscriptionChange(origin, next, type, userId, subscriptionId, subscription));
+            } catch (RuntimeException e) {
+                log.warn("Could not publish subscription change {}: {}", next, e.getMessage());
+            }
+        }
+    }
+
+    private SubscriptionIndex index() {
+        if (!indexLoaded) {
+            synchronized (this) {
+                if (!indexLoaded) {
+                    reloadIndex();
+                }
+            }
+        }
+        return index;
     }
 
     /**
      * Add a new subscription.
      *
-     * @param subscriptionId  The ID of the subscription.
-     * @param subscriptions   Map of subscription details (e.g., userId, clubId, tags).
+     * @param subscription The subscription, with its userId and subscriptionId.
      */
-    public void addSubscription(String userId, String subscriptionId, Map<String, String> subscriptions) {
-        subscriptionRepository.addSubscription(userId, subscriptionId, subscriptions);
+    public void addSubscription(Subscription subscription) {
+        put(subscriptionRepository.addSubscription(subscription));
+    }
+
+    /**
+     * Add many subscriptions at once. Invalid entries and entries repeating an earlier key of
+     * the request are rejected individually; the rest are written through BatchWriteItem.
+     *
+     * @param subscriptions Subscriptions, each including its userId and subscriptionId.
+     * @return The outcome of every subscription, in request order.
+     */
+    public List<BulkWriteResult> addSubscriptions(List<Subscription> subscriptions) {
+        List<BulkWriteResult> results = new ArrayList<>(subscriptions.size());
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription subscription = subscriptions.get(i);
+            String userId = subscription.userId();
+            String subscriptionId = subscription.subscriptionId();
+            BulkWriteResult result = new BulkWriteResult(i, userId, subscriptionId, false, null);
+            results.add(result);
+
+            if (userId == null || userId.isEmpty() || subscriptionId == null || subscriptionId.isEmpty()) {
+                result.setError("Both userId and subscriptionId must be provided");
+            } else if (!keys.add(userId + '\u0000' + subscriptionId)) {
+                result.setError("Duplicate subscription in request");
+            } else {
+                items.add(SubscriptionCodec.encode(subscription));
+                positions.add(i);
+            }
+        }
+
+        Map<Integer, String> failures = subscriptionRepository.batchPutSubscriptions(items);
+        for (int i = 0; i < items.size(); i++) {
+            BulkWriteResult result = results.get(positions.get(i));
+            String error = failures.get(i);
+            if (error != null) {
+                result.setError(error);
+            } else {
+                result.setSuccess(true);
+                put(SubscriptionCodec.decode(items.get(i)));
+            }
+        }
+        return results;
     }
 
     /**
@@ -39,15 +345,90 @@ public class SubscriptionService {
      *
      * @param userId         The ID of the user.
      * @param subscriptionId The ID of the subscription.
-     * @return A map of the subscription details.
+     * @return The subscription, or null if it does not exist.
      */
-    public Map<String, AttributeValue> getSubscription(String userId, String subscriptionId) {
+    public Subscription getSubscription(String userId, String subscriptionId) {
         // Fetch the subscription from DynamoDB using the composite key
-        return subscriptionRepository.getSubscription(userId, subscriptionId);
+        Map<String, AttributeValue> item = subscriptionRepository.getSubscription(userId, subscriptionId);
+        return item == null || item.isEmpty() ? null : SubscriptionCodec.decode(item);
     }
     
 
 
+    /**
+     * List the subscriptions of a user, one page at a time.
+     *
+     * @param userId     The ID of the user.
+     * @param limit      Maximum number of subscriptions in the page.
+     * @param cursor     Cursor returned with the previous page; null for the first page.
+     * @param attributes Attributes to return besides the keys; empty for all of them.
+     * @return The page of subscriptions, with the cursor of the next page if there is one.
+     */
+    public SubscriptionPage listSubscriptions(String userId, int limit, String cursor, List<String> attributes) {
+        SubscriptionRepository.Page page = subscriptionRepository.querySubscriptionsByUser(
+                userId, limit, decodeCursor(cursor), attributes);
+
+        List<Subscription> subscriptions = new ArrayList<>(page.items().size());
+        page.items().forEach(item -> subscriptions.add(SubscriptionCodec.decode(item)));
+        return new SubscriptionPage(subscriptions, encodeCursor(page.lastEvaluatedKey()));
+    }
+
+    /**
+     * Fetch several subscriptions at once. Subscriptions that do not exist are left out.
+     *
+     * @param keys       Keys of the subscriptions, each with a userId and a subscriptionId.
+     * @param attributes Attributes to return besides the keys; empty for all of them.
+     * @return The subscriptions found.
+     */
+    public List<Subscription> getSubscriptions(List<Map<String, String>> keys, List<String> attributes) {
+        Set<Map<String, AttributeValue>> unique = new LinkedHashSet<>();
+        keys.forEach(key -> {
+            String userId = key.get("userId");
+            String subscriptionId = key.get("subscriptionId");
+            if (userId == null || userId.isEmpty() || subscriptionId == null || subscriptionId.isEmpty()) {
+                throw new IllegalArgumentException("Both userId and subscriptionId must be provided");
+            }
+            unique.add(Map.of(
+                    "userId", AttributeValue.builder().s(userId).build(),
+                    "subscriptionId", AttributeValue.builder().s(subscriptionId).build()));
+        });
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        subscriptionRepository.batchGetSubscriptions(new ArrayList<>(unique), attributes)
+                .forEach(item -> subscriptions.add(SubscriptionCodec.decode(item)));
+        return subscriptions;
+    }
+
+    // Cursors are the LastEvaluatedKey of a page, as base64url-encoded JSON of its string attributes
+    private String encodeCursor(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null) {
+            return null;
+        }
+        try {
+            Map<String, String> key = new HashMap<>();
+            lastEvaluatedKey.forEach((name, value) -> key.put(name, value.s()));
+            byte[] json = objectMapper.writeValueAsBytes(key);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode page cursor", e);
+        }
+    }
+
+    private Map<String, AttributeValue> decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Map<String, String> key = objectMapper.readValue(json, new TypeReference<>() {});
+            Map<String, AttributeValue> exclusiveStartKey = new HashMap<>();
+            key.forEach((name, value) -> exclusiveStartKey.put(name, AttributeValue.builder().s(value).build()));
+            return exclusiveStartKey;
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
     /**
      * Remove a subscription by its ID.
      *
@@ -55,45 +436,60 @@ public class SubscriptionService {
      */
     public void removeSubscription(String subscriptionId) {
         subscriptionRepository.deleteSubscription(subscriptionId);
+        delete(null, subscriptionId);
     }
 
     /**
      * Update a subscription by its ID.
      *
      * @param subscriptionId The ID of the subscription.
-     * @param subscriptions  Map of subscription details to update.
+     * @param changes        Details to update, as sent by the client.
      */
-    public void updateSubscription(String userId, String subscriptionId, Map<String, String> subscriptionDetails) {
-        // Retrieve existing subscription
-        Map<String, AttributeValue> existingSubscription = getSubscription(userId, subscriptionId);
-
-        if (existingSubscription == null || existingSubscription.isEmpty()) {
-            throw new IllegalArgumentException("Subscription with ID " + subscriptionId + " for user " + userId + " does not exist.");
-        }
-
-        // Create a mutable map to hold updated subscription data
-        Map<String, AttributeValue> updatedSubscription = new HashMap<>(existingSubscription);
+    public void updateSubscription(String userId, String subscriptionId, Map<String, ?> changes) {
+        updateSubscription(userId, subscriptionId, changes, null);
+    }
 
-        // Add or update the provided subscription details
-        subscriptionDetails.forEach((key, value) -> {
-            if (value != null && !value.isEmpty()) {
-                if (key.equals("tags") && value.startsWith("[")) { // Check for list representation
-                    // Parse back into a list for DynamoDB
-                    List<String> tagsList = Arrays.asList(value.replace("[", "").replace("]", "").split(","));
-                    updatedSubscription.put(key, AttributeValue.builder().ss(tagsList).build()); // DynamoDB list type
-                } else {
-                    updatedSubscription.put(key, AttributeValue.builder().s(value).build());
-                }
-            }
-        });
+    /**
+     * Update the given details of a subscription in a single UpdateItem, leaving the others
+     * untouched. Tags, sent as a list or a comma-separated string, are stored as a string set
+     * so single tags can later be added and removed atomically.
+     *
+     * @param userId          The ID of the user.
+     * @param subscriptionId  The ID of the subscription.
+     * @param changes         Details to set, as sent by the client.
+     * @param expectedVersion Version the subscription must still have, or null to update it regardless.
+     */
+    public void updateSubscription(String userId, String subscriptionId, Map<String, ?> changes, Long expectedVersion) {
+        Map<String, AttributeValue> updatedSubscription = subscriptionRepository.updateSubscription(
+                userId, subscriptionId, SubscriptionCodec.toUpdate(changes), expectedVersion);
+        put(SubscriptionCodec.decode(updatedSubscription));
+    }
 
-        // Save the updated subscription back to DynamoDB
-        subscriptionRepository.updateSubscription(userId, subscriptionId, updatedSubscription);
+    /**
+     * Add tags to a subscription.
+     *
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     * @param tags           Tags to add.
+     */
+    public void addTags(String userId, String subscriptionId, Collection<String> tags) {
+        Map<String, AttributeValue> updatedSubscription = subscriptionRepository.updateSubscription(
+                userId, subscriptionId, new SubscriptionUpdate().addToSet("tags", tags), null);
+        put(SubscriptionCodec.decode(updatedSubscription));
     }
 
-    
-    
-    
+    /**
+     * Remove tags from a subscription.
+     *
+     * @param userId         The ID of the user.
+     * @param subscriptionId The ID of the subscription.
+     * @param tags           Tags to remove.
+     */
+    public void removeTags(String userId, String subscriptionId, Collection<String> tags) {
+        Map<String, AttributeValue> updatedSubscription = subscriptionRepository.updateSubscription(
+                userId, subscriptionId, new SubscriptionUpdate().deleteFromSet("tags", tags), null);
+        put(SubscriptionCodec.decode(updatedSubscription));
+    }
 
     /**
      * Get a set of users subscribed to a specific club.
@@ -102,10 +498,8 @@ public class SubscriptionService {
      * @return A set of user emails.
      */
     public Set<String> getSubscribedUsersForClub(String clubId) {
-        Map<String, Map<String, String>> allSubscriptions = getAllSubscriptions();
-        return allSubscriptions.values().stream()
-                .filter(subscription -> subscription.get("clubId").equals(clubId))
-                .map(subscription -> subscription.get("userEmail"))
+        return index().findByClub(clubId).stream()
+                .map(Subscription::userEmail)
                 .collect(Collectors.toSet());
     }
 
@@ -116,22 +510,73 @@ public class SubscriptionService {
      * @return A set of user emails.
      */
     public Set<String> getSubscribedUsersForTags(String[] tags) {
-        Map<String, Map<String, String>> allSubscriptions = getAllSubscriptions();
-        Set<String> tagsSet = new HashSet<>(Arrays.asList(tags));
-
-        return allSubscriptions.values().stream()
-                .filter(subscription -> {
-                    String subscriptionTags = subscription.get("tags");
-                    if (subscriptionTags == null || subscriptionTags.isEmpty()) {
-                        return false;
-                    }
-                    Set<String> userTags = new HashSet<>(Arrays.asList(subscriptionTags.split(",")));
-                    return !Collections.disjoint(tagsSet, userTags);
-                })
-                .map(subscription -> subscription.get("userEmail"))
+        return index().findForEvent(null, Arrays.asList(tags)).stream()
+                .map(Subscription::userEmail)
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * Get the subscriptions matching an event, either through its club or one of its tags.
+     * Served from the in-memory index, so the cost is proportional to the number of matches.
+     * Until the index is loaded, club followers are read through the clubId secondary index and
+     * tag subscribers with one Query per tag on the tag membership table.
+     *
+     * @param clubId The ID of the club publishing the event.
+     * @param tags   The tags of the event.
+     * @return The matching subscriptions, each one at most once.
+     */
+    public Collection<Subscription> findSubscriptionsForEvent(String clubId, List<String> tags) {
+        return findSubscriptionsForEventAsync(clubId, tags).join();
+    }
+
+    /**
+     * Non-blocking variant of {@link #findSubscriptionsForEvent(String, List)}. Before the index
+     * is loaded, the club query and the tag scan are issued at once on the async client. The
+     * scan reads the whole table, so it is only a fallback for the first events after startup.
+     *
+     * @param clubId The ID of the club publishing the event.
+     * @param tags   The tags of the event.
+     * @return A future of the matching subscriptions, each one at most once.
+     */
+    public CompletableFuture<Collection<Subscription>> findSubscriptionsForEventAsync(String clubId, List<String> tags) {
+        if (indexLoaded) {
+            return CompletableFuture.completedFuture(index.findForEvent(clubId, tags));
+        }
+
+        List<CompletableFuture<List<Map<String, AttributeValue>>>> queries = new ArrayList<>();
+        if (clubId != null && !clubId.isEmpty()) {
+            queries.add(asyncSubscriptionRepository.findByClubId(clubId));
+        }
+        List<String> eventTags = tags == null ? List.of() : tags.stream()
+                .filter(tag -> tag != null && !tag.isEmpty())
+                .distinct()
+                .toList();
+        if (!eventTags.isEmpty()) {
+            queries.add(asyncSubscriptionRepository.findByTags(eventTags));
+        }
+        return CompletableFuture.allOf(queries.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            SubscriptionIndex audience = new SubscriptionIndex();
+            queries.forEach(query -> query.join().forEach(item -> audience.put(SubscriptionCodec.decode(item))));
+            return audience.findForEvent(clubId, tags);
+        });
+    }
+
+    /**
+     * Get every subscription of the users selected by an audience expression. Expressions are
+     * resolved on the index only, which is loaded first if needed: terms such as
+     * {@code MINUS muted} have no secondary index to query.
+     *
+     * @param audience The audience expression.
+     * @return A future of the subscriptions of the selected users.
+     */
+    public CompletableFuture<Collection<Subscription>> findSubscriptionsForAudienceAsync(AudienceExpression audience) {
+        try {
+            return CompletableFuture.completedFuture(index().findForAudience(audience));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Merge the subscribers for clubs and tags into a single set to avoid duplicates.
      *
@@ -150,38 +595,44 @@ public class SubscriptionService {
      *
      * @return A map of all subscriptions with subscription IDs as keys.
      */
-    public Map<String, Map<String, String>> getAllSubscriptions() {
+    public Map<String, Subscription> getAllSubscriptions() {
         Map<String, Map<String, AttributeValue>> rawSubscriptions = subscriptionRepository.getAllSubscriptions();
 
-        Map<String, Map<String, String>> processedSubscriptions = new HashMap<>();
-        rawSubscriptions.forEach((subscriptionId, subscriptionDetails) -> {
-            Map<String, String> processedDetails = new HashMap<>();
-            subscriptionDetails.forEach((key, value) -> {
-                if (value.s() != null) {
-                    processedDetails.put(key, value.s());
-                }
-            });
-            processedSubscriptions.put(subscriptionId, processedDetails);
-        });
+        Map<String, Subscription> processedSubscriptions = new HashMap<>();
+        rawSubscriptions.forEach((subscriptionId, item) ->
+                processedSubscriptions.put(subscriptionId, SubscriptionCodec.decode(item)));
 
         return processedSubscriptions;
     }
 
-
+    /**
+     * Remove details from a subscription in a single UpdateItem. Listing tags under "tags"
+     * removes just those tags; any other key removes the whole attribute.
+     *
+     * @param userId          The ID of the user.
+     * @param subscriptionId  The ID of the subscription.
+     * @param detailsToRemove Details to remove.
+     */
     public void removeSubscription(String userId, String subscriptionId, Map<String, String> detailsToRemove) {
-        Map<String, AttributeValue> existingSubscription = getSubscription(userId, subscriptionId);
-    
-        if (existingSubscription == null || existingSubscription.isEmpty()) {
-            throw new IllegalArgumentException("Subscription with ID " + subscriptionId + " for user " + userId + " does not exist.");
-        }
-    
-        detailsToRemove.forEach((key, value) -> existingSubscription.remove(key));
-    
-        subscriptionRepository.updateSubscription(userId, subscriptionId, existingSubscription);
+        SubscriptionUpdate update = new SubscriptionUpdate();
+        detailsToRemove.forEach((key, value) -> {
+            if (SubscriptionCodec.isKey(key)) {
+                return;
+            }
+            if (key.equals("tags") && value != null && !value.isEmpty()) {
+                update.deleteFromSet(key, SubscriptionCodec.parseTags(value));
+            } else {
+                update.remove(key);
+            }
+        });
+
+        Map<String, AttributeValue> updatedSubscription = subscriptionRepository.updateSubscription(userId, subscriptionId, update, null);
+        put(SubscriptionCodec.decode(updatedSubscription));
     }
 
     public void deleteSubscription(String userId, String subscriptionId) {
         subscriptionRepository.deleteSubscription(userId, subscriptionId);
+        delete(userId, subscriptionId);
     }
     
     
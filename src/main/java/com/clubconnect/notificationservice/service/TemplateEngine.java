@@ -0,0 +1,89 @@
+package com.clubconnect.notificationservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+/**
+ * Loads and compiles the notification templates once at startup.
+ *
+ * Every template named in {@code notification.templates.names} is read from
+ * {@code notification.templates.location}: {@code <name>.txt} is required, and
+ * {@code <name>.html} is optional. When it exists, emails are sent as multipart/alternative.
+ * An optional {@code <name>.subject} template replaces the default subject.
+ * See {@link NotificationTemplate} for the placeholder syntax.
+ */
+@Component
+public class TemplateEngine {
+
+    private final String subject;
+    private final Map<String, NotificationTemplate> textTemplates = new HashMap<>();
+    private final Map<String, NotificationTemplate> htmlTemplates = new HashMap<>();
+    private final Map<String, NotificationTemplate> subjectTemplates = new HashMap<>();
+
+    public TemplateEngine(ResourceLoader resourceLoader,
+                          @Value("${notification.templates.location:classpath:templates/notifications/}") String location,
+                          @Value("${notification.templates.names:club,tag,digest}") List<String> names,
+                          @Value("${notification.templates.subject:ClubConnect: New Event Notification}") String subject) {
+        this.subject = subject;
+        for (String name : names) {
+            String text = read(resourceLoader.getResource(location + name + ".txt"));
+            if (text == null) {
+                throw new IllegalStateException("Missing notification template " + location + name + ".txt");
+            }
+            textTemplates.put(name, NotificationTemplate.compile(name + ".txt", text, false));
+
+            String html = read(resourceLoader.getResource(location + name + ".html"));
+            if (html != null) {
+                htmlTemplates.put(name, NotificationTemplate.compile(name + ".html", html, true));
+            }
+
+            String subjectTemplate = read(resourceLoader.getResource(location + name + ".subject"));
+            if (subjectTemplate != null) {
+                subjectTemplates.put(name, NotificationTemplate.compile(name + ".subject", subjectTemplate, false));
+            }
+        }
+    }
+
+    /**
+     * Render a template with its text and, if present, HTML variant and subject.
+     *
+     * @param name   Name of the template.
+     * @param values Placeholder values, see {@link NotificationTemplate#render(Map)}.
+     * @return The rendered message.
+     * @throws IllegalArgumentException if no template has that name.
+     */
+    public RenderedMessage render(String name, Map<String, ?> values) {
+        NotificationTemplate text = textTemplates.get(name);
+        if (text == null) {
+            throw new IllegalArgumentException("Unknown notification template: " + name);
+        }
+        NotificationTemplate html = htmlTemplates.get(name);
+        NotificationTemplate subjectTemplate = subjectTemplates.get(name);
+        return new RenderedMessage(subjectTemplate != null ? subjectTemplate.render(values) : subject,
+                text.render(values), html != null ? html.render(values) : null);
+    }
+
+    // Returns null for a missing resource; a single trailing newline of the file is dropped
+    private static String read(Resource resource) {
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            return source.endsWith("\n") ? source.substring(0, source.length() - 1) : source;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read notification template " + resource.getDescription(), e);
+        }
+    }
+}
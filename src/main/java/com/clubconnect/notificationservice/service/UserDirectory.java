@@ -0,0 +1,34 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of user email addresses.
+ *
+ * Implementations resolve many users per call so that large audiences cost a handful of
+ * round trips instead of one per recipient. In the returned map, a user the directory does
+ * not know is mapped to null; a user that could not be resolved (e.g. the remote call
+ * failed) is left out, so callers know not to cache the result.
+ */
+public interface UserDirectory {
+
+    /**
+     * Resolve the email addresses of several users.
+     *
+     * @param userIds The IDs of the users.
+     * @return Email addresses keyed by userId.
+     */
+    Map<String, String> resolveEmails(Collection<String> userIds);
+
+    /**
+     * Resolve the email address of a single user.
+     *
+     * @param userId The ID of the user.
+     * @return The email address, or null if the user is unknown or could not be resolved.
+     */
+    default String resolveEmail(String userId) {
+        return resolveEmails(List.of(userId)).get(userId);
+    }
+}
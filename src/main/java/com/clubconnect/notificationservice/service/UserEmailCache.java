@@ -0,0 +1,228 @@
+package com.clubconnect.notificationservice.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of user email addresses in front of the {@link UserDirectory}.
+ *
+ * Entries expire after a TTL and the least recently used entry is evicted once the cache is
+ * full. Users the directory does not know are cached as well (with a shorter TTL), so they
+ * do not cost a request on every event. Concurrent misses for the same user share a single
+ * in-flight request, and bulk lookups send all their misses to the directory at once.
+ */
+@Component
+public class UserEmailCache {
+
+    private final UserDirectory userDirectory;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+
+    public UserEmailCache(UserDirectory userDirectory,
+                          @Value("${user-email.cache.max-size:10000}") int maxSize,
+                          @Value("${user-email.cache.ttl-seconds:600}") long ttlSeconds,
+                          @Value("${user-email.cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.userDirectory = userDirectory;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserEmailCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the email address of a user, loading it from the directory on a miss.
+     *
+     * @param userId The ID of the user.
+     * @return The email address, or null if the user has none.
+     */
+    public String getEmail(String userId) {
+        Entry cached = lookup(userId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.email;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(userId, pending);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have completed the load between our lookup and putIfAbsent
+            Entry raced = lookup(userId);
+            String email = raced != null ? raced.email : load(Map.of(userId, pending)).get(userId);
+            pending.complete(email);
+            return email;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(userId, pending);
+        }
+    }
+
+    /**
+     * Get the email addresses of several users. All misses that are not already being loaded
+     * are resolved through a single bulk call to the directory.
+     *
+     * @param userIds The IDs of the users.
+     * @return Email addresses keyed by userId; null for users without one.
+     */
+    public Map<String, String> getEmails(Collection<String> userIds) {
+        Map<String, String> emails = new HashMap<>();
+        Map<String, CompletableFuture<String>> owned = new HashMap<>();
+        Map<String, CompletableFuture<String>> awaited = new HashMap<>();
+
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            Entry cached = lookup(userId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                emails.put(userId, cached.email);
+                continue;
+            }
+            misses.incrementAndGet();
+
+            CompletableFuture<String> pending = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(userId, pending);
+            if (existing != null) {
+                awaited.put(userId, existing);
+            } else {
+                owned.put(userId, pending);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            try {
+                Map<String, String> loaded = load(owned);
+                owned.forEach((userId, pending) -> {
+                    String email = loaded.get(userId);
+                    emails.put(userId, email);
+                    pending.complete(email);
+                });
+            } catch (RuntimeException e) {
+                owned.values().forEach(pending -> pending.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+
+        awaited.forEach((userId, pending) -> emails.put(userId, await(pending)));
+        return emails;
+    }
+
+    // Resolve users through the directory, caching every answer it gave (including unknown users)
+    private Map<String, String> load(Map<String, CompletableFuture<String>> userIds) {
+        Map<String, String> loaded;
+        try {
+            loaded = userDirectory.resolveEmails(userIds.keySet());
+        } catch (RuntimeException e) {
+            loadFailures.addAndGet(userIds.size());
+            throw e;
+        }
+
+        userIds.keySet().forEach(userId -> {
+            if (loaded.containsKey(userId)) {
+                store(userId, loaded.get(userId));
+            } else {
+                loadFailures.incrementAndGet();
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Drop a user from the cache, e.g. after their address changed.
+     *
+     * @param userId The ID of the user.
+     */
+    public void invalidate(String userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), loadFailures.get(), size);
+    }
+
+    private Entry lookup(String userId) {
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt >= 0) {
+                entries.remove(userId);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void store(String userId, String email) {
+        boolean known = email != null && !email.isEmpty();
+        long expiresAt = System.nanoTime() + (known ? ttlNanos : negativeTtlNanos);
+        synchronized (entries) {
+            entries.put(userId, new Entry(known ? email : null, expiresAt));
+        }
+    }
+
+    private static String await(CompletableFuture<String> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private record Entry(String email, long expiresAt) {
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public record Stats(long hits, long misses, long evictions, long loadFailures, int size) {
+    }
+}
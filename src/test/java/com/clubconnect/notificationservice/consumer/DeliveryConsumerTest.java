@@ -0,0 +1,235 @@
+package com.clubconnect.notificationservice.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clubconnect.notificationservice.model.DeliveryTask;
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+import com.clubconnect.notificationservice.service.DigestBuffer;
+import com.clubconnect.notificationservice.service.EmailService;
+import com.clubconnect.notificationservice.service.FanoutExecutor;
+import com.clubconnect.notificationservice.service.NotificationMetrics;
+import com.clubconnect.notificationservice.service.NotificationRenderer;
+import com.clubconnect.notificationservice.service.TemplateEngine;
+import com.clubconnect.notificationservice.service.UserEmailCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeliveryConsumerTest {
+
+    @InjectMocks
+    private DeliveryConsumer deliveryConsumer;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private UserEmailCache userEmailCache;
+
+    @Mock
+    private DigestBuffer digestBuffer;
+
+    @Spy
+    private FanoutExecutor fanoutExecutor = new FanoutExecutor("platform", 2, 4, 5000);
+
+    @Spy
+    private NotificationRenderer notificationRenderer = new NotificationRenderer(new TemplateEngine(
+            new DefaultResourceLoader(), "classpath:templates/notifications/", List.of("club", "tag"),
+            "ClubConnect: New Event Notification"), 16);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private NotificationMetrics metrics = new NotificationMetrics(meterRegistry);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testReceiveDelivery_EmailNotFound() throws Exception {
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"),
+                List.of(new Recipient("user1", List.of("sub1"), true, List.of("Technology"), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1"))).thenReturn(Map.of()); // No email found
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        // Verify no email is sent
+        verify(emailService, never()).sendNotification(anyString(), any(RenderedMessage.class));
+    }
+
+    @Test
+    void testReceiveDelivery_SendsOneCoalescedNotification() throws Exception {
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology", "AI"),
+                List.of(new Recipient("user1", List.of("sub1", "sub2"), true, List.of("Technology", "AI"), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1"))).thenReturn(Map.of("user1", "user1@example.com"));
+        when(emailService.sendNotification(anyString(), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        verify(emailService, times(1)).sendNotification(anyString(), any(RenderedMessage.class));
+        verify(emailService).sendNotification(eq("user1@example.com"), argThat(message -> message.text().contains("club you follow")));
+        verify(emailService).sendNotification(eq("user1@example.com"), argThat(message -> message.text().contains("your interests: Technology, AI")));
+    }
+
+    @Test
+    void testReceiveDelivery_RecipientsMatchedAlikeShareOneRendering() throws Exception {
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"), List.of(
+                new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user2", List.of("sub2"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user3", List.of("sub3"), false, List.of("Technology"), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1", "user2", "user3"))).thenReturn(Map.of(
+                "user1", "user1@example.com", "user2", "user2@example.com", "user3", "user3@example.com"));
+        when(emailService.sendNotification(anyString(), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        ArgumentCaptor<RenderedMessage> messages = ArgumentCaptor.forClass(RenderedMessage.class);
+        verify(emailService, times(3)).sendNotification(anyString(), messages.capture());
+        assertEquals(2, messages.getAllValues().stream().map(System::identityHashCode).distinct().count());
+        verify(emailService).sendNotification(eq("user3@example.com"),
+                argThat(message -> message.text().contains("your interest in 'Technology'")));
+    }
+
+    @Test
+    void testReceiveDelivery_BuffersDigestRecipients() throws Exception {
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"),
+                List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.HOURLY)));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        verify(digestBuffer, times(1)).append(eq(DigestMode.HOURLY), eq("user1"), any(DigestEntry.class));
+        verify(userEmailCache, never()).getEmails(anyCollection());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void testReceiveDelivery_GroupsIdenticalBodiesWhenBccEnabled() throws Exception {
+        ReflectionTestUtils.setField(deliveryConsumer, "bccEnabled", true);
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"), List.of(
+                new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user2", List.of("sub2"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user3", List.of("sub3"), false, List.of("Technology"), DigestMode.IMMEDIATE),
+                new Recipient("user4", List.of("sub4"), true, List.of(), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1", "user2", "user3", "user4"))).thenReturn(Map.of(
+                "user1", "user1@example.com", "user2", "user2@example.com", "user3", "user3@example.com"));
+        when(emailService.sendBulkNotification(anyList(), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(Set.of()));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        verify(emailService, times(2)).sendBulkNotification(anyList(), any(RenderedMessage.class));
+        verify(emailService).sendBulkNotification(eq(List.of("user1@example.com", "user2@example.com")),
+                argThat(message -> message.text().contains("club you follow")));
+        verify(emailService).sendBulkNotification(eq(List.of("user3@example.com")),
+                argThat(message -> message.text().contains("your interest in 'Technology'")));
+        verify(emailService, never()).sendNotification(anyString(), any(RenderedMessage.class));
+        assertEquals(3.0, meterRegistry.get("notification.emails").tag("outcome", "sent").counter().count());
+        assertEquals(1.0, meterRegistry.get("notification.emails").tag("outcome", "no_email").counter().count());
+        assertEquals(2L, meterRegistry.get("notification.stage").tag("stage", "send").timer().count());
+    }
+
+    @Test
+    void testReceiveDelivery_UsersSharingAnAddressAppearOncePerEnvelope() throws Exception {
+        ReflectionTestUtils.setField(deliveryConsumer, "bccEnabled", true);
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"), List.of(
+                new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user2", List.of("sub2"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user3", List.of("sub3"), true, List.of(), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1", "user2", "user3"))).thenReturn(Map.of(
+                "user1", "family@example.com", "user2", "family@example.com", "user3", "user3@example.com"));
+        when(emailService.sendBulkNotification(anyList(), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("family@example.com")));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        verify(emailService).sendBulkNotification(eq(List.of("family@example.com", "user3@example.com")),
+                any(RenderedMessage.class));
+        assertEquals(1.0, meterRegistry.get("notification.emails").tag("outcome", "sent").counter().count());
+        assertEquals(1.0, meterRegistry.get("notification.emails").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void testReceiveDelivery_MatchesRejectedAddressesInTheirBareForm() throws Exception {
+        ReflectionTestUtils.setField(deliveryConsumer, "bccEnabled", true);
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"), List.of(
+                new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE),
+                new Recipient("user2", List.of("sub2"), true, List.of(), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1", "user2"))).thenReturn(Map.of(
+                "user1", "User One <user1@example.com>", "user2", " user2@example.com"));
+        // Rejections come back bare, and may name an address the task did not list
+        when(emailService.sendBulkNotification(anyList(), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("user1@example.com", "other@example.com")));
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        verify(emailService).sendBulkNotification(eq(List.of("user1@example.com", "user2@example.com")),
+                any(RenderedMessage.class));
+        assertEquals(2.0, meterRegistry.get("notification.emails").tag("outcome", "failed").counter().count());
+        assertEquals(1L, meterRegistry.get("notification.stage").tag("stage", "send").timer().count());
+    }
+
+    @Test
+    void testReceiveDelivery_DeadlineCancelsPendingSend() throws Exception {
+        ReflectionTestUtils.setField(deliveryConsumer, "fanoutExecutor", new FanoutExecutor("platform", 2, 4, 100));
+        DeliveryTask task = new DeliveryTask("101", "123", List.of("Technology"),
+                List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE)));
+
+        when(userEmailCache.getEmails(Set.of("user1"))).thenReturn(Map.of("user1", "user1@example.com"));
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        when(emailService.sendNotification(anyString(), any(RenderedMessage.class))).thenReturn(pending);
+
+        deliveryConsumer.receiveDelivery(objectMapper.writeValueAsString(task));
+
+        // The interrupted task cancels its send, then counts it, shortly after the fan-out gave up on it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.find("notification.emails").tag("outcome", "timed_out").counter() == null
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1.0, meterRegistry.get("notification.emails").tag("outcome", "timed_out").counter().count());
+        assertTrue(pending.isCancelled());
+    }
+}
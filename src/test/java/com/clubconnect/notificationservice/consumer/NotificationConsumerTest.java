@@ -1,26 +1,53 @@
 package com.clubconnect.notificationservice.consumer;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 
-import com.clubconnect.notificationservice.service.EmailService;
-import com.clubconnect.notificationservice.service.SubscriptionService;
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.producer.DeliveryTaskProducer;
+import com.clubconnect.notificationservice.service.NotificationMatcher;
+import com.clubconnect.notificationservice.service.NotificationMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class NotificationConsumerTest {
 
@@ -28,19 +55,19 @@ class NotificationConsumerTest {
     private NotificationConsumer notificationConsumer;
 
     @Mock
-    private EmailService emailService;
-
-    @Mock
-    private SubscriptionService subscriptionService;
+    private NotificationMatcher notificationMatcher;
 
     @Mock
-    private RestTemplate restTemplate;
+    private DeliveryTaskProducer deliveryTaskProducer;
 
     @Spy
     private ObjectMapper objectMapper;
 
-    @Value("${userEmailUrl}")
-    private String userEmailUrl = "https://example.com/api/auth/email/{username}";
+    @Spy
+    private Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    @Spy
+    private NotificationMetrics metrics = new NotificationMetrics(new SimpleMeterRegistry());
 
     @BeforeEach
     void setUp() {
@@ -52,53 +79,192 @@ class NotificationConsumerTest {
         // Mock invalid message (missing eventId)
         String invalidMessage = "{\"tags\":[\"Technology\"],\"clubId\":\"123\"}";
 
-        // Mock the subscription service behavior to avoid unintended interaction errors
-        when(subscriptionService.getAllSubscriptions()).thenReturn(Map.of());
+        // Mock the matcher behavior to avoid unintended interaction errors
+        when(notificationMatcher.match(anyString(), anyList())).thenReturn(List.of());
 
         // Execute the method
         notificationConsumer.receiveMessage(invalidMessage);
 
-        // Verify no email is sent and subscription service is called
-        verify(emailService, never()).sendNotification(anyString(), anyString(), anyString());
-        verify(subscriptionService, times(1)).getAllSubscriptions(); // Ensure it was called once
+        // Verify nothing is published and the matcher is called
+        verifyNoInteractions(deliveryTaskProducer);
+        verify(notificationMatcher, times(1)).match(anyString(), anyList()); // Ensure it was called once
     }
 
-
     @Test
     void testReceiveMessage_NoMatchingSubscription() throws Exception {
         // Mock input message
         String message = "{\"eventId\":\"101\",\"tags\":[\"Technology\"],\"clubId\":\"123\"}";
-        Map<String, Map<String, String>> mockSubscriptions = Map.of(
-                "user2", Map.of("clubId", "456", "tag", "Other")
-        );
 
         // Mock external interactions
-        when(subscriptionService.getAllSubscriptions()).thenReturn(mockSubscriptions);
+        when(notificationMatcher.match("123", List.of("Technology"))).thenReturn(List.of());
 
         // Execute the method
         notificationConsumer.receiveMessage(message);
 
-        // Verify no email is sent
-        verifyNoInteractions(emailService);
+        // Verify nothing is published
+        verifyNoInteractions(deliveryTaskProducer);
     }
 
     @Test
-    void testReceiveMessage_EmailNotFound() throws Exception {
+    void testReceiveMessage_PublishesDeliveryTasks() throws Exception {
         // Mock input message
         String message = "{\"eventId\":\"101\",\"tags\":[\"Technology\"],\"clubId\":\"123\"}";
-        Map<String, Map<String, String>> mockSubscriptions = Map.of(
-                "user1", Map.of("clubId", "123", "tag", "Technology")
-        );
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of("Technology"), DigestMode.IMMEDIATE));
 
         // Mock external interactions
-        when(subscriptionService.getAllSubscriptions()).thenReturn(mockSubscriptions);
-        when(restTemplate.getForObject("https://example.com/api/auth/email/user1", String.class))
-                .thenReturn(null); // No email found
+        when(notificationMatcher.match("123", List.of("Technology"))).thenReturn(recipients);
 
         // Execute the method
         notificationConsumer.receiveMessage(message);
 
-        // Verify no email is sent
-        verify(emailService, never()).sendNotification(anyString(), anyString(), anyString());
+        // Verify the audience is handed off to the delivery queue
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), eq("123"), eq(List.of("Technology")), eq(recipients));
+    }
+
+    @Test
+    void testReceiveMessage_AudienceExpressionSelectsRecipients() throws Exception {
+        String message = "{\"eventId\":\"101\",\"clubId\":\"123\",\"audience\":\"club:123 MINUS muted\"}";
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAudience("123", List.of(), "club:123 MINUS muted")).thenReturn(recipients);
+
+        notificationConsumer.receiveMessage(message);
+
+        verify(notificationMatcher, never()).match(anyString(), anyList());
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), eq("123"), eq(List.of()), eq(recipients));
+    }
+
+    @Test
+    void testReceiveMessage_MalformedAudienceIsDropped() throws Exception {
+        notificationConsumer.receiveMessage("{\"eventId\":\"101\",\"clubId\":\"123\",\"tags\":[],\"audience\":\"club:123 OR\"}");
+
+        verifyNoInteractions(notificationMatcher);
+        verifyNoInteractions(deliveryTaskProducer);
+    }
+
+    @Test
+    void testReceiveBatch_MatchesInOnePassAndAcksOnce() throws Exception {
+        Channel channel = mock(Channel.class);
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAll(anyList())).thenReturn(List.of(completedFuture(recipients), completedFuture(List.of())));
+
+        notificationConsumer.receiveBatch(List.of(
+                message("{\"eventId\":\"101\",\"tags\":[\"Technology\"],\"clubId\":\"123\"}", 1),
+                message("not json", 2),
+                message("{\"eventId\":\"102\",\"tags\":[],\"clubId\":\"456\"}", 3)), channel);
+
+        verify(notificationMatcher, times(1)).matchAll(List.of(
+                new NotificationEvent("101", "123", List.of("Technology")),
+                new NotificationEvent("102", "456", List.of())));
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), eq("123"), eq(List.of("Technology")), eq(recipients));
+        verify(channel, times(1)).basicAck(3, true);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void testReceiveBatch_RequeuesWhenPublishingFails() throws Exception {
+        Channel channel = mock(Channel.class);
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAll(anyList())).thenReturn(List.of(completedFuture(recipients)));
+        when(deliveryTaskProducer.publish(anyString(), anyString(), anyList(), any())).thenThrow(new AmqpException("broker down"));
+
+        notificationConsumer.receiveBatch(List.of(
+                message("{\"eventId\":\"101\",\"tags\":[\"Technology\"],\"clubId\":\"123\"}", 7)), channel);
+
+        verify(channel, times(1)).basicNack(7, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testReceiveBatch_AcksDispatchedEventsAndRequeuesOnlyTheFailedOne() throws Exception {
+        Channel channel = mock(Channel.class);
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAll(anyList())).thenReturn(List.of(completedFuture(recipients), completedFuture(recipients)));
+        when(deliveryTaskProducer.publish(eq("102"), anyString(), anyList(), any())).thenThrow(new AmqpException("broker down"));
+
+        notificationConsumer.receiveBatch(List.of(
+                message("{\"eventId\":\"101\",\"tags\":[],\"clubId\":\"123\"}", 1),
+                message("not json", 2),
+                message("{\"eventId\":\"102\",\"tags\":[],\"clubId\":\"123\"}", 3)), channel);
+
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), anyString(), anyList(), any());
+        verify(channel, times(1)).basicAck(1, false);
+        verify(channel, times(1)).basicAck(2, false);
+        verify(channel, times(1)).basicNack(3, false, true);
+        verify(channel, never()).basicAck(anyLong(), eq(true));
+    }
+
+    @Test
+    void testReceiveBatch_DeadLettersEventThatFailsAgainAfterRedelivery() throws Exception {
+        Channel channel = mock(Channel.class);
+        when(notificationMatcher.matchAll(anyList())).thenThrow(new IllegalStateException("index unavailable"));
+
+        Message redelivered = message("{\"eventId\":\"101\",\"tags\":[],\"clubId\":\"123\"}", 4);
+        redelivered.getMessageProperties().setRedelivered(true);
+        notificationConsumer.receiveBatch(List.of(
+                redelivered,
+                message("{\"eventId\":\"102\",\"tags\":[],\"clubId\":\"123\"}", 5)), channel);
+
+        verify(channel, times(1)).basicNack(4, false, false);
+        verify(channel, times(1)).basicNack(5, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testReceiveBatch_FailsOnlyTheEventWhoseLookupFailed() throws Exception {
+        Channel channel = mock(Channel.class);
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAll(anyList())).thenReturn(List.of(
+                completedFuture(recipients),
+                CompletableFuture.failedFuture(new IllegalArgumentException("Too many tags"))));
+
+        notificationConsumer.receiveBatch(List.of(
+                message("{\"eventId\":\"101\",\"tags\":[],\"clubId\":\"123\"}", 1),
+                message("{\"eventId\":\"102\",\"tags\":[],\"clubId\":\"456\"}", 2)), channel);
+
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), eq("123"), eq(List.of()), eq(recipients));
+        verify(deliveryTaskProducer, never()).publish(eq("102"), anyString(), anyList(), any());
+        verify(channel, times(1)).basicAck(1, false);
+        verify(channel, times(1)).basicNack(2, false, true);
+    }
+
+    @Test
+    void testReceiveBatch_DecodesEventsPublishedThroughTheJsonConverter() throws Exception {
+        Channel channel = mock(Channel.class);
+        List<Recipient> recipients = List.of(new Recipient("user1", List.of("sub1"), true, List.of(), DigestMode.IMMEDIATE));
+        when(notificationMatcher.matchAll(anyList())).thenReturn(List.of(completedFuture(recipients)));
+
+        notificationConsumer.receiveBatch(List.of(
+                published("{\"eventId\":\"101\",\"tags\":[\"Technology\"],\"clubId\":\"123\"}", 1)), channel);
+
+        verify(deliveryTaskProducer, times(1)).publish(eq("101"), eq("123"), eq(List.of("Technology")), eq(recipients));
+        verify(channel, times(1)).basicAck(1, true);
+        verify(metrics, never()).events(eq("invalid"), anyInt());
+    }
+
+    // Sends the event as NotificationProducer does and returns the message the broker would deliver
+    private static Message published(String event, long deliveryTag) throws Exception {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Channel publishChannel = mock(Channel.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createChannel(anyBoolean())).thenReturn(publishChannel);
+        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        rabbitTemplate.setMessageConverter(new Jackson2JsonMessageConverter());
+
+        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, event);
+
+        ArgumentCaptor<AMQP.BasicProperties> properties = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        verify(publishChannel).basicPublish(eq(RabbitMQConfig.EXCHANGE_NAME), eq(RabbitMQConfig.ROUTING_KEY),
+                anyBoolean(), properties.capture(), body.capture());
+        Envelope envelope = new Envelope(deliveryTag, false, RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY);
+        return new Message(body.getValue(), new DefaultMessagePropertiesConverter()
+                .toMessageProperties(properties.getValue(), envelope, StandardCharsets.UTF_8.name()));
+    }
+
+    private static Message message(String body, long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
     }
 }
@@ -1,8 +1,13 @@
 package com.clubconnect.notificationservice.controller;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,7 +19,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,10 +32,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import com.clubconnect.notificationservice.model.BulkWriteResult;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.model.SubscriptionPage;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
+import com.clubconnect.notificationservice.repository.VersionConflictException;
 import com.clubconnect.notificationservice.service.SubscriptionService;
 
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-
 public class SubscriptionControllerTest {
 
     private MockMvc mockMvc;
@@ -51,7 +61,7 @@ public class SubscriptionControllerTest {
         String subscriptionId = "sub456";
         String requestBody = "{\"clubId\":\"123\", \"tags\":[\"Technology\", \"AI\"]}";
 
-        doNothing().when(subscriptionService).addSubscription(eq(userId), eq(subscriptionId), anyMap());
+        doNothing().when(subscriptionService).addSubscription(any(Subscription.class));
 
         mockMvc.perform(post("/api/subscriptions/{userId}/{subscriptionId}", userId, subscriptionId)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -59,24 +69,26 @@ public class SubscriptionControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(content().string("Subscription created successfully."));
 
-        verify(subscriptionService, times(1)).addSubscription(eq(userId), eq(subscriptionId), anyMap());
+        verify(subscriptionService, times(1)).addSubscription(argThat((Subscription subscription) ->
+                userId.equals(subscription.userId())
+                        && subscriptionId.equals(subscription.subscriptionId())
+                        && subscription.tags().equals(Set.of("Technology", "AI"))));
     }
 
     @Test
     void testGetSubscription_Success() throws Exception {
         String userId = "user123";
         String subscriptionId = "sub456";
-        Map<String, AttributeValue> mockSubscription = Map.of(
-                "clubId", AttributeValue.builder().s("123").build(),
-                "tags", AttributeValue.builder().s("Technology,AI").build()
-        );
+        Subscription mockSubscription = SubscriptionCodec.fromRequest(userId, subscriptionId,
+                Map.of("clubId", "123", "tags", "AI", "digest", "hourly"));
 
         when(subscriptionService.getSubscription(userId, subscriptionId)).thenReturn(mockSubscription);
 
         mockMvc.perform(get("/api/subscriptions/{userId}/{subscriptionId}", userId, subscriptionId))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.clubId").value("123"))
-                .andExpect(jsonPath("$.tags").value("Technology,AI"));
+                .andExpect(jsonPath("$.tags[0]").value("AI"))
+                .andExpect(jsonPath("$.digest").value("hourly"));
 
         verify(subscriptionService, times(1)).getSubscription(userId, subscriptionId);
     }
@@ -128,4 +140,114 @@ public class SubscriptionControllerTest {
 
         verify(subscriptionService, times(1)).removeSubscription(eq(userId), eq(subscriptionId), anyMap());
     }
+
+    @Test
+    void testCreateSubscriptions_JsonArray() throws Exception {
+        String requestBody = "[{\"userId\":\"user1\",\"subscriptionId\":\"sub1\",\"tags\":[\"AI\",\"Music\"]},"
+                + "{\"userId\":\"user2\",\"subscriptionId\":\"sub2\",\"clubId\":\"123\"}]";
+
+        when(subscriptionService.addSubscriptions(anyList())).thenReturn(List.of(
+                new BulkWriteResult(0, "user1", "sub1", true, null),
+                new BulkWriteResult(1, "user2", "sub2", false, "Unprocessed after 8 attempts")));
+
+        mockMvc.perform(post("/api/subscriptions/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.written").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].error").value("Unprocessed after 8 attempts"));
+
+        verify(subscriptionService, times(1)).addSubscriptions(List.of(
+                SubscriptionCodec.fromRequest(null, null,
+                        Map.of("userId", "user1", "subscriptionId", "sub1", "tags", "AI,Music")),
+                SubscriptionCodec.fromRequest(null, null,
+                        Map.of("userId", "user2", "subscriptionId", "sub2", "clubId", "123"))));
+    }
+
+    @Test
+    void testCreateSubscriptions_Ndjson() throws Exception {
+        String requestBody = "{\"userId\":\"user1\",\"subscriptionId\":\"sub1\",\"clubId\":\"123\"}\n\n"
+                + "{\"userId\":\"user2\",\"subscriptionId\":\"sub2\",\"tags\":[\"AI\"]}\n";
+
+        when(subscriptionService.addSubscriptions(anyList())).thenReturn(List.of(
+                new BulkWriteResult(0, "user1", "sub1", true, null),
+                new BulkWriteResult(1, "user2", "sub2", true, null)));
+
+        mockMvc.perform(post("/api/subscriptions/bulk")
+                .contentType(SubscriptionController.NDJSON_VALUE)
+                .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.written").value(2));
+
+        verify(subscriptionService, times(1)).addSubscriptions(List.of(
+                SubscriptionCodec.fromRequest(null, null,
+                        Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "123")),
+                SubscriptionCodec.fromRequest(null, null,
+                        Map.of("userId", "user2", "subscriptionId", "sub2", "tags", List.of("AI")))));
+    }
+
+    @Test
+    void testCreateSubscriptions_InvalidNdjsonLine() throws Exception {
+        mockMvc.perform(post("/api/subscriptions/bulk")
+                .contentType(SubscriptionController.NDJSON_VALUE)
+                .content("{\"userId\":\"user1\",\"subscriptionId\":\"sub1\"}\nnot json\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testListSubscriptions_ReturnsPageAndCursor() throws Exception {
+        when(subscriptionService.listSubscriptions(eq("user123"), eq(2), isNull(), eq(List.of("clubId"))))
+                .thenReturn(new SubscriptionPage(List.of(
+                        SubscriptionCodec.fromRequest(null, "sub1", Map.of("clubId", "123"))), "next"));
+
+        mockMvc.perform(get("/api/subscriptions/{userId}", "user123")
+                .param("limit", "2")
+                .param("fields", "clubId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.subscriptions[0].clubId").value("123"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void testListSubscriptions_RejectsInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/subscriptions/{userId}", "user123").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetSubscriptions_BatchGet() throws Exception {
+        when(subscriptionService.getSubscriptions(anyList(), isNull())).thenReturn(List.of(
+                SubscriptionCodec.fromRequest("user1", "sub1", Map.of("clubId", "123"))));
+
+        mockMvc.perform(post("/api/subscriptions/batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"userId\":\"user1\",\"subscriptionId\":\"sub1\"},{\"userId\":\"user1\",\"subscriptionId\":\"sub9\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].clubId").value("123"));
+    }
+
+    @Test
+    void testUpdateSubscription_VersionConflict() throws Exception {
+        doThrow(new VersionConflictException("Subscription sub456 is at version 4, expected 3", 4))
+                .when(subscriptionService).updateSubscription(eq("user123"), eq("sub456"), anyMap(), eq(3L));
+
+        mockMvc.perform(put("/api/subscriptions/{userId}/{subscriptionId}", "user123", "sub456")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"clubId\":\"123\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testAddTag_Success() throws Exception {
+        doNothing().when(subscriptionService).addTags("user123", "sub456", List.of("AI"));
+
+        mockMvc.perform(post("/api/subscriptions/{userId}/{subscriptionId}/tags/{tag}", "user123", "sub456", "AI"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Tag added successfully."));
+
+        verify(subscriptionService, times(1)).addTags("user123", "sub456", List.of("AI"));
+    }
 }
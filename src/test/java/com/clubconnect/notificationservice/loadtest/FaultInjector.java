@@ -0,0 +1,64 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failures injected into a stand-in: every call is delayed by a fixed latency plus
+ * a uniformly random jitter, and fails with the given probability.
+ */
+public class FaultInjector {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+
+    public FaultInjector(long latencyMillis, long jitterMillis, double failureRate) {
+        if (latencyMillis < 0 || jitterMillis < 0 || failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Latency and jitter must be positive, and the failure rate within [0, 1]");
+        }
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+    }
+
+    public static FaultInjector none() {
+        return new FaultInjector(0, 0, 0);
+    }
+
+    public double failureRate() {
+        return failureRate;
+    }
+
+    /**
+     * @return The delay of the next call, in milliseconds.
+     */
+    public long nextDelayMillis() {
+        return latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+    }
+
+    /**
+     * @return Whether the next call should fail.
+     */
+    public boolean nextFails() {
+        return failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+    }
+
+    /**
+     * Block the calling thread for the delay of the next call.
+     */
+    public void delay() {
+        long delay = nextDelayMillis();
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return latencyMillis + "ms (+" + jitterMillis + "ms jitter), " + (failureRate * 100) + "% failures";
+    }
+}
@@ -0,0 +1,322 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.clubconnect.notificationservice.repository.SubscriptionTableSchema;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * In-memory stand-in for the Subscriptions table, its club and tag indexes, and the
+ * SubscriptionTags membership table. It serves the calls the notification path makes, through
+ * a sync and an async client view: segmented paginated Scan, Query on an index or on the
+ * membership table, GetItem, BatchGetItem, PutItem and BatchWriteItem.
+ *
+ * Every call is delayed and may fail as configured by its {@link FaultInjector}. Failed calls
+ * throw or complete with {@link ProvisionedThroughputExceededException}, except BatchWriteItem,
+ * which returns the writes as unprocessed, as DynamoDB does when throttling.
+ */
+public class InMemoryDynamoDb {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final FaultInjector faults;
+    private final ConcurrentSkipListMap<String, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Map<String, AttributeValue>>> memberships = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public InMemoryDynamoDb(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public DynamoDbClient syncClient() {
+        return new DynamoDbClient() {
+            @Override
+            public ScanResponse scan(ScanRequest request) {
+                return call(() -> InMemoryDynamoDb.this.scan(request));
+            }
+
+            @Override
+            public QueryResponse query(QueryRequest request) {
+                return call(() -> InMemoryDynamoDb.this.query(request));
+            }
+
+            @Override
+            public GetItemResponse getItem(GetItemRequest request) {
+                return call(() -> InMemoryDynamoDb.this.getItem(request));
+            }
+
+            @Override
+            public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+                return call(() -> InMemoryDynamoDb.this.batchGetItem(request));
+            }
+
+            @Override
+            public PutItemResponse putItem(PutItemRequest request) {
+                return call(() -> InMemoryDynamoDb.this.putItem(request));
+            }
+
+            @Override
+            public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+                calls.incrementAndGet();
+                faults.delay();
+                if (faults.nextFails()) {
+                    failures.incrementAndGet();
+                    return BatchWriteItemResponse.builder().unprocessedItems(request.requestItems()).build();
+                }
+                return InMemoryDynamoDb.this.batchWriteItem(request);
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public DynamoDbAsyncClient asyncClient() {
+        return new DynamoDbAsyncClient() {
+            @Override
+            public CompletableFuture<ScanResponse> scan(ScanRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.scan(request));
+            }
+
+            @Override
+            public CompletableFuture<QueryResponse> query(QueryRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.query(request));
+            }
+
+            @Override
+            public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.getItem(request));
+            }
+
+            @Override
+            public CompletableFuture<BatchGetItemResponse> batchGetItem(BatchGetItemRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.batchGetItem(request));
+            }
+
+            @Override
+            public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.putItem(request));
+            }
+
+            @Override
+            public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+                return callAsync(() -> InMemoryDynamoDb.this.batchWriteItem(request));
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private <T> T call(Supplier<T> operation) {
+        calls.incrementAndGet();
+        faults.delay();
+        if (faults.nextFails()) {
+            failures.incrementAndGet();
+            throw throttled();
+        }
+        return operation.get();
+    }
+
+    // Completes after the injected latency without holding a thread, like the SDK's event loop
+    private <T> CompletableFuture<T> callAsync(Supplier<T> operation) {
+        calls.incrementAndGet();
+        long delay = faults.nextDelayMillis();
+        boolean fails = faults.nextFails();
+        return CompletableFuture.supplyAsync(() -> {
+            if (fails) {
+                failures.incrementAndGet();
+                throw throttled();
+            }
+            return operation.get();
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    // Filter expressions are not evaluated
+    private ScanResponse scan(ScanRequest request) {
+        int segment = request.segment() != null ? request.segment() : 0;
+        int totalSegments = request.totalSegments() != null ? request.totalSegments() : 1;
+        Map<String, Map<String, AttributeValue>> tail = request.hasExclusiveStartKey()
+                ? items.tailMap(key(request.exclusiveStartKey()), false)
+                : items;
+
+        List<Map<String, AttributeValue>> page = new ArrayList<>();
+        String last = null;
+        for (Map.Entry<String, Map<String, AttributeValue>> entry : tail.entrySet()) {
+            if (Math.floorMod(entry.getKey().hashCode(), totalSegments) != segment) {
+                continue;
+            }
+            page.add(entry.getValue());
+            last = entry.getKey();
+            if (page.size() == PAGE_SIZE) {
+                break;
+            }
+        }
+        ScanResponse.Builder response = ScanResponse.builder().items(page).count(page.size());
+        if (page.size() == PAGE_SIZE) {
+            response.lastEvaluatedKey(items.get(last));
+        }
+        return response.build();
+    }
+
+    // Serves Query on the club index or the membership table, in one page
+    private QueryResponse query(QueryRequest request) {
+        if (SubscriptionTableSchema.TAG_TABLE_NAME.equals(request.tableName())) {
+            String tag = request.expressionAttributeValues().values().iterator().next().s();
+            List<Map<String, AttributeValue>> page = new ArrayList<>(memberships.getOrDefault(tag, Map.of()).values());
+            return QueryResponse.builder().items(page).count(page.size()).build();
+        }
+        String attribute = request.hasExpressionAttributeNames()
+                ? request.expressionAttributeNames().values().iterator().next()
+                : SubscriptionTableSchema.CLUB_INDEX.equals(request.indexName()) ? "clubId" : "tag";
+        String value = request.expressionAttributeValues().values().iterator().next().s();
+        List<Map<String, AttributeValue>> page = new ArrayList<>();
+        indexes.getOrDefault(attribute + "=" + value, Set.of()).forEach(key -> {
+            Map<String, AttributeValue> item = items.get(key);
+            if (item != null) {
+                page.add(item);
+            }
+        });
+        return QueryResponse.builder().items(page).count(page.size()).build();
+    }
+
+    private GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> item = items.get(key(request.key()));
+        return item != null ? GetItemResponse.builder().item(item).build() : GetItemResponse.builder().build();
+    }
+
+    private BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+        request.requestItems().forEach((table, keys) -> {
+            List<Map<String, AttributeValue>> found = new ArrayList<>();
+            keys.keys().forEach(key -> {
+                Map<String, AttributeValue> item = items.get(key(key));
+                if (item != null) {
+                    found.add(item);
+                }
+            });
+            responses.put(table, found);
+        });
+        return BatchGetItemResponse.builder().responses(responses).unprocessedKeys(Map.of()).build();
+    }
+
+    private PutItemResponse putItem(PutItemRequest request) {
+        Map<String, AttributeValue> previous = put(request.item());
+        return previous != null && request.returnValues() == ReturnValue.ALL_OLD
+                ? PutItemResponse.builder().attributes(previous).build()
+                : PutItemResponse.builder().build();
+    }
+
+    private BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+        request.requestItems().forEach((table, writes) -> {
+            boolean tags = SubscriptionTableSchema.TAG_TABLE_NAME.equals(table);
+            for (WriteRequest write : writes) {
+                if (write.putRequest() != null && tags) {
+                    Map<String, AttributeValue> item = write.putRequest().item();
+                    memberships.computeIfAbsent(item.get(SubscriptionTableSchema.TAG_KEY).s(), k -> new ConcurrentHashMap<>())
+                            .put(item.get(SubscriptionTableSchema.MEMBER_KEY).s(), Map.copyOf(item));
+                } else if (write.putRequest() != null) {
+                    put(write.putRequest().item());
+                } else if (write.deleteRequest() != null && tags) {
+                    Map<String, AttributeValue> key = write.deleteRequest().key();
+                    memberships.getOrDefault(key.get(SubscriptionTableSchema.TAG_KEY).s(), new HashMap<>())
+                            .remove(key.get(SubscriptionTableSchema.MEMBER_KEY).s());
+                } else if (write.deleteRequest() != null) {
+                    items.remove(key(write.deleteRequest().key()));
+                }
+            }
+        });
+        return BatchWriteItemResponse.builder().unprocessedItems(Map.of()).build();
+    }
+
+    private Map<String, AttributeValue> put(Map<String, AttributeValue> item) {
+        String key = key(item);
+        Map<String, AttributeValue> previous = items.put(key, Map.copyOf(item));
+        if (previous != null) {
+            unindex(key, previous, "clubId");
+            unindex(key, previous, "tag");
+        }
+        index(key, item, "clubId");
+        index(key, item, "tag");
+        return previous;
+    }
+
+    private void index(String key, Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        if (value != null && value.s() != null) {
+            indexes.computeIfAbsent(attribute + "=" + value.s(), k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unindex(String key, Map<String, AttributeValue> item, String attribute) {
+        AttributeValue value = item.get(attribute);
+        if (value != null && value.s() != null) {
+            Set<String> keys = indexes.get(attribute + "=" + value.s());
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    private static String key(Map<String, AttributeValue> item) {
+        return item.get("userId").s() + "\u0000" + item.get("subscriptionId").s();
+    }
+
+    private static ProvisionedThroughputExceededException throttled() {
+        return ProvisionedThroughputExceededException.builder().message("Injected failure").build();
+    }
+}
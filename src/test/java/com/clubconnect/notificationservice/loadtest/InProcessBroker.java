@@ -0,0 +1,297 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * Broker substitute: a {@link RabbitTemplate} that routes what it sends to the listeners of
+ * the application's listener containers, without a connection. Messages are converted with
+ * the template's converter and routed by exchange and routing key to a queue, whose consumer
+ * threads hand them to the queue's listener as a container would: batch listeners get up to
+ * batch-size messages and settle them on a stand-in {@link Channel}, other listeners are acked
+ * when they return. Delivery is delayed by the broker latency. An injected failure, a nack
+ * with requeue or a listener exception on a first delivery requeues the message as a
+ * redelivery.
+ */
+public class InProcessBroker extends RabbitTemplate implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessBroker.class);
+
+    private final FaultInjector faults;
+    private final Map<String, String> routes = new ConcurrentHashMap<>();
+    private final Map<String, BrokerQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong redelivered = new AtomicLong();
+    private volatile boolean closed;
+
+    public InProcessBroker(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    /**
+     * Route the messages sent to an exchange with a routing key to a queue.
+     *
+     * @param exchange   The exchange.
+     * @param routingKey The routing key.
+     * @param queue      The queue.
+     */
+    public void route(String exchange, String routingKey, String queue) {
+        routes.put(exchange + "/" + routingKey, queue);
+    }
+
+    /**
+     * Start consuming a queue.
+     *
+     * @param queue        The queue.
+     * @param concurrency  Number of consumer threads.
+     * @param batchSize    Messages per delivery to a batch listener.
+     * @param ackMode      Acknowledgement of the container; the listener settles when manual.
+     * @param listener     The container's listener.
+     */
+    public void bind(String queue, int concurrency, int batchSize, AcknowledgeMode ackMode, MessageListener listener) {
+        BrokerQueue brokerQueue = new BrokerQueue(queue, batchSize, ackMode.isManual(), listener,
+                Executors.newFixedThreadPool(concurrency, runnable -> {
+                    Thread thread = new Thread(runnable, "broker-" + queue);
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+        queues.put(queue, brokerQueue);
+        for (int i = 0; i < concurrency; i++) {
+            brokerQueue.consumers().execute(() -> consume(brokerQueue));
+        }
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        String queue = routes.get(exchange + "/" + routingKey);
+        BrokerQueue brokerQueue = queue != null ? queues.get(queue) : null;
+        if (brokerQueue == null) {
+            throw new IllegalStateException("No listener bound to " + exchange + "/" + routingKey);
+        }
+        published.incrementAndGet();
+        message.getMessageProperties().setReceivedExchange(exchange);
+        message.getMessageProperties().setReceivedRoutingKey(routingKey);
+        message.getMessageProperties().setConsumerQueue(queue);
+        brokerQueue.pending().incrementAndGet();
+        brokerQueue.messages().add(message);
+    }
+
+    private void consume(BrokerQueue queue) {
+        AtomicLong deliveryTags = new AtomicLong();
+        NavigableMap<Long, Message> unacked = new ConcurrentSkipListMap<>();
+        Channel channel = channel(queue, unacked);
+        while (!closed) {
+            List<Message> batch = new ArrayList<>();
+            try {
+                Message first = queue.messages().poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.messages().drainTo(batch, queue.batchSize() - 1);
+
+            faults.delay();
+            List<Message> delivered = new ArrayList<>(batch.size());
+            for (Message message : batch) {
+                if (faults.nextFails()) {
+                    requeue(queue, message);
+                } else {
+                    long deliveryTag = deliveryTags.incrementAndGet();
+                    message.getMessageProperties().setDeliveryTag(deliveryTag);
+                    unacked.put(deliveryTag, message);
+                    delivered.add(message);
+                }
+            }
+            if (!delivered.isEmpty()) {
+                deliver(queue, delivered, channel, unacked);
+            }
+        }
+    }
+
+    private void deliver(BrokerQueue queue, List<Message> messages, Channel channel, NavigableMap<Long, Message> unacked) {
+        if (queue.listener() instanceof ChannelAwareBatchMessageListener listener) {
+            try {
+                listener.onMessageBatch(messages, channel);
+            } catch (Exception e) {
+                failed(queue, messages, unacked, e);
+            }
+            return;
+        }
+        for (Message message : messages) {
+            try {
+                if (queue.listener() instanceof ChannelAwareMessageListener listener) {
+                    listener.onMessage(message, channel);
+                } else {
+                    queue.listener().onMessage(message);
+                }
+                if (!queue.manualAck()) {
+                    settle(queue, unacked.remove(message.getMessageProperties().getDeliveryTag()));
+                }
+            } catch (Exception e) {
+                failed(queue, List.of(message), unacked, e);
+            }
+        }
+    }
+
+    // Requeue the messages still unsettled once; drop them if they were already redelivered
+    private void failed(BrokerQueue queue, List<Message> messages, NavigableMap<Long, Message> unacked, Exception e) {
+        log.warn("Listener of {} failed: {}", queue.name(), e.getMessage());
+        for (Message message : messages) {
+            if (unacked.remove(message.getMessageProperties().getDeliveryTag()) == null) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(message.getMessageProperties().isRedelivered())) {
+                settle(queue, message);
+            } else {
+                requeue(queue, message);
+            }
+        }
+    }
+
+    private void requeue(BrokerQueue queue, Message message) {
+        redelivered.incrementAndGet();
+        message.getMessageProperties().setRedelivered(true);
+        queue.messages().add(message);
+    }
+
+    private void settle(BrokerQueue queue, Message message) {
+        if (message != null) {
+            queue.settled().incrementAndGet();
+            queue.pending().decrementAndGet();
+            queue.lastSettledNanos().set(System.nanoTime());
+        }
+    }
+
+    // Channel of one consumer: acks, nacks and rejects settle or requeue its unacked messages
+    private Channel channel(BrokerQueue queue, NavigableMap<Long, Message> unacked) {
+        return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Channel.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "basicAck" -> acknowledge(queue, unacked, (long) args[0], (boolean) args[1], false);
+                        case "basicNack" -> acknowledge(queue, unacked, (long) args[0], (boolean) args[1], (boolean) args[2]);
+                        case "basicReject" -> acknowledge(queue, unacked, (long) args[0], false, (boolean) args[1]);
+                        case "isOpen" -> {
+                            return true;
+                        }
+                        case "toString" -> {
+                            return "InProcessBroker channel of " + queue.name();
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        default -> { }
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return type == long.class ? Long.valueOf(0) : null;
+    }
+
+    private void acknowledge(BrokerQueue queue, NavigableMap<Long, Message> unacked, long deliveryTag,
+                             boolean multiple, boolean requeue) {
+        List<Message> messages = new ArrayList<>();
+        if (multiple) {
+            NavigableMap<Long, Message> upTo = unacked.headMap(deliveryTag, true);
+            messages.addAll(upTo.values());
+            upTo.clear();
+        } else {
+            Message message = unacked.remove(deliveryTag);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        messages.forEach(message -> {
+            if (requeue) {
+                requeue(queue, message);
+            } else {
+                settle(queue, message);
+            }
+        });
+    }
+
+    public long published() {
+        return published.get();
+    }
+
+    public long redelivered() {
+        return redelivered.get();
+    }
+
+    /**
+     * @param queue The queue.
+     * @return Messages of the queue acked, or dropped after a failed redelivery.
+     */
+    public long settled(String queue) {
+        BrokerQueue brokerQueue = queues.get(queue);
+        return brokerQueue != null ? brokerQueue.settled().get() : 0;
+    }
+
+    /**
+     * @param queue The queue.
+     * @return When a message of the queue was last settled, from {@link System#nanoTime()}.
+     */
+    public long lastSettledNanos(String queue) {
+        BrokerQueue brokerQueue = queues.get(queue);
+        return brokerQueue != null ? brokerQueue.lastSettledNanos().get() : 0;
+    }
+
+    /**
+     * @return Messages queued or delivered but not settled, on all queues.
+     */
+    public int pending() {
+        return queues.values().stream().mapToInt(queue -> queue.pending().get()).sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queues.values().forEach(queue -> queue.consumers().shutdownNow());
+    }
+
+    private record BrokerQueue(String name, int batchSize, boolean manualAck, MessageListener listener,
+                               ExecutorService consumers, LinkedBlockingQueue<Message> messages,
+                               AtomicInteger pending, AtomicLong settled, AtomicLong lastSettledNanos) {
+
+        BrokerQueue(String name, int batchSize, boolean manualAck, MessageListener listener, ExecutorService consumers) {
+            this(name, batchSize, manualAck, listener, consumers, new LinkedBlockingQueue<>(),
+                    new AtomicInteger(), new AtomicLong(), new AtomicLong());
+        }
+    }
+}
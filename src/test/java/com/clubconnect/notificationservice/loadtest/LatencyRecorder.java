@@ -0,0 +1,39 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies in nanoseconds and reports their percentiles. Samples are kept in full,
+ * which is fine for the millions of samples of a load test run.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    public synchronized void record(long nanos, int times) {
+        if (count + times > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + times));
+        }
+        Arrays.fill(samples, count, count + times, nanos);
+        count += times;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param percentile The percentile, e.g. 99.9.
+     * @return The latency at that percentile in milliseconds, or 0 without samples.
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+}
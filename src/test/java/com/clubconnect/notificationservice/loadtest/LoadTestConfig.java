@@ -0,0 +1,62 @@
+package com.clubconnect.notificationservice.loadtest;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties, e.g.
+ * {@code -Dloadtest.subscriptions=100000 -Dloadtest.rate=200 -Dloadtest.smtp.latency-ms=50}.
+ *
+ * @param subscriptions          Subscriptions seeded in the table.
+ * @param events                 Events published.
+ * @param rate                   Events published per second.
+ * @param useIndex               Match events on the in-memory index, or query the table per event.
+ * @param bcc                    Send identical bodies in multi-recipient envelopes.
+ * @param bccMaxRecipients       Recipients per envelope.
+ * @param mailWorkers            SMTP delivery workers.
+ * @param userBatchLookups       Resolve emails with batch POSTs instead of one GET per user.
+ * @param dynamoDbFaults         Latency and failures of every DynamoDB call.
+ * @param userServiceFaults      Latency and failures of the user service.
+ * @param smtpFaults             Latency of DATA and failures of whole messages.
+ * @param smtpRecipientFaults    Rejections of single recipients.
+ * @param brokerFaults           Delivery latency and redeliveries of the broker.
+ * @param drainTimeoutSeconds    Maximum wait for the pipeline to drain after the last event.
+ */
+public record LoadTestConfig(
+        int subscriptions,
+        int events,
+        double rate,
+        boolean useIndex,
+        boolean bcc,
+        int bccMaxRecipients,
+        int mailWorkers,
+        boolean userBatchLookups,
+        FaultInjector dynamoDbFaults,
+        FaultInjector userServiceFaults,
+        FaultInjector smtpFaults,
+        FaultInjector smtpRecipientFaults,
+        FaultInjector brokerFaults,
+        long drainTimeoutSeconds) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.subscriptions", 10_000),
+                Integer.getInteger("loadtest.events", 200),
+                Double.parseDouble(System.getProperty("loadtest.rate", "50")),
+                Boolean.parseBoolean(System.getProperty("loadtest.index", "true")),
+                Boolean.parseBoolean(System.getProperty("loadtest.bcc", "true")),
+                Integer.getInteger("loadtest.bcc.max-recipients", 50),
+                Integer.getInteger("loadtest.mail.workers", 4),
+                Boolean.parseBoolean(System.getProperty("loadtest.users.batch", "true")),
+                faults("dynamodb"),
+                faults("users"),
+                faults("smtp"),
+                new FaultInjector(0, 0, Double.parseDouble(System.getProperty("loadtest.smtp.rcpt-failure-rate", "0"))),
+                faults("broker"),
+                Long.getLong("loadtest.drain-timeout-seconds", 120));
+    }
+
+    private static FaultInjector faults(String standIn) {
+        return new FaultInjector(
+                Long.getLong("loadtest." + standIn + ".latency-ms", 0),
+                Long.getLong("loadtest." + standIn + ".jitter-ms", 0),
+                Double.parseDouble(System.getProperty("loadtest." + standIn + ".failure-rate", "0")));
+    }
+}
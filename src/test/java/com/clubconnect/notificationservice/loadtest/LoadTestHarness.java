@@ -0,0 +1,290 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.util.FileSystemUtils;
+
+import com.clubconnect.notificationservice.NotificationServiceApplication;
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.producer.NotificationProducer;
+import com.clubconnect.notificationservice.service.MailDeliveryEngine;
+import com.clubconnect.notificationservice.service.SubscriptionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * Runs the notification pipeline, from the event queue to SMTP, against local stand-ins.
+ *
+ * The application context is booted as in production, but the external systems are replaced:
+ * the Subscriptions table by {@link InMemoryDynamoDb}, the user service by
+ * {@link UserServiceStub}, Gmail by {@link SmtpSink} and RabbitMQ by {@link InProcessBroker}.
+ * The stand-ins are registered as primary beans and pointed at by the load test properties.
+ * The listener containers are kept from connecting; the broker feeds their listeners instead,
+ * so events take the configured listener path. The harness seeds a synthetic table through
+ * the bulk write path and publishes events through the producer at a fixed rate. It then
+ * waits for the pipeline to drain.
+ */
+public class LoadTestHarness implements AutoCloseable {
+
+    private static final int TAG_COUNT = 200;
+
+    private final LoadTestConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final InMemoryDynamoDb dynamoDb;
+    private final UserServiceStub userService;
+    private final SmtpSink smtpSink;
+    private final InProcessBroker broker;
+    private final Path digestDirectory;
+
+    // Listener containers the application would have started
+    private final List<SimpleMessageListenerContainer> containers = new CopyOnWriteArrayList<>();
+    private final ConfigurableApplicationContext context;
+    private final SubscriptionService subscriptionService;
+    private final NotificationProducer notificationProducer;
+    private final MailDeliveryEngine mailDeliveryEngine;
+
+    private final Map<String, Long> publishedNanos = new ConcurrentHashMap<>();
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final AtomicLong emails = new AtomicLong();
+    private volatile long lastEmailNanos;
+
+    public LoadTestHarness(LoadTestConfig config) throws Exception {
+        this.config = config;
+        dynamoDb = new InMemoryDynamoDb(config.dynamoDbFaults());
+        userService = new UserServiceStub(config.userServiceFaults());
+        smtpSink = new SmtpSink(config.smtpRecipientFaults(), config.smtpFaults(), this::onEmail);
+        broker = new InProcessBroker(config.brokerFaults());
+        digestDirectory = Files.createTempDirectory("loadtest-digests");
+
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("loadtest", properties()));
+        context = new SpringApplicationBuilder(NotificationServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .environment(environment)
+                .initializers(applicationContext -> register((GenericApplicationContext) applicationContext))
+                .run();
+
+        context.getBeansOfType(Binding.class).values().stream()
+                .filter(Binding::isDestinationQueue)
+                .forEach(binding -> broker.route(binding.getExchange(), binding.getRoutingKey(), binding.getDestination()));
+        int batchSize = context.getEnvironment().getProperty("notification.listener.batch.size", Integer.class, 50);
+        for (SimpleMessageListenerContainer container : containers) {
+            for (String queue : container.getQueueNames()) {
+                broker.bind(queue, RabbitMQConfig.QUEUE_NAME.equals(queue) ? 4 : 8,
+                        container.isConsumerBatchEnabled() ? batchSize : 1,
+                        container.getAcknowledgeMode(), (MessageListener) container.getMessageListener());
+            }
+        }
+
+        subscriptionService = context.getBean(SubscriptionService.class);
+        notificationProducer = context.getBean(NotificationProducer.class);
+        mailDeliveryEngine = context.getBean(MailDeliveryEngine.class);
+    }
+
+    // Settings of the run, ahead of application.properties
+    private Map<String, Object> properties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.com.clubconnect", "WARN");
+        properties.put("notification.logging.recipient-sample-rate", "0");
+        // The index is loaded by the harness after seeding, or never when matching on the table
+        properties.put("subscriptions.index.load-at-startup", "false");
+        properties.put("subscriptions.change-feed.mode", "local");
+        properties.put("notification.producer.mode", "direct");
+        properties.put("notification.digest.store", "file");
+        properties.put("notification.digest.dir", digestDirectory.toString());
+        properties.put("userEmailUrl", userService.emailUrl());
+        properties.put("userEmailBatchUrl", config.userBatchLookups() ? userService.batchUrl() : "");
+        properties.put("user-email.cache.max-size", "1000000");
+        properties.put("spring.mail.username", "loadtest@example.com");
+        properties.put("mail.delivery.workers", String.valueOf(config.mailWorkers()));
+        properties.put("mail.delivery.queue-capacity", "10000");
+        properties.put("mail.delivery.submit-timeout-ms", "30000");
+        properties.put("mail.delivery.bcc.enabled", String.valueOf(config.bcc()));
+        properties.put("mail.delivery.bcc.max-recipients", String.valueOf(config.bccMaxRecipients()));
+        return properties;
+    }
+
+    // Stand-ins take precedence over the clients the configuration classes build
+    private void register(GenericApplicationContext applicationContext) {
+        applicationContext.registerBean("inMemoryDynamoDbClient", DynamoDbClient.class,
+                dynamoDb::syncClient, definition -> definition.setPrimary(true));
+        applicationContext.registerBean("inMemoryDynamoDbAsyncClient", DynamoDbAsyncClient.class,
+                dynamoDb::asyncClient, definition -> definition.setPrimary(true));
+        applicationContext.registerBean("inProcessBroker", RabbitTemplate.class, () -> {
+            // Never connects; the factory only satisfies the template's checks
+            broker.setConnectionFactory(applicationContext.getBean(ConnectionFactory.class));
+            broker.setMessageConverter(applicationContext.getBean(Jackson2JsonMessageConverter.class));
+            return broker;
+        }, definition -> definition.setPrimary(true));
+        applicationContext.registerBean("smtpSinkMailSender", JavaMailSenderImpl.class,
+                this::mailSender, definition -> definition.setPrimary(true));
+        applicationContext.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleRabbitListenerContainerFactory factory) {
+                    factory.setContainerCustomizer(container -> {
+                        if (container.isAutoStartup()) {
+                            containers.add(container);
+                        }
+                        container.setAutoStartup(false);
+                    });
+                }
+                return bean;
+            }
+        });
+    }
+
+    private JavaMailSenderImpl mailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpSink.getPort());
+        Properties mailProperties = new Properties();
+        mailProperties.put("mail.smtp.sendpartial", "true");
+        mailProperties.put("mail.smtp.connectiontimeout", "5000");
+        mailProperties.put("mail.smtp.timeout", "30000");
+        mailSender.setJavaMailProperties(mailProperties);
+        return mailSender;
+    }
+
+    /**
+     * Seed the table, publish the events and wait for their emails.
+     *
+     * @return The results.
+     */
+    public LoadTestReport run() throws Exception {
+        Random random = new Random(42);
+        int clubs = Math.max(10, config.subscriptions() / 100);
+
+        long seedStart = System.nanoTime();
+        seed(random, clubs);
+        double seedSeconds = (System.nanoTime() - seedStart) / 1e9;
+
+        double indexLoadSeconds = 0;
+        if (config.useIndex()) {
+            long indexStart = System.nanoTime();
+            subscriptionService.reloadIndex();
+            indexLoadSeconds = (System.nanoTime() - indexStart) / 1e9;
+        }
+
+        long intervalNanos = (long) (1e9 / config.rate());
+        long start = System.nanoTime();
+        for (int i = 0; i < config.events(); i++) {
+            LockSupport.parkNanos(start + i * intervalNanos - System.nanoTime());
+            String eventId = "event-" + i;
+            NotificationEvent event = new NotificationEvent(eventId, "club-" + random.nextInt(clubs),
+                    List.of("tag-" + random.nextInt(TAG_COUNT), "tag-" + random.nextInt(TAG_COUNT)));
+            publishedNanos.put(eventId, System.nanoTime());
+            notificationProducer.sendNotification(objectMapper.writeValueAsString(event));
+        }
+        boolean drained = awaitDrained();
+
+        long eventsProcessed = broker.settled(RabbitMQConfig.QUEUE_NAME);
+        double eventSeconds = Math.max(1, broker.lastSettledNanos(RabbitMQConfig.QUEUE_NAME) - start) / 1e9;
+        double emailSeconds = Math.max(1, lastEmailNanos - start) / 1e9;
+        return new LoadTestReport(config.events(), eventsProcessed, emails.get(), smtpSink.transactions(),
+                eventsProcessed / eventSeconds, emails.get() / emailSeconds,
+                latency.percentileMillis(50), latency.percentileMillis(99), latency.percentileMillis(99.9),
+                seedSeconds, indexLoadSeconds,
+                smtpSink.rejectedRecipients(), smtpSink.failedMessages(),
+                dynamoDb.calls(), dynamoDb.failures(), userService.requests(), userService.failures(),
+                broker.redelivered(), drained);
+    }
+
+    // One subscription per club follower or tag, three per user on average, all immediate
+    private void seed(Random random, int clubs) {
+        int users = Math.max(1, config.subscriptions() / 3);
+        List<Subscription> batch = new ArrayList<>();
+        for (int i = 0; i < config.subscriptions(); i++) {
+            String userId = "user-" + random.nextInt(users);
+            Subscription subscription = i % 2 == 0
+                    ? new Subscription(userId, "sub-" + i, "club", "club-" + random.nextInt(clubs), null, null,
+                            null, DigestMode.IMMEDIATE, null, null, null)
+                    : tagSubscription(userId, "sub-" + i, random);
+            batch.add(subscription);
+            if (batch.size() == 10_000) {
+                subscriptionService.addSubscriptions(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            subscriptionService.addSubscriptions(batch);
+        }
+    }
+
+    private static Subscription tagSubscription(String userId, String subscriptionId, Random random) {
+        String tag = "tag-" + random.nextInt(TAG_COUNT);
+        return new Subscription(userId, subscriptionId, "tag", null, tag,
+                Set.of(tag), null, DigestMode.IMMEDIATE, null, null, null);
+    }
+
+    private void onEmail(String eventId, int recipients) {
+        long now = System.nanoTime();
+        Long published = eventId != null ? publishedNanos.get(eventId) : null;
+        if (published != null) {
+            latency.record(now - published, recipients);
+        }
+        emails.addAndGet(recipients);
+        lastEmailNanos = now;
+    }
+
+    // Drained once every event was settled, no message is queued anywhere and SMTP went quiet
+    private boolean awaitDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.drainTimeoutSeconds());
+        long quietNanos = TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < deadline) {
+            if (broker.settled(RabbitMQConfig.QUEUE_NAME) >= config.events()
+                    && broker.pending() == 0
+                    && mailDeliveryEngine.queuedMessages() == 0
+                    && System.nanoTime() - smtpSink.lastActivityNanos() > quietNanos) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws Exception {
+        // Consumers stop first, so nothing reaches the beans the context shuts down
+        broker.close();
+        context.close();
+        smtpSink.close();
+        userService.close();
+        FileSystemUtils.deleteRecursively(digestDirectory);
+    }
+}
@@ -0,0 +1,52 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.util.Locale;
+
+/**
+ * Results of a load test run. Rates are measured from the first event published to the last
+ * event matched, and to the last email accepted by the SMTP sink. Latency is end to end, from
+ * the publication of an event to the acceptance of each of its emails.
+ */
+public record LoadTestReport(
+        long eventsPublished,
+        long eventsProcessed,
+        long emails,
+        long smtpTransactions,
+        double eventsPerSecond,
+        double emailsPerSecond,
+        double p50Millis,
+        double p99Millis,
+        double p999Millis,
+        double seedSeconds,
+        double indexLoadSeconds,
+        long rejectedRecipients,
+        long failedMessages,
+        long dynamoDbCalls,
+        long dynamoDbFailures,
+        long userServiceRequests,
+        long userServiceFailures,
+        long brokerRedeliveries,
+        boolean drained) {
+
+    public String format(LoadTestConfig config) {
+        return String.format(Locale.ROOT,
+                "Load test: %d subscriptions, %d events at %.0f/s, %s matching, %s delivery%n"
+                + "  Stand-ins: DynamoDB %s | users %s | SMTP %s, %.1f%% RCPT rejections | broker %s%n"
+                + "  Seeded in %.2fs, index loaded in %.2fs%n"
+                + "  Events:  %d/%d processed, %.1f events/s%n"
+                + "  Emails:  %d in %d SMTP transactions, %.1f emails/s%n"
+                + "  Latency: p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms%n"
+                + "  Failures: %d recipients rejected, %d messages failed, %d/%d DynamoDB calls, %d/%d user lookups, %d redeliveries%s",
+                config.subscriptions(), config.events(), config.rate(),
+                config.useIndex() ? "index" : "query", config.bcc() ? "envelope" : "per-recipient",
+                config.dynamoDbFaults(), config.userServiceFaults(), config.smtpFaults(),
+                100 * config.smtpRecipientFaults().failureRate(), config.brokerFaults(),
+                seedSeconds, indexLoadSeconds,
+                eventsProcessed, eventsPublished, eventsPerSecond,
+                emails, smtpTransactions, emailsPerSecond,
+                p50Millis, p99Millis, p999Millis,
+                rejectedRecipients, failedMessages, dynamoDbFailures, dynamoDbCalls,
+                userServiceFailures, userServiceRequests, brokerRedeliveries,
+                drained ? "" : String.format("%n  WARNING: the pipeline did not drain within the timeout"));
+    }
+}
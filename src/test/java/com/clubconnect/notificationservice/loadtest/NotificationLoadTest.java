@@ -0,0 +1,31 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * End-to-end load test of the notification pipeline against local stand-ins. Excluded from
+ * the default build; run it with {@code mvn test -Pload-test}, configured through the
+ * {@code loadtest.*} properties of {@link LoadTestConfig}.
+ */
+@Tag("load")
+class NotificationLoadTest {
+
+    @Test
+    void testNotificationPipelineUnderLoad() throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+
+        LoadTestReport report;
+        try (LoadTestHarness harness = new LoadTestHarness(config)) {
+            report = harness.run();
+        }
+        System.out.println(report.format(config));
+
+        assertTrue(report.drained(), "The pipeline did not drain within the timeout");
+        assertEquals(config.events(), report.eventsProcessed());
+        assertTrue(report.emails() > 0);
+    }
+}
@@ -0,0 +1,170 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal SMTP server accepting mail on a local port and discarding it after reporting it to
+ * a listener. It speaks just enough SMTP for JavaMail: EHLO/HELO, MAIL, RCPT, DATA, RSET, NOOP
+ * and QUIT, without TLS or authentication.
+ *
+ * The {@code rcptFaults} reject single recipients with a 550, so that partial deliveries can be
+ * observed. The {@code dataFaults} delay the reply to DATA and fail whole messages with a 451.
+ */
+public class SmtpSink implements AutoCloseable {
+
+    /**
+     * Called for every accepted message.
+     */
+    public interface Listener {
+        void onMessage(String eventId, int recipients);
+    }
+
+    private static final String EVENT_ID_LINE = "Event ID: ";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "smtp-sink");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FaultInjector rcptFaults;
+    private final FaultInjector dataFaults;
+    private final Listener listener;
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong rejectedRecipients = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    public SmtpSink(FaultInjector rcptFaults, FaultInjector dataFaults, Listener listener) throws IOException {
+        this.rcptFaults = rcptFaults;
+        this.dataFaults = dataFaults;
+        this.listener = listener;
+        this.serverSocket = new ServerSocket(0, 512, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "smtp-sink-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long transactions() {
+        return transactions.get();
+    }
+
+    public long rejectedRecipients() {
+        return rejectedRecipients.get();
+    }
+
+    public long failedMessages() {
+        return failedMessages.get();
+    }
+
+    public long lastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = socket.getOutputStream()) {
+            reply(out, "220 localhost SMTP sink");
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                lastActivityNanos = System.nanoTime();
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                    case "HELO", "NOOP" -> reply(out, "250 OK");
+                    case "MAIL", "RSET" -> {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        if (rcptFaults.nextFails()) {
+                            rejectedRecipients.incrementAndGet();
+                            reply(out, "550 5.1.1 Recipient rejected");
+                        } else {
+                            recipients.add(line);
+                            reply(out, "250 OK");
+                        }
+                    }
+                    case "DATA" -> {
+                        if (recipients.isEmpty()) {
+                            reply(out, "503 No valid recipients");
+                            continue;
+                        }
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        String eventId = readData(in);
+                        dataFaults.delay();
+                        transactions.incrementAndGet();
+                        if (dataFaults.nextFails()) {
+                            failedMessages.incrementAndGet();
+                            reply(out, "451 4.3.0 Injected failure");
+                        } else {
+                            listener.onMessage(eventId, recipients.size());
+                            reply(out, "250 OK");
+                        }
+                        lastActivityNanos = System.nanoTime();
+                        recipients.clear();
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // Connection dropped by the client
+        }
+    }
+
+    // Reads the message up to the terminating dot and returns the event ID of its text body
+    private static String readData(BufferedReader in) throws IOException {
+        String eventId = null;
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            if (eventId == null && line.startsWith(EVENT_ID_LINE)) {
+                eventId = line.substring(EVENT_ID_LINE.length()).trim();
+            }
+        }
+        return eventId;
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,120 @@
+package com.clubconnect.notificationservice.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stand-in for the remote user service on the JDK HTTP server. It answers both lookups of
+ * {@code HttpUserDirectory}: {@code GET /api/auth/email/{userId}} with the email as text, and
+ * {@code POST /api/auth/emails} of a JSON list of user IDs with a JSON userId to email map.
+ * The email of user {@code u} is {@code u@example.com}. Injected failures answer 503.
+ */
+public class UserServiceStub implements AutoCloseable {
+
+    private static final String EMAIL_PATH = "/api/auth/email/";
+    private static final String BATCH_PATH = "/api/auth/emails";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "user-service-stub");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FaultInjector faults;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public UserServiceStub(FaultInjector faults) throws IOException {
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        server.createContext(EMAIL_PATH, exchange -> handle(exchange, this::lookup));
+        server.createContext(BATCH_PATH, exchange -> handle(exchange, this::batchLookup));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static String emailOf(String userId) {
+        return userId + "@example.com";
+    }
+
+    public String emailUrl() {
+        return baseUrl() + EMAIL_PATH + "{username}";
+    }
+
+    public String batchUrl() {
+        return baseUrl() + BATCH_PATH;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        String respond(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            requests.incrementAndGet();
+            faults.delay();
+            if (faults.nextFails()) {
+                failures.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] body = handler.respond(exchange).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    exchange.getRequestURI().getPath().startsWith(BATCH_PATH) ? "application/json" : "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String lookup(HttpExchange exchange) {
+        return emailOf(exchange.getRequestURI().getPath().substring(EMAIL_PATH.length()));
+    }
+
+    private String batchLookup(HttpExchange exchange) throws IOException {
+        List<String> userIds;
+        try (InputStream in = exchange.getRequestBody()) {
+            userIds = objectMapper.readValue(in, new TypeReference<>() {});
+        }
+        Map<String, String> emails = new HashMap<>();
+        userIds.forEach(userId -> emails.put(userId, emailOf(userId)));
+        return objectMapper.writeValueAsString(emails);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.clubconnect.notificationservice.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clubconnect.notificationservice.config.RabbitMQConfig;
+
+class ConfirmedNotificationProducerTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @InjectMocks
+    private NotificationProducer notificationProducer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(notificationProducer, "mode", "confirmed");
+        ReflectionTestUtils.setField(notificationProducer, "maxRetries", 2);
+
+        // Run batches on the mock itself, as invoke() does on a dedicated channel
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation -> {
+            RabbitTemplate.OperationsCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit((RabbitOperations) rabbitTemplate);
+        });
+        notificationProducer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        notificationProducer.stop();
+    }
+
+    @Test
+    void testSendNotification_CompletesOnConfirm() throws Exception {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+        CompletableFuture<Void> first = notificationProducer.sendNotification("event-1");
+        CompletableFuture<Void> second = notificationProducer.sendNotification("event-2");
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_NAME), eq(RabbitMQConfig.ROUTING_KEY), eq("event-1"), any(CorrelationData.class));
+        assertEquals(2, notificationProducer.stats().confirmed());
+    }
+
+    @Test
+    void testSendNotification_RepublishesNackedMessages() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            boolean ack = attempts.incrementAndGet() > 1;
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "nack"));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+        notificationProducer.sendNotification("event-1").get(5, TimeUnit.SECONDS);
+
+        verify(rabbitTemplate, times(2)).convertAndSend(anyString(), anyString(), eq("event-1"), any(CorrelationData.class));
+        assertEquals(1, notificationProducer.stats().nacked());
+        assertEquals(1, notificationProducer.stats().retried());
+    }
+
+    @Test
+    void testSendNotification_FailsAfterBoundedRetries() {
+        doAnswer(invocation -> {
+            CorrelationData correlation = invocation.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+        CompletableFuture<Void> result = notificationProducer.sendNotification("event-1");
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        verify(rabbitTemplate, times(3)).convertAndSend(anyString(), anyString(), eq("event-1"), any(CorrelationData.class));
+        assertEquals(1, notificationProducer.stats().failed());
+    }
+
+    @Test
+    void testStop_WaitsForOutstandingConfirms() throws Exception {
+        AtomicReference<CorrelationData> sent = new AtomicReference<>();
+        doAnswer(invocation -> {
+            sent.set(invocation.getArgument(3));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+
+        CompletableFuture<Void> result = notificationProducer.sendNotification("event-1");
+        while (sent.get() == null) {
+            Thread.sleep(10);
+        }
+        CompletableFuture.runAsync(() -> sent.get().getFuture().complete(new CorrelationData.Confirm(true, null)),
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+
+        notificationProducer.stop();
+
+        assertTrue(result.isDone());
+        result.get(0, TimeUnit.SECONDS);
+        assertEquals(1, notificationProducer.stats().confirmed());
+    }
+
+    @Test
+    void testStop_FailsMessagesNotConfirmedInTime() throws Exception {
+        ReflectionTestUtils.setField(notificationProducer, "shutdownTimeoutMillis", 100L);
+
+        CompletableFuture<Void> result = notificationProducer.sendNotification("event-1");
+        notificationProducer.stop();
+
+        assertThrows(ExecutionException.class, () -> result.get(0, TimeUnit.SECONDS));
+        assertEquals(1, notificationProducer.stats().failed());
+    }
+}
@@ -0,0 +1,151 @@
+package com.clubconnect.notificationservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+class AsyncSubscriptionRepositoryTest {
+
+    @Mock
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
+    @InjectMocks
+    private AsyncSubscriptionRepository asyncSubscriptionRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(asyncSubscriptionRepository, "baseBackoffMillis", 1L);
+    }
+
+    @Test
+    void testGetSubscription_ReturnsEmptyMapWhenMissing() {
+        when(dynamoDbAsyncClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(GetItemResponse.builder().build()));
+
+        assertTrue(asyncSubscriptionRepository.getSubscription("user1", "sub1").join().isEmpty());
+    }
+
+    @Test
+    void testGetSubscription_FailsFastOnMissingKey() {
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> asyncSubscriptionRepository.getSubscription("user1", "").join());
+
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        verify(dynamoDbAsyncClient, never()).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    void testFindByClubId_FollowsEveryPage() {
+        Map<String, AttributeValue> lastKey = Map.of("clubId", s("club1"), "userId", s("user1"), "subscriptionId", s("sub1"));
+        when(dynamoDbAsyncClient.query(argThat((QueryRequest request) -> request != null && !request.hasExclusiveStartKey())))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(Map.of("userId", s("user1"))))
+                        .lastEvaluatedKey(lastKey)
+                        .build()));
+        when(dynamoDbAsyncClient.query(argThat((QueryRequest request) -> request != null && request.hasExclusiveStartKey())))
+                .thenReturn(CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(List.of(Map.of("userId", s("user2"))))
+                        .build()));
+
+        List<Map<String, AttributeValue>> items = asyncSubscriptionRepository.findByClubId("club1").join();
+
+        assertEquals(2, items.size());
+        verify(dynamoDbAsyncClient, times(2)).query(argThat((QueryRequest request) ->
+                SubscriptionTableSchema.CLUB_INDEX.equals(request.indexName())));
+    }
+
+    @Test
+    void testFindByTags_QueriesEachTagAndFetchesTheSubscriptions() {
+        Map<String, AttributeValue> lastKey = SubscriptionTableSchema.membership("AI", "user1", "sub1");
+        when(dynamoDbAsyncClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            if (request.expressionAttributeValues().get(":v").s().equals("Music")) {
+                return CompletableFuture.completedFuture(QueryResponse.builder()
+                        .items(SubscriptionTableSchema.membership("Music", "user1", "sub1")).build());
+            }
+            return CompletableFuture.completedFuture(request.hasExclusiveStartKey()
+                    ? QueryResponse.builder().items(SubscriptionTableSchema.membership("AI", "user2", "sub2")).build()
+                    : QueryResponse.builder().items(lastKey).lastEvaluatedKey(lastKey).build());
+        });
+        Map<String, AttributeValue> sub1 = Map.of("userId", s("user1"), "subscriptionId", s("sub1"),
+                "tags", AttributeValue.builder().ss("AI", "Music").build());
+        Map<String, AttributeValue> sub2 = Map.of("userId", s("user2"), "subscriptionId", s("sub2"), "tag", s("AI"));
+        when(dynamoDbAsyncClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(sub1, sub2)))
+                        .build()));
+
+        List<Map<String, AttributeValue>> items = asyncSubscriptionRepository.findByTags(List.of("AI", "Music", "AI")).join();
+
+        assertEquals(List.of(sub1, sub2), items);
+        verify(dynamoDbAsyncClient, times(3)).query(argThat((QueryRequest request) ->
+                SubscriptionTableSchema.TAG_TABLE_NAME.equals(request.tableName())));
+        verify(dynamoDbAsyncClient).batchGetItem(argThat((BatchGetItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TABLE_NAME).keys().size() == 2));
+        verify(dynamoDbAsyncClient, never()).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    void testFindByTags_RejectsEmptyTags() {
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> asyncSubscriptionRepository.findByTags(List.of("")).join());
+
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        verify(dynamoDbAsyncClient, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testBatchGetSubscriptions_RetriesUnprocessedKeys() {
+        Map<String, AttributeValue> key1 = Map.of("userId", s("user1"), "subscriptionId", s("sub1"));
+        Map<String, AttributeValue> key2 = Map.of("userId", s("user2"), "subscriptionId", s("sub2"));
+        when(dynamoDbAsyncClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(key1)))
+                        .unprocessedKeys(Map.of(SubscriptionTableSchema.TABLE_NAME,
+                                KeysAndAttributes.builder().keys(key2).build()))
+                        .build()))
+                .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(key2)))
+                        .build()));
+
+        List<Map<String, AttributeValue>> items = asyncSubscriptionRepository.batchGetSubscriptions(List.of(key1, key2)).join();
+
+        assertEquals(List.of(key1, key2), items);
+        verify(dynamoDbAsyncClient, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
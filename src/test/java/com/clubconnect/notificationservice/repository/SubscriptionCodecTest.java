@@ -0,0 +1,97 @@
+package com.clubconnect.notificationservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Subscription;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+class SubscriptionCodecTest {
+
+    @Test
+    void testDecode_ReadsEveryTagFormat() {
+        Set<String> expected = Set.of("AI", "Music");
+
+        assertEquals(expected, SubscriptionCodec.decode(Map.of("tags", ss("AI", "Music"))).tags());
+        assertEquals(expected, SubscriptionCodec.decode(Map.of("tags", s("AI,Music"))).tags());
+        assertEquals(expected, SubscriptionCodec.decode(Map.of("tags", s("[AI, Music]"))).tags());
+        assertEquals(expected, SubscriptionCodec.decode(Map.of("tag", s("AI"), "tags", s("Music"))).tags());
+    }
+
+    @Test
+    void testDecode_TypedFieldsAndExtras() {
+        Subscription subscription = SubscriptionCodec.decode(Map.of(
+                "userId", s("user1"),
+                "subscriptionId", s("sub1"),
+                "clubId", s("club1"),
+                "digest", s("Daily"),
+                "version", AttributeValue.builder().n("7").build(),
+                "source", s("import")));
+
+        assertEquals("user1", subscription.userId());
+        assertEquals(DigestMode.DAILY, subscription.digest());
+        assertEquals(7L, subscription.version());
+        assertEquals(Map.of("source", "import"), subscription.attributes());
+        assertTrue(subscription.tags().isEmpty());
+    }
+
+    @Test
+    void testDecode_InternsSharedValues() {
+        Subscription first = SubscriptionCodec.decode(Map.of("clubId", s(new String("club1")), "tags", ss(new String("AI"))));
+        Subscription second = SubscriptionCodec.decode(Map.of("clubId", s(new String("club1")), "tags", ss(new String("AI"))));
+
+        assertSame(first.clubId(), second.clubId());
+        assertSame(first.tags().iterator().next(), second.tags().iterator().next());
+    }
+
+    @Test
+    void testEncode_WritesTagsAsStringSet() {
+        Subscription subscription = SubscriptionCodec.fromRequest("user1", "sub1",
+                Map.of("tags", List.of("AI", "Music"), "digest", "HOURLY", "version", "9"));
+
+        Map<String, AttributeValue> item = SubscriptionCodec.encode(subscription);
+
+        assertEquals(Set.of("AI", "Music"), Set.copyOf(item.get("tags").ss()));
+        assertEquals("hourly", item.get("digest").s());
+        assertFalse(item.containsKey("version"));
+        assertEquals(subscription, SubscriptionCodec.decode(item));
+    }
+
+    @Test
+    void testToUpdate_ListAndStringTagsAgree() {
+        SubscriptionUpdate fromList = SubscriptionCodec.toUpdate(Map.of("tags", List.of("AI", "Music")));
+        SubscriptionUpdate fromString = SubscriptionCodec.toUpdate(Map.of("tags", "AI,Music"));
+        SubscriptionUpdate cleared = SubscriptionCodec.toUpdate(Map.of("tags", List.of(), "userId", "other"));
+
+        assertEquals(Set.copyOf(fromList.getSet().get("tags").ss()), Set.copyOf(fromString.getSet().get("tags").ss()));
+        assertEquals(Set.of("tags"), cleared.getRemove());
+        assertTrue(cleared.getSet().isEmpty());
+    }
+
+    @Test
+    void testFromRequest_IgnoresNonStringValues() {
+        Subscription subscription = SubscriptionCodec.fromRequest("user1", "sub1", Map.of("clubId", 5, "type", "club"));
+
+        assertNull(subscription.clubId());
+        assertEquals("club", subscription.type());
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue ss(String... values) {
+        return AttributeValue.builder().ss(values).build();
+    }
+}
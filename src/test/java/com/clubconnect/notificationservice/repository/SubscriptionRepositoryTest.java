@@ -0,0 +1,487 @@
+package com.clubconnect.notificationservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clubconnect.notificationservice.model.Subscription;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+class SubscriptionRepositoryTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @InjectMocks
+    private SubscriptionRepository subscriptionRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(subscriptionRepository, "batchWriteBaseBackoffMillis", 1L);
+    }
+
+    @Test
+    void testGetAllSubscriptions_FollowsEveryPage() {
+        Map<String, AttributeValue> lastKey = item("sub1");
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(item("sub1")).lastEvaluatedKey(lastKey).build())
+                .thenReturn(ScanResponse.builder().items(item("sub2")).build());
+
+        Map<String, Map<String, AttributeValue>> result = subscriptionRepository.getAllSubscriptions();
+
+        assertEquals(Set.of("sub1", "sub2"), result.keySet());
+        verify(dynamoDbClient, times(2)).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    void testScanSubscriptions_ScansEverySegment() {
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+            ScanRequest request = invocation.getArgument(0);
+            return ScanResponse.builder().items(item("sub" + request.segment())).build();
+        });
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        subscriptionRepository.scanSubscriptions(3, 2, item -> seen.add(item.get("subscriptionId").s()));
+
+        assertEquals(Set.of("sub0", "sub1", "sub2"), seen);
+    }
+
+    @Test
+    void testBatchPutSubscriptions_WritesInChunksOf25() {
+        stubVersions();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        Map<Integer, String> failures = subscriptionRepository.batchPutSubscriptions(items(60));
+
+        assertTrue(failures.isEmpty());
+        verify(dynamoDbClient, times(3)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    void testBatchPutSubscriptions_RetriesUnprocessedItems() {
+        stubVersions();
+        List<Map<String, AttributeValue>> items = items(3);
+        WriteRequest unprocessed = WriteRequest.builder()
+                .putRequest(builder -> builder.item(items.get(1)))
+                .build();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder()
+                        .unprocessedItems(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(unprocessed)))
+                        .build())
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        Map<Integer, String> failures = subscriptionRepository.batchPutSubscriptions(items);
+
+        assertTrue(failures.isEmpty());
+        verify(dynamoDbClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    void testBatchPutSubscriptions_ReportsItemsStillUnprocessed() {
+        stubVersions();
+        ReflectionTestUtils.setField(subscriptionRepository, "batchWriteMaxAttempts", 3);
+        List<Map<String, AttributeValue>> items = items(2);
+        WriteRequest unprocessed = WriteRequest.builder()
+                .putRequest(builder -> builder.item(items.get(0)))
+                .build();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder()
+                        .unprocessedItems(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(unprocessed)))
+                        .build());
+
+        Map<Integer, String> failures = subscriptionRepository.batchPutSubscriptions(items);
+
+        assertEquals(Set.of(0), failures.keySet());
+        verify(dynamoDbClient, times(3)).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    @Test
+    void testBatchPutSubscriptions_WritesTheNextVersion() {
+        stubVersions(versioned(item("sub1"), 4));
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+        List<Map<String, AttributeValue>> items = items(2);
+
+        assertTrue(subscriptionRepository.batchPutSubscriptions(items).isEmpty());
+
+        verify(dynamoDbClient).batchGetItem(argThat((BatchGetItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TABLE_NAME).keys().size() == 2));
+        assertEquals("1", items.get(0).get(SubscriptionUpdate.VERSION).n());
+        assertEquals("5", items.get(1).get(SubscriptionUpdate.VERSION).n());
+        verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TABLE_NAME).stream()
+                        .map(write -> write.putRequest().item().get(SubscriptionUpdate.VERSION).n())
+                        .toList()
+                        .equals(List.of("1", "5"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateTableIfMissing_CreatesTableWithClubIndex() {
+        DynamoDbWaiter waiter = mock(DynamoDbWaiter.class);
+        when(dynamoDbClient.describeTable(any(Consumer.class))).thenThrow(ResourceNotFoundException.builder().build());
+        when(dynamoDbClient.waiter()).thenReturn(waiter);
+
+        SubscriptionTableSchema.createTableIfMissing(dynamoDbClient, SubscriptionTableSchema.TABLE_NAME);
+
+        verify(dynamoDbClient).createTable(argThat((CreateTableRequest request) ->
+                SubscriptionTableSchema.TABLE_NAME.equals(request.tableName())
+                        && request.globalSecondaryIndexes().size() == 1
+                        && SubscriptionTableSchema.CLUB_INDEX.equals(request.globalSecondaryIndexes().get(0).indexName())
+                        && "clubId".equals(request.globalSecondaryIndexes().get(0).keySchema().get(0).attributeName())));
+        verify(waiter).waitUntilTableExists(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateTableIfMissing_KeepsExistingTable() {
+        when(dynamoDbClient.describeTable(any(Consumer.class))).thenReturn(DescribeTableResponse.builder().build());
+
+        SubscriptionTableSchema.createTableIfMissing(dynamoDbClient, SubscriptionTableSchema.TABLE_NAME);
+
+        verify(dynamoDbClient, never()).createTable(any(CreateTableRequest.class));
+    }
+
+    @Test
+    void testFindByClubId_QueriesIndexAndFollowsPages() {
+        Map<String, AttributeValue> lastKey = item("sub1");
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(item("sub1")).lastEvaluatedKey(lastKey).build())
+                .thenReturn(QueryResponse.builder().items(item("sub2")).build());
+
+        List<Map<String, AttributeValue>> items = subscriptionRepository.findByClubId("club1");
+
+        assertEquals(2, items.size());
+        verify(dynamoDbClient, times(2)).query(argThat((QueryRequest request) ->
+                SubscriptionTableSchema.CLUB_INDEX.equals(request.indexName())
+                        && "#k = :v".equals(request.keyConditionExpression())
+                        && "clubId".equals(request.expressionAttributeNames().get("#k"))
+                        && "club1".equals(request.expressionAttributeValues().get(":v").s())));
+        verify(dynamoDbClient).query(argThat((QueryRequest request) -> lastKey.equals(request.exclusiveStartKey())));
+    }
+
+    @Test
+    void testFindByTags_QueriesMembershipsAndKeepsExactMatches() {
+        Map<String, AttributeValue> lastKey = membership("AI", "sub1");
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            if (request.expressionAttributeValues().get(":v").s().equals("Music")) {
+                return QueryResponse.builder().items(membership("Music", "sub1"), membership("Music", "sub3")).build();
+            }
+            return request.hasExclusiveStartKey()
+                    ? QueryResponse.builder().items(membership("AI", "sub2")).build()
+                    : QueryResponse.builder().items(membership("AI", "sub1")).lastEvaluatedKey(lastKey).build();
+        });
+        Map<String, AttributeValue> sub1 = tagged(item("sub1"), AttributeValue.builder().ss("AI", "Music").build());
+        // A legacy string tag that only contains the queried tag
+        Map<String, AttributeValue> sub2 = tagged(item("sub2"), AttributeValue.builder().s("AIML").build());
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(sub1, sub2)))
+                        .build());
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        List<Map<String, AttributeValue>> items = subscriptionRepository.findByTags(List.of("AI", "Music", "AI"));
+
+        assertEquals(List.of(sub1), items);
+        verify(dynamoDbClient, times(3)).query(argThat((QueryRequest request) ->
+                SubscriptionTableSchema.TAG_TABLE_NAME.equals(request.tableName()) && request.indexName() == null));
+        verify(dynamoDbClient).batchGetItem(argThat((BatchGetItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TABLE_NAME).keys().size() == 3));
+        // The memberships of sub2 (lost AI) and sub3 (deleted) are repaired
+        verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).stream()
+                        .map(write -> write.deleteRequest().key().get(SubscriptionTableSchema.MEMBER_KEY).s())
+                        .sorted()
+                        .toList()
+                        .equals(List.of("user1#sub2", "user1#sub3"))));
+        verify(dynamoDbClient, never()).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    void testFindByTags_RejectsEmptyTags() {
+        assertThrows(IllegalArgumentException.class, () -> subscriptionRepository.findByTags(List.of("")));
+        verify(dynamoDbClient, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testAddSubscription_WritesMembershipsFirstAndDropsLostTags() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+        when(dynamoDbClient.putItem(any(PutItemRequest.class))).thenReturn(PutItemResponse.builder()
+                .attributes(tagged(item("sub1"), AttributeValue.builder().ss("AI", "Music").build()))
+                .build());
+
+        Subscription stored = subscriptionRepository.addSubscription(new Subscription(
+                "user1", "sub1", "tag", null, null, Set.of("AI"), "email", null, null, null, null));
+
+        assertEquals(1L, stored.version());
+
+        InOrder order = inOrder(dynamoDbClient);
+        order.verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).putRequest() != null
+                        && request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).putRequest()
+                                .item().get(SubscriptionTableSchema.TAG_KEY).s().equals("AI")));
+        order.verify(dynamoDbClient).putItem(any(PutItemRequest.class));
+        order.verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).deleteRequest() != null
+                        && request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).deleteRequest()
+                                .key().get(SubscriptionTableSchema.TAG_KEY).s().equals("Music")));
+    }
+
+    @Test
+    void testAddSubscription_ReplacesTheVersionItRead() {
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build())
+                .thenReturn(PutItemResponse.builder().build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(versioned(item("sub1"), 7)).build());
+
+        Subscription stored = subscriptionRepository.addSubscription(new Subscription(
+                "user1", "sub1", "club", "club1", null, null, "email", null, null, null, null));
+
+        assertEquals(8L, stored.version());
+        verify(dynamoDbClient).putItem(argThat((PutItemRequest request) ->
+                request.conditionExpression().equals("attribute_not_exists(#ver)")
+                        && request.item().get(SubscriptionUpdate.VERSION).n().equals("1")));
+        verify(dynamoDbClient).putItem(argThat((PutItemRequest request) ->
+                request.conditionExpression().equals("#ver = :expected")
+                        && request.expressionAttributeValues().get(":expected").n().equals("7")
+                        && request.item().get(SubscriptionUpdate.VERSION).n().equals("8")));
+    }
+
+    @Test
+    void testBackfillTagMemberships_WritesEveryMembership() {
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder()
+                .items(tagged(item("sub1"), AttributeValue.builder().ss("AI", "Music").build()), item("sub2"))
+                .build());
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        assertEquals(2, subscriptionRepository.backfillTagMemberships());
+        verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).size() == 2));
+    }
+
+    @Test
+    void testQuerySubscriptionsByUser_ProjectsAndPages() {
+        Map<String, AttributeValue> lastKey = item("sub1");
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(item("sub1")).lastEvaluatedKey(lastKey).build());
+
+        SubscriptionRepository.Page page = subscriptionRepository.querySubscriptionsByUser("user1", 1, null, List.of("clubId"));
+
+        assertEquals(1, page.items().size());
+        assertEquals(lastKey, page.lastEvaluatedKey());
+        verify(dynamoDbClient).query(argThat((QueryRequest request) ->
+                request.limit() == 1
+                        && request.indexName() == null
+                        && "#u, #s, #p0".equals(request.projectionExpression())
+                        && "clubId".equals(request.expressionAttributeNames().get("#p0"))));
+    }
+
+    @Test
+    void testBatchGetSubscriptions_RetriesUnprocessedKeys() {
+        List<Map<String, AttributeValue>> keys = items(2);
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(keys.get(0))))
+                        .unprocessedKeys(Map.of(SubscriptionTableSchema.TABLE_NAME,
+                                KeysAndAttributes.builder().keys(keys.get(1)).build()))
+                        .build())
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(keys.get(1))))
+                        .build());
+
+        List<Map<String, AttributeValue>> found = subscriptionRepository.batchGetSubscriptions(keys, List.of());
+
+        assertEquals(2, found.size());
+        verify(dynamoDbClient, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    void testUpdateSubscription_BuildsOneConditionalUpdate() {
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(UpdateItemResponse.builder().attributes(item("sub1")).build());
+
+        subscriptionRepository.updateSubscription("user1", "sub1", new SubscriptionUpdate()
+                .set("clubId", "club1")
+                .remove("digest")
+                .addToSet("tags", List.of("AI")), 3L);
+
+        verify(dynamoDbClient).updateItem(argThat((UpdateItemRequest request) ->
+                request.updateExpression().equals("SET #ver = if_not_exists(#ver, :zero) + :one, #a0 = :a0 REMOVE #a1 ADD #a2 :a2")
+                        && request.conditionExpression().equals("attribute_exists(#u) AND #ver = :expected"
+                                + " AND (attribute_not_exists(#t0) OR attribute_type(#t0, :ss))")
+                        && request.expressionAttributeNames().get("#t0").equals("tags")
+                        && request.expressionAttributeValues().get(":ss").s().equals("SS")
+                        && request.expressionAttributeValues().get(":expected").n().equals("3")
+                        && request.expressionAttributeValues().get(":a2").ss().equals(List.of("AI"))));
+        verify(dynamoDbClient, never()).getItem(any(GetItemRequest.class));
+        // The membership of the added tag is written before the update
+        InOrder order = inOrder(dynamoDbClient);
+        order.verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).putRequest()
+                        .item().get(SubscriptionTableSchema.MEMBER_KEY).s().equals("user1#sub1")));
+        order.verify(dynamoDbClient).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void testUpdateSubscription_VersionConflict() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(versioned(item("sub1"), 4)).build());
+
+        VersionConflictException e = assertThrows(VersionConflictException.class, () ->
+                subscriptionRepository.updateSubscription("user1", "sub1", new SubscriptionUpdate().set("clubId", "club1"), 3L));
+
+        assertEquals(4, e.getCurrentVersion());
+    }
+
+    @Test
+    void testUpdateSubscription_MissingSubscription() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+
+        assertThrows(IllegalArgumentException.class, () ->
+                subscriptionRepository.updateSubscription("user1", "sub1", new SubscriptionUpdate().set("clubId", "club1"), null));
+    }
+
+    @Test
+    void testUpdateSubscription_MigratesLegacyTagsAndRetriesOnConflict() {
+        Map<String, AttributeValue> legacy = new HashMap<>(versioned(item("sub1"), 2));
+        legacy.put("tags", AttributeValue.builder().s("AI,Music").build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build())
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build())
+                .thenReturn(UpdateItemResponse.builder().attributes(item("sub1")).build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(legacy).build());
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        subscriptionRepository.updateSubscription("user1", "sub1", new SubscriptionUpdate().deleteFromSet("tags", List.of("AI")), null);
+
+        verify(dynamoDbClient, times(3)).updateItem(any(UpdateItemRequest.class));
+        verify(dynamoDbClient, times(2)).updateItem(argThat((UpdateItemRequest request) ->
+                request.conditionExpression().equals("attribute_exists(#u) AND #ver = :expected")
+                        && request.expressionAttributeValues().get(":a0") != null
+                        && request.expressionAttributeValues().get(":a0").ss().equals(List.of("Music"))));
+        verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(SubscriptionTableSchema.TAG_TABLE_NAME).get(0).deleteRequest()
+                        .key().get(SubscriptionTableSchema.TAG_KEY).s().equals("AI")));
+    }
+
+    @Test
+    void testUpdateSubscription_RetriesWhenConditionFailedOnAConcurrentChange() {
+        Map<String, AttributeValue> migrated = new HashMap<>(versioned(item("sub1"), 3));
+        migrated.put("tags", AttributeValue.builder().ss("AI", "Music").build());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build())
+                .thenReturn(UpdateItemResponse.builder().attributes(migrated).build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(GetItemResponse.builder().item(migrated).build());
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        subscriptionRepository.updateSubscription("user1", "sub1", new SubscriptionUpdate().addToSet("tags", List.of("AI")), null);
+
+        // The tags were migrated by another writer in between: the same ADD is sent again
+        verify(dynamoDbClient, times(2)).updateItem(argThat((UpdateItemRequest request) ->
+                request.updateExpression().contains("ADD #a0 :a0")));
+    }
+
+    private Map<String, AttributeValue> versioned(Map<String, AttributeValue> item, long version) {
+        Map<String, AttributeValue> versioned = new HashMap<>(item);
+        versioned.put(SubscriptionUpdate.VERSION, AttributeValue.builder().n(Long.toString(version)).build());
+        return versioned;
+    }
+
+    private List<Map<String, AttributeValue>> items(int count) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(item("sub" + i));
+        }
+        return items;
+    }
+
+    // BatchGetItem of the current versions before a batch put
+    @SafeVarargs
+    private void stubVersions(Map<String, AttributeValue>... current) {
+        when(dynamoDbClient.batchGetItem(any(BatchGetItemRequest.class)))
+                .thenReturn(BatchGetItemResponse.builder()
+                        .responses(Map.of(SubscriptionTableSchema.TABLE_NAME, List.of(current)))
+                        .build());
+    }
+
+    private Map<String, AttributeValue> tagged(Map<String, AttributeValue> item, AttributeValue tags) {
+        Map<String, AttributeValue> tagged = new HashMap<>(item);
+        tagged.put("tags", tags);
+        return tagged;
+    }
+
+    private Map<String, AttributeValue> membership(String tag, String subscriptionId) {
+        return SubscriptionTableSchema.membership(tag, "user1", subscriptionId);
+    }
+
+    private Map<String, AttributeValue> item(String subscriptionId) {
+        return Map.of(
+                "userId", AttributeValue.builder().s("user1").build(),
+                "subscriptionId", AttributeValue.builder().s(subscriptionId).build()
+        );
+    }
+}
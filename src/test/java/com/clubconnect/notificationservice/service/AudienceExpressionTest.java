@@ -0,0 +1,62 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.clubconnect.notificationservice.service.AudienceExpression.And;
+import com.clubconnect.notificationservice.service.AudienceExpression.Club;
+import com.clubconnect.notificationservice.service.AudienceExpression.Minus;
+import com.clubconnect.notificationservice.service.AudienceExpression.Muted;
+import com.clubconnect.notificationservice.service.AudienceExpression.Or;
+import com.clubconnect.notificationservice.service.AudienceExpression.Tag;
+import com.clubconnect.notificationservice.service.AudienceExpression.User;
+
+class AudienceExpressionTest {
+
+    @Test
+    void testParse_PrecedenceMinusAppliesToWholeAudience() {
+        AudienceExpression expression = AudienceExpression.parse("club:X OR (tag:a AND tag:b) MINUS muted");
+
+        assertEquals(new Minus(new Or(new Club("X"), new And(new Tag("a"), new Tag("b"))), new Muted()), expression);
+    }
+
+    @Test
+    void testParse_AndBindsTighterThanOr() {
+        AudienceExpression expression = AudienceExpression.parse("tag:a or tag:b and user:u1");
+
+        assertEquals(new Or(new Tag("a"), new And(new Tag("b"), new User("u1"))), expression);
+    }
+
+    @Test
+    void testParse_QuotedValues() {
+        AudienceExpression expression = AudienceExpression.parse("tag:\"Machine Learning\" OR tag:\"OR\"");
+
+        assertEquals(new Or(new Tag("Machine Learning"), new Tag("OR")), expression);
+    }
+
+    @Test
+    void testParse_RejectsMalformedExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse("club:X OR"));
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse("(club:X"));
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse("club:X tag:a"));
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse("group:X"));
+        assertThrows(IllegalArgumentException.class, () -> AudienceExpression.parse("tag:\"AI"));
+    }
+
+    @Test
+    void testSelectingTerms_SkipsExcludedTerms() {
+        List<String> clubs = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+
+        AudienceExpression.selectingTerms(AudienceExpression.parse("club:X OR tag:a MINUS (tag:b OR club:Y)"), clubs, tags);
+
+        assertEquals(List.of("X"), clubs);
+        assertEquals(List.of("a"), tags);
+    }
+}
@@ -0,0 +1,84 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+class DigestSchedulerTest {
+
+    @Mock
+    private DigestBuffer digestBuffer;
+
+    @Mock
+    private UserEmailCache userEmailCache;
+
+    @Mock
+    private EmailService emailService;
+
+    private DigestScheduler digestScheduler;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        TemplateEngine templateEngine = new TemplateEngine(new DefaultResourceLoader(), "classpath:templates/notifications/",
+                List.of("club", "tag", "digest"), "ClubConnect: New Event Notification");
+        digestScheduler = new DigestScheduler(digestBuffer, userEmailCache, emailService, templateEngine);
+    }
+
+    @Test
+    void testRenderDigest_ListsEventsOldestFirstWithDigestSubject() {
+        RenderedMessage message = digestScheduler.renderDigest(DigestMode.HOURLY, List.of(
+                new DigestEntry("102", "456", List.of("AI"), false, List.of("AI"), 2_000L),
+                new DigestEntry("101", "123", List.of(), true, List.of(), 1_000L)));
+
+        assertEquals("ClubConnect: Your hourly digest of 2 new events", message.subject());
+        assertEquals("Hello!\n\n"
+                + "Here is your hourly digest of 2 new events.\n\n"
+                + "- Event ID: 101 (Club ID: 123)\n"
+                + "  From a club you follow\n"
+                + "  Added: 1970-01-01T00:00:01Z\n"
+                + "- Event ID: 102 (Club ID: 456)\n"
+                + "  Matches your interests: AI\n"
+                + "  Added: 1970-01-01T00:00:02Z\n\n"
+                + "Best regards,\n"
+                + "ClubConnect Team", message.text());
+        assertTrue(message.html().contains("<li><strong>Event 101</strong> (Club ID: 123)<br>From a club you follow"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_SendsRenderedDigest() {
+        when(digestBuffer.pendingUsers(DigestMode.DAILY)).thenReturn(Set.of("user1"));
+        when(userEmailCache.getEmail("user1")).thenReturn("user1@example.com");
+        when(emailService.sendNotification(eq("user1@example.com"), any(RenderedMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(digestBuffer.flush(eq(DigestMode.DAILY), eq("user1"), any())).thenAnswer(invocation ->
+                invocation.<Predicate<List<DigestEntry>>>getArgument(2).test(
+                        List.of(new DigestEntry("101", "123", List.of(), true, List.of(), 1_000L))));
+
+        assertEquals(1, digestScheduler.flush(DigestMode.DAILY));
+
+        ArgumentCaptor<RenderedMessage> message = ArgumentCaptor.forClass(RenderedMessage.class);
+        verify(emailService).sendNotification(eq("user1@example.com"), message.capture());
+        assertEquals("ClubConnect: Your daily digest of 1 new event", message.getValue().subject());
+    }
+}
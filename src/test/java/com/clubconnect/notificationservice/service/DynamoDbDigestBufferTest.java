@@ -0,0 +1,158 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.repository.DigestTableSchema;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+class DynamoDbDigestBufferTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamoDbDigestBuffer digestBuffer;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = mock(DynamoDbClient.class);
+        digestBuffer = new DynamoDbDigestBuffer(dynamoDbClient, DigestTableSchema.TABLE_NAME, 300);
+    }
+
+    @Test
+    void testVerifyTable_FailsFastWhenTableIsMissing() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("not found").build());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, digestBuffer::verifyTable);
+        assertTrue(e.getMessage().contains(DigestTableSchema.TABLE_NAME));
+    }
+
+    @Test
+    void testVerifyTable_AcceptsExistingTable() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(DescribeTableResponse.builder().build());
+
+        digestBuffer.verifyTable();
+
+        verify(dynamoDbClient).describeTable(argThat((DescribeTableRequest request) ->
+                request.tableName().equals(DigestTableSchema.TABLE_NAME)));
+    }
+
+    @Test
+    void testAppend_PutsEntryIntoUserBuffer() {
+        digestBuffer.append(DigestMode.HOURLY, "user1", entry("101"));
+
+        ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient).putItem(request.capture());
+        Map<String, AttributeValue> item = request.getValue().item();
+        assertEquals("hourly#user1", item.get(DigestTableSchema.BUFFER_KEY).s());
+        assertTrue(item.get(DigestTableSchema.ENTRY_KEY).s().matches("\\d{13}#.+"));
+        assertEquals("hourly", item.get("mode").s());
+        assertTrue(item.get("payload").s().contains("\"eventId\":\"101\""));
+    }
+
+    @Test
+    void testPendingUsers_FollowsEveryPage() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder()
+                        .items(Map.of("userId", string("user1")))
+                        .lastEvaluatedKey(Map.of(DigestTableSchema.BUFFER_KEY, string("hourly#user1")))
+                        .build())
+                .thenReturn(ScanResponse.builder().items(Map.of("userId", string("user2"))).build());
+
+        assertEquals(Set.of("user1", "user2"), digestBuffer.pendingUsers(DigestMode.HOURLY));
+        verify(dynamoDbClient, times(2)).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    void testFlush_SendsAndDeletesClaimedEntries() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder().build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(stored("101", "1"), stored("102", "2")).build());
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder().build());
+
+        List<DigestEntry> sent = new ArrayList<>();
+        assertTrue(digestBuffer.flush(DigestMode.HOURLY, "user1", entries -> sent.addAll(entries)));
+
+        assertEquals(List.of("101", "102"), sent.stream().map(DigestEntry::getEventId).toList());
+        verify(dynamoDbClient).batchWriteItem(argThat((BatchWriteItemRequest request) ->
+                request.requestItems().get(DigestTableSchema.TABLE_NAME).size() == 2));
+        verify(dynamoDbClient).updateItem(argThat((UpdateItemRequest request) ->
+                request.updateExpression().contains("SET #flushedAt")));
+    }
+
+    @Test
+    void testFlush_SkipsUserClaimedByAnotherNode() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("claimed").build());
+
+        assertFalse(digestBuffer.flush(DigestMode.HOURLY, "user1", entries -> true));
+
+        verify(dynamoDbClient, never()).query(any(QueryRequest.class));
+        verify(dynamoDbClient, times(1)).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void testFlush_KeepsEntriesWhenSendFails() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder().build());
+        when(dynamoDbClient.query(any(QueryRequest.class)))
+                .thenReturn(QueryResponse.builder().items(stored("101", "1")).build());
+
+        assertFalse(digestBuffer.flush(DigestMode.HOURLY, "user1", entries -> false));
+
+        verify(dynamoDbClient, never()).batchWriteItem(any(BatchWriteItemRequest.class));
+        verify(dynamoDbClient).updateItem(argThat((UpdateItemRequest request) ->
+                request.updateExpression().equals("REMOVE #leaseUntil")));
+    }
+
+    private Map<String, AttributeValue> stored(String eventId, String suffix) {
+        return Map.of(
+                DigestTableSchema.BUFFER_KEY, string("hourly#user1"),
+                DigestTableSchema.ENTRY_KEY, string(DynamoDbDigestBuffer.entryKey(1_000L) + "#" + suffix),
+                "payload", string("{\"eventId\":\"" + eventId + "\",\"clubId\":\"123\",\"tags\":[\"AI\"],"
+                        + "\"club\":true,\"matchedTags\":[\"AI\"],\"createdAt\":1000}"));
+    }
+
+    private DigestEntry entry(String eventId) {
+        return new DigestEntry(eventId, "123", List.of("AI"), true, List.of("AI"), System.currentTimeMillis());
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+}
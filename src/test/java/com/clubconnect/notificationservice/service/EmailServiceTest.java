@@ -0,0 +1,120 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+
+class EmailServiceTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private MailDeliveryEngine deliveryEngine;
+
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        emailService = new EmailService(mailSender, deliveryEngine);
+        ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@example.com");
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+    }
+
+    @Test
+    void testSendNotification_SubmitsToDeliveryEngine() throws Exception {
+        when(deliveryEngine.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<Void> result = emailService.sendNotification("user1@example.com", "101", "Hello!");
+
+        ArgumentCaptor<MimeMessage> message = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(deliveryEngine).submit(message.capture());
+        assertEquals("user1@example.com", message.getValue().getAllRecipients()[0].toString());
+        assertTrue(result.isDone());
+    }
+
+    @Test
+    void testSendNotification_RenderedMessageWithHtmlIsMultipart() throws Exception {
+        when(deliveryEngine.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        emailService.sendNotification("user1@example.com", new RenderedMessage("Subject", "Hello, \"world\"!", "<p>Hello</p>"));
+
+        ArgumentCaptor<MimeMessage> message = ArgumentCaptor.forClass(MimeMessage.class);
+        verify(deliveryEngine).submit(message.capture());
+        message.getValue().saveChanges();
+        assertEquals("Subject", message.getValue().getSubject());
+        assertTrue(message.getValue().getContent() instanceof MimeMultipart);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        message.getValue().writeTo(raw);
+        assertTrue(raw.toString(StandardCharsets.UTF_8).contains("Hello, \"world\"!"));
+        assertTrue(raw.toString(StandardCharsets.UTF_8).contains("<p>Hello</p>"));
+    }
+
+    @Test
+    void testSendBulkNotification_GroupsRecipientsIntoEnvelopes() throws Exception {
+        ReflectionTestUtils.setField(emailService, "maxRecipientsPerEnvelope", 2);
+        when(deliveryEngine.submit(any(MimeMessage.class), any(Address[].class)))
+                .thenReturn(CompletableFuture.completedFuture(Set.of()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of("bad@example.com")))
+                .thenReturn(CompletableFuture.failedFuture(new MessagingException("Connection lost")));
+
+        Set<String> failed = emailService.sendBulkNotification(
+                List.of("a@example.com", "b@example.com", "bad@example.com", "c@example.com", "d@example.com"),
+                new RenderedMessage("Subject", "Hello!", null)).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<MimeMessage> messages = ArgumentCaptor.forClass(MimeMessage.class);
+        ArgumentCaptor<Address[]> envelopes = ArgumentCaptor.forClass(Address[].class);
+        verify(deliveryEngine, times(3)).submit(messages.capture(), envelopes.capture());
+        assertEquals(List.of(2, 2, 1), envelopes.getAllValues().stream().map(envelope -> envelope.length).toList());
+        assertEquals(Set.of("bad@example.com", "d@example.com"), failed);
+
+        // Recipients only appear in the envelope, never in the headers
+        MimeMessage first = messages.getAllValues().get(0);
+        assertNull(first.getRecipients(Message.RecipientType.BCC));
+        assertEquals("undisclosed-recipients:;", first.getHeader("To", null));
+    }
+
+    @Test
+    void testSendBulkNotification_CancellingDropsQueuedEnvelopes() {
+        ReflectionTestUtils.setField(emailService, "maxRecipientsPerEnvelope", 2);
+        CompletableFuture<Set<String>> first = new CompletableFuture<>();
+        CompletableFuture<Set<String>> second = new CompletableFuture<>();
+        when(deliveryEngine.submit(any(MimeMessage.class), any(Address[].class))).thenReturn(first).thenReturn(second);
+
+        emailService.sendBulkNotification(List.of("a@example.com", "b@example.com", "c@example.com"),
+                new RenderedMessage("Subject", "Hello!", null)).cancel(false);
+
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+    }
+}
@@ -0,0 +1,118 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class FanoutExecutorTest {
+
+    private FanoutExecutor fanoutExecutor;
+
+    @AfterEach
+    void tearDown() {
+        if (fanoutExecutor != null) {
+            fanoutExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void testForEach_RunsEveryTask() {
+        fanoutExecutor = new FanoutExecutor("platform", 4, 4, 5000);
+        List<Integer> items = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+        var seen = ConcurrentHashMap.<Integer>newKeySet();
+
+        FanoutExecutor.FanoutResult result = fanoutExecutor.forEach(items, seen::add);
+
+        assertEquals(50, result.completed());
+        assertEquals(0, result.failed());
+        assertEquals(0, result.timedOut());
+        assertEquals(50, seen.size());
+    }
+
+    @Test
+    void testForEach_RespectsPerEventConcurrencyCap() {
+        fanoutExecutor = new FanoutExecutor("platform", 8, 2, 5000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        fanoutExecutor.forEach(IntStream.range(0, 20).boxed().collect(Collectors.toList()), item -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            sleep(5);
+            running.decrementAndGet();
+        });
+
+        assertTrue(maxRunning.get() <= 2, "At most 2 tasks should run at once, saw " + maxRunning.get());
+    }
+
+    @Test
+    void testForEach_TasksLogWithCallerContext() {
+        fanoutExecutor = new FanoutExecutor("platform", 2, 2, 5000);
+        var seen = ConcurrentHashMap.<String>newKeySet();
+
+        try (MDC.MDCCloseable context = LogContext.event("event1")) {
+            fanoutExecutor.forEach(List.of(1, 2, 3), item -> seen.add(String.valueOf(MDC.get(LogContext.EVENT_ID))));
+        }
+
+        assertEquals(Set.of("event1"), seen);
+    }
+
+    @Test
+    void testForEach_CountsFailures() {
+        fanoutExecutor = new FanoutExecutor("platform", 2, 2, 5000);
+
+        FanoutExecutor.FanoutResult result = fanoutExecutor.forEach(List.of(1, 2, 3, 4), item -> {
+            if (item % 2 == 0) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        assertEquals(2, result.completed());
+        assertEquals(2, result.failed());
+    }
+
+    @Test
+    void testForEach_CancelsTasksPastTheDeadline() {
+        fanoutExecutor = new FanoutExecutor("platform", 2, 2, 100);
+        CountDownLatch never = new CountDownLatch(1);
+
+        FanoutExecutor.FanoutResult result = fanoutExecutor.forEach(List.of(1, 2, 3, 4), item -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertEquals(0, result.completed());
+        assertEquals(4, result.timedOut());
+    }
+
+    @Test
+    void testVirtualMode_FallsBackWhenUnavailable() {
+        fanoutExecutor = new FanoutExecutor("virtual", 2, 2, 5000);
+
+        boolean supported = Runtime.version().feature() >= 21;
+        assertEquals(supported ? "virtual" : "platform", fanoutExecutor.getMode());
+        assertEquals(3, fanoutExecutor.forEach(List.of(1, 2, 3), item -> { }).completed());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.clubconnect.notificationservice.model.DigestEntry;
+import com.clubconnect.notificationservice.model.DigestMode;
+
+class FileDigestBufferTest {
+
+    @TempDir
+    Path directory;
+
+    private FileDigestBuffer digestBuffer;
+
+    @BeforeEach
+    void setUp() {
+        digestBuffer = new FileDigestBuffer(directory.toString());
+    }
+
+    @Test
+    void testFlush_RemovesEntriesAfterSuccessfulSend() {
+        digestBuffer.append(DigestMode.HOURLY, "user/1", entry("101"));
+        digestBuffer.append(DigestMode.HOURLY, "user/1", entry("102"));
+        digestBuffer.append(DigestMode.DAILY, "user2", entry("103"));
+
+        assertEquals(Set.of("user/1"), digestBuffer.pendingUsers(DigestMode.HOURLY));
+
+        List<DigestEntry> sent = new ArrayList<>();
+        assertTrue(digestBuffer.flush(DigestMode.HOURLY, "user/1", entries -> sent.addAll(entries)));
+
+        assertEquals(2, sent.size());
+        assertTrue(digestBuffer.pendingUsers(DigestMode.HOURLY).isEmpty());
+        assertEquals(Set.of("user2"), digestBuffer.pendingUsers(DigestMode.DAILY));
+    }
+
+    @Test
+    void testFlush_KeepsEntriesWhenSendFails() {
+        digestBuffer.append(DigestMode.HOURLY, "user1", entry("101"));
+
+        assertFalse(digestBuffer.flush(DigestMode.HOURLY, "user1", entries -> false));
+        digestBuffer.append(DigestMode.HOURLY, "user1", entry("102"));
+
+        List<DigestEntry> sent = new ArrayList<>();
+        assertTrue(digestBuffer.flush(DigestMode.HOURLY, "user1", entries -> sent.addAll(entries)));
+        assertEquals(2, sent.size());
+    }
+
+    private DigestEntry entry(String eventId) {
+        return new DigestEntry(eventId, "123", List.of("AI"), true, List.of("AI"), System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,53 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+class HttpUserDirectoryTest {
+
+    private RestTemplate restTemplate;
+    private HttpUserDirectory userDirectory;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        userDirectory = new HttpUserDirectory(restTemplate, "https://example.com/api/auth/email/{username}", "", 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userDirectory.shutdown();
+    }
+
+    @Test
+    void testResolveEmails_SeparatesUnknownFromUnresolvedUsers() {
+        when(restTemplate.getForObject("https://example.com/api/auth/email/user1", String.class))
+                .thenReturn("user1@example.com");
+        when(restTemplate.getForObject("https://example.com/api/auth/email/ghost", String.class))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        when(restTemplate.getForObject("https://example.com/api/auth/email/user2", String.class))
+                .thenThrow(new ResourceAccessException("timeout"));
+
+        Map<String, String> emails = userDirectory.resolveEmails(List.of("user1", "ghost", "user2"));
+
+        assertEquals("user1@example.com", emails.get("user1"));
+        assertTrue(emails.containsKey("ghost"));
+        assertNull(emails.get("ghost"));
+        assertFalse(emails.containsKey("user2"));
+    }
+}
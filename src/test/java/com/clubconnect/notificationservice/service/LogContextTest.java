@@ -0,0 +1,62 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class LogContextTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void testSampled_RateBoundsAndStableDecision() {
+        try (MDC.MDCCloseable context = LogContext.event("event1")) {
+            assertTrue(LogContext.sampled(1.0, "user1"));
+            assertFalse(LogContext.sampled(0.0, "user1"));
+            assertEquals(LogContext.sampled(0.5, "user1"), LogContext.sampled(0.5, "user1"));
+
+            long sampled = IntStream.range(0, 10000).filter(i -> LogContext.sampled(0.1, "user" + i)).count();
+            assertTrue(sampled > 800 && sampled < 1200, "sampled " + sampled);
+        }
+    }
+
+    @Test
+    void testRecipient_PutsUserIdWhileOpen() {
+        try (MDC.MDCCloseable context = LogContext.event("event1");
+             MDC.MDCCloseable user = LogContext.recipient("user1")) {
+            assertEquals("user1", MDC.get(LogContext.USER_ID));
+            assertEquals("user1", LogContext.capture().get(LogContext.USER_ID));
+        }
+        assertNull(MDC.get(LogContext.USER_ID));
+    }
+
+    @Test
+    void testRun_CarriesContextToOtherThreadAndRestores() {
+        AtomicReference<String> seen = new AtomicReference<>();
+        Map<String, String> captured;
+        try (MDC.MDCCloseable context = LogContext.event("event1")) {
+            captured = LogContext.capture();
+        }
+
+        CompletableFuture.runAsync(() -> {
+            LogContext.run(captured, () -> seen.set(MDC.get(LogContext.EVENT_ID)));
+            assertNull(MDC.get(LogContext.EVENT_ID));
+        }).join();
+
+        assertEquals("event1", seen.get());
+        assertNull(MDC.get(LogContext.EVENT_ID));
+    }
+}
@@ -0,0 +1,136 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import com.clubconnect.notificationservice.model.NotificationEvent;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NotificationMatcherTest {
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    @Spy
+    private NotificationMetrics metrics = new NotificationMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private NotificationMatcher notificationMatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testMatch_RecordsMatchReasons() {
+        when(subscriptionService.findSubscriptionsForEvent("123", List.of("Technology", "AI"))).thenReturn(List.of(
+                subscription(Map.of("subscriptionId", "sub1", "userId", "user1", "clubId", "123")),
+                subscription(Map.of("subscriptionId", "sub2", "userId", "user2", "tags", "AI,Music")),
+                subscription(Map.of("subscriptionId", "sub3", "clubId", "123"))
+        ));
+
+        List<Recipient> recipients = notificationMatcher.match("123", List.of("Technology", "AI"));
+
+        assertEquals(2, recipients.size());
+        assertTrue(recipients.get(0).isClub());
+        assertTrue(recipients.get(0).getTags().isEmpty());
+        assertFalse(recipients.get(1).isClub());
+        assertEquals(List.of("AI"), recipients.get(1).getTags());
+    }
+
+    @Test
+    void testMatch_CoalescesSubscriptionsOfTheSameUser() {
+        when(subscriptionService.findSubscriptionsForEvent("123", List.of("Technology", "AI"))).thenReturn(List.of(
+                subscription(Map.of("subscriptionId", "sub1", "userId", "user1", "clubId", "123")),
+                subscription(Map.of("subscriptionId", "sub2", "userId", "user1", "tag", "AI")),
+                subscription(Map.of("subscriptionId", "sub3", "userId", "user1", "tags", "Technology,AI"))
+        ));
+
+        List<Recipient> recipients = notificationMatcher.match("123", List.of("Technology", "AI"));
+
+        assertEquals(1, recipients.size());
+        Recipient recipient = recipients.get(0);
+        assertTrue(recipient.isClub());
+        assertEquals(List.of("Technology", "AI"), recipient.getTags());
+        assertEquals(List.of("sub1", "sub2", "sub3"), recipient.getSubscriptionIds());
+    }
+
+    @Test
+    void testMatchAll_ResolvesEachDistinctAudienceOnce() {
+        when(subscriptionService.findSubscriptionsForEventAsync("123", List.of("AI"))).thenReturn(
+                CompletableFuture.completedFuture(List.of(subscription(Map.of("subscriptionId", "sub1", "userId", "user1", "clubId", "123")))));
+        when(subscriptionService.findSubscriptionsForEventAsync("456", List.of("AI"))).thenReturn(
+                CompletableFuture.completedFuture(List.of()));
+
+        List<List<Recipient>> audiences = notificationMatcher.matchAll(List.of(
+                new NotificationEvent("101", "123", List.of("AI")),
+                new NotificationEvent("102", "456", List.of("AI")),
+                new NotificationEvent("103", "123", List.of("AI")))).stream().map(CompletableFuture::join).toList();
+
+        assertEquals(3, audiences.size());
+        assertEquals(1, audiences.get(0).size());
+        assertTrue(audiences.get(1).isEmpty());
+        assertEquals(audiences.get(0), audiences.get(2));
+        verify(subscriptionService, times(1)).findSubscriptionsForEventAsync("123", List.of("AI"));
+    }
+
+    @Test
+    void testMatchAll_FailedLookupOnlyFailsItsOwnEvents() {
+        when(subscriptionService.findSubscriptionsForEventAsync("123", List.of("AI"))).thenReturn(
+                CompletableFuture.completedFuture(List.of(subscription(Map.of("subscriptionId", "sub1", "userId", "user1", "clubId", "123")))));
+        when(subscriptionService.findSubscriptionsForEventAsync("456", List.of("AI"))).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("throttled")));
+        when(subscriptionService.findSubscriptionsForEventAsync("789", List.of("AI")))
+                .thenThrow(new IllegalArgumentException("Too many tags"));
+
+        List<CompletableFuture<List<Recipient>>> audiences = notificationMatcher.matchAll(List.of(
+                new NotificationEvent("101", "123", List.of("AI")),
+                new NotificationEvent("102", "456", List.of("AI")),
+                new NotificationEvent("103", "789", List.of("AI"))));
+
+        assertEquals(1, audiences.get(0).join().size());
+        assertTrue(audiences.get(1).isCompletedExceptionally());
+        assertTrue(audiences.get(2).isCompletedExceptionally());
+    }
+
+    @Test
+    void testMatchAudience_EverySelectedUserIsARecipient() {
+        when(subscriptionService.findSubscriptionsForAudienceAsync(AudienceExpression.parse("tag:AI OR user:user2"))).thenReturn(
+                CompletableFuture.completedFuture(List.of(
+                        subscription(Map.of("subscriptionId", "sub1", "userId", "user1", "tags", "AI,Music")),
+                        subscription(Map.of("subscriptionId", "sub2", "userId", "user2", "clubId", "999")),
+                        subscription(Map.of("subscriptionId", "sub3", "userId", "user2", "clubId", "123")))));
+
+        List<Recipient> recipients = notificationMatcher.matchAudience("123", List.of("Technology"), "tag:AI OR user:user2");
+
+        assertEquals(2, recipients.size());
+        assertFalse(recipients.get(0).isClub());
+        assertEquals(List.of("AI"), recipients.get(0).getTags());
+        assertTrue(recipients.get(1).isClub());
+        assertEquals(List.of("sub2", "sub3"), recipients.get(1).getSubscriptionIds());
+    }
+
+    private static Subscription subscription(Map<String, String> details) {
+        return SubscriptionCodec.fromRequest(null, null, details);
+    }
+}
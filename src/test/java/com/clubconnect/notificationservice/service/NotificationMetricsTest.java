@@ -0,0 +1,47 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NotificationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final NotificationMetrics metrics = new NotificationMetrics(registry);
+
+    @Test
+    void testRecord_OneTimerPerStage() {
+        metrics.record(NotificationMetrics.PARSE, metrics.start());
+        metrics.record(NotificationMetrics.PARSE, metrics.start());
+        metrics.record(NotificationMetrics.SEND, metrics.start());
+
+        assertEquals(2L, registry.get("notification.stage").tag("stage", "parse").timer().count());
+        assertEquals(1L, registry.get("notification.stage").tag("stage", "send").timer().count());
+    }
+
+    @Test
+    void testCounters_TaggedByOutcome() {
+        metrics.events("dispatched", 3);
+        metrics.events("invalid", 1);
+        metrics.emails("sent", 5);
+
+        assertEquals(3.0, registry.get("notification.events").tag("outcome", "dispatched").counter().count());
+        assertEquals(1.0, registry.get("notification.events").tag("outcome", "invalid").counter().count());
+        assertEquals(5.0, registry.get("notification.emails").tag("outcome", "sent").counter().count());
+    }
+
+    @Test
+    void testActiveConsumers_GaugeFollowsCounter() {
+        AtomicInteger active = metrics.activeConsumers("queue1");
+        active.incrementAndGet();
+        active.incrementAndGet();
+
+        assertSame(active, metrics.activeConsumers("queue1"));
+        assertEquals(2.0, registry.get("notification.consumer.active").tag("queue", "queue1").gauge().value());
+    }
+}
@@ -0,0 +1,104 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.clubconnect.notificationservice.model.DigestMode;
+import com.clubconnect.notificationservice.model.Recipient;
+import com.clubconnect.notificationservice.model.RenderedMessage;
+
+class NotificationRendererTest {
+
+    private TemplateEngine templateEngine;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = new TemplateEngine(new DefaultResourceLoader(), "classpath:templates/notifications/",
+                List.of("club", "tag"), "ClubConnect: New Event Notification");
+    }
+
+    @Test
+    void testRender_ClubTemplateMatchesPreviousBody() {
+        NotificationRenderer renderer = new NotificationRenderer(templateEngine, 16);
+
+        RenderedMessage message = renderer.render(recipient("user1", true, List.of("AI")), "101", "123", List.of("AI", "Music"));
+
+        assertEquals("Hello!\n\n"
+                + "A new event has been added to the club you follow.\n\n"
+                + "Club ID: 123\n"
+                + "Event ID: 101\n"
+                + "Tags: AI, Music\n\n"
+                + "It also matches your interests: AI\n\n"
+                + "Don't miss it!\n\n"
+                + "Best regards,\n"
+                + "ClubConnect Team", message.text());
+        assertEquals("ClubConnect: New Event Notification", message.subject());
+        assertTrue(message.html().contains("<td>AI, Music</td>"));
+    }
+
+    @Test
+    void testRender_TagTemplate() {
+        NotificationRenderer renderer = new NotificationRenderer(templateEngine, 16);
+
+        RenderedMessage message = renderer.render(recipient("user1", false, List.of("AI", "Music")), "101", "123", List.of("AI", "Music"));
+
+        assertTrue(message.text().startsWith("Hi!\n\nA new event matching your interest in 'AI', 'Music' has been added."));
+        assertTrue(message.html().contains("&#39;AI&#39;, &#39;Music&#39;"));
+    }
+
+    @Test
+    void testRender_TagTemplateWithoutInterests() {
+        NotificationRenderer renderer = new NotificationRenderer(templateEngine, 16);
+
+        RenderedMessage message = renderer.render(recipient("user1", false, List.of()), "101", "123", List.of("AI"));
+
+        assertTrue(message.text().startsWith("Hi!\n\nA new event has been added."));
+    }
+
+    @Test
+    void testRender_SharedByRecipientsMatchedAlike() {
+        NotificationRenderer renderer = new NotificationRenderer(templateEngine, 16);
+        List<String> tags = List.of("AI");
+
+        RenderedMessage first = renderer.render(recipient("user1", true, List.of()), "101", "123", tags);
+        RenderedMessage second = renderer.render(recipient("user2", true, List.of()), "101", "123", tags);
+        RenderedMessage otherReason = renderer.render(recipient("user3", false, tags), "101", "123", tags);
+        RenderedMessage otherEvent = renderer.render(recipient("user1", true, List.of()), "102", "123", tags);
+
+        assertSame(first, second);
+        assertNotSame(first, otherReason);
+        assertNotSame(first, otherEvent);
+    }
+
+    @Test
+    void testRender_CacheIsBounded() {
+        NotificationRenderer renderer = new NotificationRenderer(templateEngine, 1);
+        List<String> tags = List.of("AI");
+
+        RenderedMessage first = renderer.render(recipient("user1", true, List.of()), "101", "123", tags);
+        renderer.render(recipient("user1", true, List.of()), "102", "123", tags);
+
+        assertNotSame(first, renderer.render(recipient("user1", true, List.of()), "101", "123", tags));
+    }
+
+    @Test
+    void testTemplateEngine_UnknownTemplate() {
+        assertThrows(IllegalArgumentException.class, () -> templateEngine.render("missing", Map.of()));
+        assertThrows(IllegalStateException.class, () -> new TemplateEngine(new DefaultResourceLoader(),
+                "classpath:templates/notifications/", List.of("missing"), "Subject"));
+    }
+
+    private static Recipient recipient(String userId, boolean club, List<String> tags) {
+        return new Recipient(userId, List.of("sub-" + userId), club, tags, DigestMode.IMMEDIATE);
+    }
+}
@@ -0,0 +1,53 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class NotificationTemplateTest {
+
+    @Test
+    void testRender_PlaceholdersAndSections() {
+        NotificationTemplate template = NotificationTemplate.compile("test", "Event {{eventId}}.{{#extra}} Also: {{extra}}.{{/extra}}", false);
+
+        assertEquals("Event 101. Also: AI, Music.", template.render(Map.of("eventId", "101", "extra", "AI, Music")));
+        assertEquals("Event 101.", template.render(Map.of("eventId", "101", "extra", "")));
+        assertEquals("Event .", template.render(Map.of()));
+    }
+
+    @Test
+    void testRender_KeepsPunctuationOfValues() {
+        NotificationTemplate template = NotificationTemplate.compile("test", "Tags: {{tags}}", false);
+
+        assertEquals("Tags: \"AI\", {Music}", template.render(Map.of("tags", "\"AI\", {Music}")));
+    }
+
+    @Test
+    void testRender_HtmlEscapesValuesOnly() {
+        NotificationTemplate template = NotificationTemplate.compile("test", "<p>{{name}}</p>", true);
+
+        assertEquals("<p>&lt;b&gt;R&amp;D&lt;/b&gt;</p>", template.render(Map.of("name", "<b>R&D</b>")));
+    }
+
+    @Test
+    void testRender_RepeatsListSectionPerItem() {
+        NotificationTemplate template = NotificationTemplate.compile("test",
+                "{{title}}:{{#events}} [{{eventId}}{{#club}} club{{/club}} of {{title}}]{{/events}}", false);
+
+        assertEquals("Digest: [101 club of Digest] [102 of Digest]", template.render(Map.of(
+                "title", "Digest",
+                "events", List.of(Map.of("eventId", "101", "club", "yes"), Map.of("eventId", "102")))));
+        assertEquals("Digest:", template.render(Map.of("title", "Digest", "events", List.of())));
+    }
+
+    @Test
+    void testCompile_RejectsUnclosedTags() {
+        assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("test", "Hello {{name", false));
+        assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("test", "{{#a}}text", false));
+        assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("test", "{{#a}}text{{/b}}", false));
+    }
+}
@@ -0,0 +1,113 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
+
+class SubscriptionIndexTest {
+
+    private SubscriptionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SubscriptionIndex();
+        index.put(subscription("user1", "sub1", Map.of("clubId", "club1")));
+        index.put(subscription("user2", "sub2", Map.of("tags", "AI,Technology")));
+        index.put(subscription("user3", "sub3", Map.of("clubId", "club1", "tag", "AI")));
+    }
+
+    @Test
+    void testFindForEvent_DeduplicatesClubAndTagMatches() {
+        Collection<Subscription> result = index.findForEvent("club1", List.of("AI", "Technology"));
+
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    void testPut_ReplacesPostings() {
+        index.put(subscription("user1", "sub1", Map.of("clubId", "club2")));
+
+        assertTrue(index.findByClub("club1").stream().noneMatch(s -> "user1".equals(s.userId())));
+        assertEquals(1, index.findByClub("club2").size());
+    }
+
+    @Test
+    void testPut_IgnoresOlderVersion() {
+        assertTrue(index.put(versioned(subscription("user1", "sub1", Map.of("clubId", "club2")), 3)));
+        assertFalse(index.put(versioned(subscription("user1", "sub1", Map.of("clubId", "club3")), 2)));
+
+        assertEquals(1, index.findByClub("club2").size());
+        assertTrue(index.findByClub("club3").isEmpty());
+    }
+
+    @Test
+    void testRemove() {
+        index.remove("user2", "sub2");
+        index.removeBySubscriptionId("sub3");
+
+        assertTrue(index.findByTag("AI").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testPut_PostsUnderIndexedTagAndTags() {
+        index.put(subscription("user4", "sub4", Map.of("tag", "Music", "tags", "[Art, Film]")));
+
+        assertEquals(1, index.findByTag("Music").size());
+        assertEquals(1, index.findByTag("Art").size());
+        assertEquals(1, index.findByTag("Film").size());
+    }
+
+    @Test
+    void testFindForEvent_UserPostedWhileAnySubscriptionCarriesTheTerm() {
+        index.put(subscription("user3", "sub4", Map.of("clubId", "club1")));
+        index.remove("user3", "sub3");
+
+        assertEquals(1, index.findByClub("club1").stream().filter(s -> "user3".equals(s.userId())).count());
+        assertEquals(List.of("sub2"), index.findByTag("AI").stream().map(Subscription::subscriptionId).toList());
+    }
+
+    @Test
+    void testFindForAudience_EvaluatesExpression() {
+        index.put(subscription("user4", "sub4", Map.of("tags", "AI,Music", "preferences", "Muted")));
+        index.put(subscription("user5", "sub5", Map.of("tags", "AI,Music")));
+
+        Collection<Subscription> result = index.findForAudience(
+                AudienceExpression.parse("club:club1 OR (tag:AI AND tag:Music) MINUS muted"));
+
+        assertEquals(Set.of("user1", "user3", "user5"), result.stream().map(Subscription::userId).collect(Collectors.toSet()));
+        assertEquals(1, index.countAudience(AudienceExpression.parse("tag:Technology MINUS user:user1")));
+        assertEquals(0, index.countAudience(AudienceExpression.parse("user:unknown")));
+    }
+
+    @Test
+    void testFindForAudience_SelectedUsersKeepAllSubscriptions() {
+        index.put(subscription("user1", "sub6", Map.of("tag", "Art")));
+
+        Collection<Subscription> result = index.findForAudience(AudienceExpression.parse("user:user1"));
+
+        assertEquals(Set.of("sub1", "sub6"), result.stream().map(Subscription::subscriptionId).collect(Collectors.toSet()));
+    }
+
+    private static Subscription versioned(Subscription subscription, long version) {
+        return new Subscription(subscription.userId(), subscription.subscriptionId(), subscription.type(),
+                subscription.clubId(), subscription.tag(), subscription.tags(), subscription.preferences(),
+                subscription.digest(), subscription.userEmail(), version, subscription.attributes());
+    }
+
+    private static Subscription subscription(String userId, String subscriptionId, Map<String, String> details) {
+        return SubscriptionCodec.fromRequest(userId, subscriptionId, details);
+    }
+}
@@ -1,17 +1,30 @@
 package com.clubconnect.notificationservice.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,7 +32,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.clubconnect.notificationservice.model.BulkWriteResult;
+import com.clubconnect.notificationservice.model.Subscription;
+import com.clubconnect.notificationservice.model.SubscriptionChange;
+import com.clubconnect.notificationservice.model.SubscriptionPage;
+import com.clubconnect.notificationservice.repository.AsyncSubscriptionRepository;
+import com.clubconnect.notificationservice.repository.SubscriptionCodec;
 import com.clubconnect.notificationservice.repository.SubscriptionRepository;
+import com.clubconnect.notificationservice.repository.SubscriptionUpdate;
 
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
@@ -28,23 +48,93 @@ class SubscriptionServiceTest {
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    private AsyncSubscriptionRepository asyncSubscriptionRepository;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
     @InjectMocks
     private SubscriptionService subscriptionService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(subscriptionRepository.addSubscription(any(Subscription.class)))
+                .thenAnswer(invocation -> versioned(invocation.getArgument(0), 1));
     }
 
     @Test
     void testAddSubscription() {
         String userId = "user1";
         String subscriptionId = "sub1";
-        Map<String, String> subscriptions = Map.of("clubId", "club1", "tags", "tag1,tag2");
+        Subscription subscription = SubscriptionCodec.fromRequest(userId, subscriptionId,
+                Map.of("clubId", "club1", "tags", List.of("tag1", "tag2")));
+
+        subscriptionService.addSubscription(subscription);
+
+        verify(subscriptionRepository, times(1)).addSubscription(subscription);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAddSubscriptions_ReportsEachItem() {
+        when(subscriptionRepository.batchPutSubscriptions(anyList())).thenAnswer(invocation -> {
+            List<Map<String, AttributeValue>> items = invocation.getArgument(0);
+            assertEquals(2, items.size());
+            return Map.of(1, "Unprocessed after 8 attempts");
+        });
+
+        List<BulkWriteResult> results = subscriptionService.addSubscriptions(List.of(
+                subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1")),
+                subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club2")),
+                subscription(Map.of("clubId", "club3")),
+                subscription(Map.of("userId", "user2", "subscriptionId", "sub2", "tags", "AI"))));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Duplicate subscription in request", results.get(1).getError());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Unprocessed after 8 attempts", results.get(3).getError());
+    }
+
+    @Test
+    void testListSubscriptions_RoundTripsTheCursor() {
+        Map<String, AttributeValue> lastKey = attributes(Map.of("userId", "user1", "subscriptionId", "sub1"));
+        when(subscriptionRepository.querySubscriptionsByUser(eq("user1"), eq(1), isNull(), anyList()))
+                .thenReturn(new SubscriptionRepository.Page(List.of(lastKey), lastKey));
+        when(subscriptionRepository.querySubscriptionsByUser(eq("user1"), eq(1), eq(lastKey), anyList()))
+                .thenReturn(new SubscriptionRepository.Page(List.of(), null));
+
+        SubscriptionPage first = subscriptionService.listSubscriptions("user1", 1, null, List.of());
+        SubscriptionPage second = subscriptionService.listSubscriptions("user1", 1, first.getNextCursor(), List.of());
+
+        assertEquals("sub1", first.getSubscriptions().get(0).subscriptionId());
+        assertNotNull(first.getNextCursor());
+        assertTrue(second.getSubscriptions().isEmpty());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testListSubscriptions_RejectsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionService.listSubscriptions("user1", 10, "%%%", List.of()));
+        verify(subscriptionRepository, never()).querySubscriptionsByUser(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void testGetSubscriptions_FetchesUniqueKeysInOneBatch() {
+        when(subscriptionRepository.batchGetSubscriptions(anyList(), anyList())).thenReturn(List.of(
+                attributes(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1"))));
 
-        subscriptionService.addSubscription(userId, subscriptionId, subscriptions);
+        List<Subscription> result = subscriptionService.getSubscriptions(List.of(
+                Map.of("userId", "user1", "subscriptionId", "sub1"),
+                Map.of("userId", "user1", "subscriptionId", "sub1"),
+                Map.of("userId", "user1", "subscriptionId", "sub2")), List.of());
 
-        verify(subscriptionRepository, times(1)).addSubscription(userId, subscriptionId, subscriptions);
+        assertEquals(1, result.size());
+        verify(subscriptionRepository, times(1)).batchGetSubscriptions(
+                argThat(keys -> keys.size() == 2), anyList());
     }
 
     @Test
@@ -58,28 +148,49 @@ class SubscriptionServiceTest {
 
         when(subscriptionRepository.getSubscription(userId, subscriptionId)).thenReturn(mockSubscription);
 
-        Map<String, AttributeValue> result = subscriptionService.getSubscription(userId, subscriptionId);
+        Subscription result = subscriptionService.getSubscription(userId, subscriptionId);
 
         assertNotNull(result);
-        assertEquals("club1", result.get("clubId").s());
-        assertEquals("tag1,tag2", result.get("tags").s());
+        assertEquals("club1", result.clubId());
+        assertEquals(Set.of("tag1", "tag2"), result.tags());
+    }
+
+    @Test
+    void testGetSubscription_Missing() {
+        when(subscriptionRepository.getSubscription("user1", "sub1")).thenReturn(new HashMap<>());
+
+        assertNull(subscriptionService.getSubscription("user1", "sub1"));
     }
 
     @Test
     void testUpdateSubscription() {
         String userId = "user1";
         String subscriptionId = "sub1";
-        Map<String, AttributeValue> existingSubscription = Map.of(
-                "clubId", AttributeValue.builder().s("club1").build(),
-                "tags", AttributeValue.builder().s("tag1,tag2").build()
-        );
         Map<String, String> newDetails = Map.of("tags", "tag3");
 
-        when(subscriptionRepository.getSubscription(userId, subscriptionId)).thenReturn(existingSubscription);
+        when(subscriptionRepository.updateSubscription(eq(userId), eq(subscriptionId), any(SubscriptionUpdate.class), isNull()))
+                .thenReturn(attributes(Map.of("userId", userId, "subscriptionId", subscriptionId, "clubId", "club1", "tags", "tag3")));
 
         subscriptionService.updateSubscription(userId, subscriptionId, newDetails);
 
-        verify(subscriptionRepository, times(1)).updateSubscription(eq(userId), eq(subscriptionId), any());
+        // A single UpdateItem, no read of the current item; tags always become a string set
+        verify(subscriptionRepository, times(1)).updateSubscription(eq(userId), eq(subscriptionId), argThat((SubscriptionUpdate update) ->
+                update.getSet().get("tags").ss().equals(List.of("tag3"))), isNull());
+        verify(subscriptionRepository, never()).getSubscription(userId, subscriptionId);
+    }
+
+    @Test
+    void testRemoveSubscription_DeletesSingleTags() {
+        when(subscriptionRepository.updateSubscription(eq("user1"), eq("sub1"), any(SubscriptionUpdate.class), isNull()))
+                .thenReturn(attributes(Map.of("userId", "user1", "subscriptionId", "sub1")));
+
+        subscriptionService.removeSubscription("user1", "sub1", Map.of("tags", "AI", "clubId", ""));
+
+        verify(subscriptionRepository).updateSubscription(eq("user1"), eq("sub1"), argThat((SubscriptionUpdate update) ->
+                update.getRemove().equals(Set.of("clubId"))
+                        && update.getDelete().equals(Map.of("tags", Set.of("AI")))
+                        && update.getSet().isEmpty()), isNull());
+        verify(subscriptionRepository, never()).getSubscription("user1", "sub1");
     }
 
     @Test
@@ -89,7 +200,7 @@ class SubscriptionServiceTest {
                 "sub2", Map.of("clubId", "club2", "userEmail", "user2@example.com")
         );
 
-        when(subscriptionRepository.getAllSubscriptions()).thenReturn(mockRawSubscriptions(allSubscriptions));
+        mockScan(allSubscriptions);
 
         Set<String> result = subscriptionService.getSubscribedUsersForClub("club1");
 
@@ -105,7 +216,7 @@ class SubscriptionServiceTest {
                 "sub2", Map.of("tags", "tag3", "userEmail", "user2@example.com")
         );
 
-        when(subscriptionRepository.getAllSubscriptions()).thenReturn(mockRawSubscriptions(allSubscriptions));
+        mockScan(allSubscriptions);
 
         Set<String> result = subscriptionService.getSubscribedUsersForTags(new String[]{"tag1", "tag3"});
 
@@ -115,6 +226,33 @@ class SubscriptionServiceTest {
         assertTrue(result.contains("user2@example.com"));
     }
 
+    @Test
+    void testFindSubscriptionsForEvent_QueriesIndexesBeforeLoad() {
+        CompletableFuture<List<Map<String, AttributeValue>>> clubQuery = new CompletableFuture<>();
+        CompletableFuture<List<Map<String, AttributeValue>>> tagQuery = new CompletableFuture<>();
+        when(asyncSubscriptionRepository.findByClubId("club1")).thenReturn(clubQuery);
+        when(asyncSubscriptionRepository.findByTags(List.of("AI"))).thenReturn(tagQuery);
+
+        CompletableFuture<Collection<Subscription>> pending =
+                subscriptionService.findSubscriptionsForEventAsync("club1", List.of("AI", "AI"));
+
+        // Both queries are in flight before either one completes
+        verify(asyncSubscriptionRepository).findByClubId("club1");
+        verify(asyncSubscriptionRepository, times(1)).findByTags(List.of("AI"));
+        assertFalse(pending.isDone());
+
+        tagQuery.complete(List.of(
+                attributes(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1", "tag", "AI")),
+                attributes(Map.of("userId", "user2", "subscriptionId", "sub2", "tag", "AI"))));
+        clubQuery.complete(List.of(
+                attributes(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1"))));
+
+        Collection<Subscription> result = pending.join();
+
+        assertEquals(2, result.size());
+        verify(subscriptionRepository, never()).getAllSubscriptions();
+        verify(subscriptionRepository, never()).findByClubId(any());
+    }
 
     @Test
     void testDeleteSubscription() {
@@ -126,13 +264,160 @@ class SubscriptionServiceTest {
         verify(subscriptionRepository, times(1)).deleteSubscription(userId, subscriptionId);
     }
 
-    private Map<String, Map<String, AttributeValue>> mockRawSubscriptions(Map<String, Map<String, String>> allSubscriptions) {
-        Map<String, Map<String, AttributeValue>> rawSubscriptions = new HashMap<>();
-        allSubscriptions.forEach((key, value) -> {
-            Map<String, AttributeValue> attributes = new HashMap<>();
-            value.forEach((k, v) -> attributes.put(k, AttributeValue.builder().s(v).build()));
-            rawSubscriptions.put(key, attributes);
-        });
-        return rawSubscriptions;
+    @Test
+    void testAddSubscription_PublishesNumberedChanges() {
+        subscriptionService.addSubscription(subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1")));
+        subscriptionService.deleteSubscription("user1", "sub1");
+        subscriptionService.publishHeartbeat();
+
+        String origin = subscriptionService.origin();
+        verify(changeFeed).publish(argThat(change -> origin.equals(change.origin()) && change.sequence() == 1
+                && change.type() == SubscriptionChange.Type.PUT && "club1".equals(change.subscription().clubId())));
+        verify(changeFeed).publish(argThat(change -> change.sequence() == 2 && change.type() == SubscriptionChange.Type.DELETE
+                && "user1".equals(change.userId()) && "sub1".equals(change.subscriptionId())));
+        verify(changeFeed).publish(argThat(change -> change.sequence() == 2 && change.type() == SubscriptionChange.Type.HEARTBEAT));
+    }
+
+    @Test
+    void testApplyChange_WritesOnOneNodeReachTheOthers() {
+        LocalChangeFeed feed = new LocalChangeFeed();
+        SubscriptionService writer = new SubscriptionService(subscriptionRepository, asyncSubscriptionRepository, feed);
+        SubscriptionService reader = new SubscriptionService(subscriptionRepository, asyncSubscriptionRepository, feed);
+        writer.initIndex();
+        reader.initIndex();
+
+        writer.addSubscription(subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1",
+                "userEmail", "user1@example.com")));
+        assertEquals(Set.of("user1@example.com"), reader.getSubscribedUsersForClub("club1"));
+        assertEquals(1L, reader.checkpoint(writer.origin()));
+
+        writer.removeSubscription("sub1");
+        assertTrue(reader.getSubscribedUsersForClub("club1").isEmpty());
+        assertNull(writer.checkpoint(writer.origin()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplyChange_GapReloadsIndex() {
+        mockScan(Map.of("sub2", Map.of("userId", "user2", "clubId", "club1", "userEmail", "user2@example.com")));
+        subscriptionService.reloadIndex();
+        Subscription first = subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1",
+                "userEmail", "user1@example.com"));
+
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 1, SubscriptionChange.Type.PUT, "user1", "sub1", first));
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 1, SubscriptionChange.Type.HEARTBEAT, null, null, null));
+        assertEquals(Set.of("user1@example.com", "user2@example.com"), subscriptionService.getSubscribedUsersForClub("club1"));
+        verify(subscriptionRepository, times(1)).scanSubscriptions(any(Consumer.class));
+
+        // Change 2 was lost, so the index is rebuilt from the table instead
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 3, SubscriptionChange.Type.DELETE, "user2", "sub2", null));
+
+        verify(subscriptionRepository, times(2)).scanSubscriptions(any(Consumer.class));
+        assertEquals(3L, subscriptionService.checkpoint("nodeA"));
+        assertEquals(Set.of("user2@example.com"), subscriptionService.getSubscribedUsersForClub("club1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReloadIndex_KeepsCheckpoints() {
+        subscriptionService.reloadIndex();
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 1, SubscriptionChange.Type.HEARTBEAT, null, null, null));
+
+        subscriptionService.reloadIndex();
+        assertEquals(1L, subscriptionService.checkpoint("nodeA"));
+
+        // Change 2 was lost while the index was reloading
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 3, SubscriptionChange.Type.HEARTBEAT, null, null, null));
+
+        verify(subscriptionRepository, times(3)).scanSubscriptions(any(Consumer.class));
+    }
+
+    @Test
+    void testAddSubscription_PublishesTheVersionWritten() {
+        subscriptionService.addSubscription(subscription(Map.of("userId", "user1", "subscriptionId", "sub1", "clubId", "club1")));
+
+        verify(changeFeed).publish(argThat(change -> change.type() == SubscriptionChange.Type.PUT
+                && Long.valueOf(1).equals(change.subscription().version())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApplyChange_HeartbeatAheadOfCheckpointReloadsIndex() {
+        subscriptionService.reloadIndex();
+
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 4, SubscriptionChange.Type.HEARTBEAT, null, null, null));
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 4, SubscriptionChange.Type.DELETE, "user1", "sub1", null));
+        verify(subscriptionRepository, times(1)).scanSubscriptions(any(Consumer.class));
+
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 5, SubscriptionChange.Type.HEARTBEAT, null, null, null));
+
+        verify(subscriptionRepository, times(2)).scanSubscriptions(any(Consumer.class));
+        assertEquals(5L, subscriptionService.checkpoint("nodeA"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReloadIndex_ReplaysLocalWritesMadeDuringTheScan() {
+        doAnswer(invocation -> {
+            Consumer<Map<String, AttributeValue>> sink = invocation.getArgument(0);
+            Map<String, AttributeValue> item = attributes(Map.of("userId", "user2", "clubId", "club1",
+                    "userEmail", "user2@example.com"));
+            item.put("subscriptionId", AttributeValue.builder().s("sub2").build());
+            sink.accept(item);
+            // Written after the scan passed its key, so only the replay brings it into the new index
+            subscriptionService.addSubscription(subscription(Map.of("userId", "user1", "subscriptionId", "sub1",
+                    "clubId", "club1", "userEmail", "user1@example.com")));
+            return null;
+        }).when(subscriptionRepository).scanSubscriptions(any(Consumer.class));
+
+        subscriptionService.reloadIndex();
+
+        assertEquals(Set.of("user1@example.com", "user2@example.com"), subscriptionService.getSubscribedUsersForClub("club1"));
+    }
+
+    @Test
+    void testApplyChange_IgnoresOlderVersion() {
+        subscriptionService.reloadIndex();
+        Subscription newer = versioned(subscription(Map.of("userId", "user1", "subscriptionId", "sub1",
+                "clubId", "club2", "userEmail", "user1@example.com")), 3);
+        Subscription older = versioned(subscription(Map.of("userId", "user1", "subscriptionId", "sub1",
+                "clubId", "club1", "userEmail", "user1@example.com")), 2);
+
+        // Written on node A after node B's write, but delivered first
+        subscriptionService.applyChange(new SubscriptionChange("nodeA", 1, SubscriptionChange.Type.PUT, "user1", "sub1", newer));
+        subscriptionService.applyChange(new SubscriptionChange("nodeB", 1, SubscriptionChange.Type.PUT, "user1", "sub1", older));
+
+        assertEquals(Set.of("user1@example.com"), subscriptionService.getSubscribedUsersForClub("club2"));
+        assertTrue(subscriptionService.getSubscribedUsersForClub("club1").isEmpty());
+        assertEquals(1L, subscriptionService.checkpoint("nodeB"));
+    }
+
+    private static Subscription versioned(Subscription subscription, long version) {
+        return new Subscription(subscription.userId(), subscription.subscriptionId(), subscription.type(),
+                subscription.clubId(), subscription.tag(), subscription.tags(), subscription.preferences(),
+                subscription.digest(), subscription.userEmail(), version, subscription.attributes());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockScan(Map<String, Map<String, String>> allSubscriptions) {
+        doAnswer(invocation -> {
+            Consumer<Map<String, AttributeValue>> sink = invocation.getArgument(0);
+            allSubscriptions.forEach((subscriptionId, value) -> {
+                Map<String, AttributeValue> item = attributes(value);
+                item.put("subscriptionId", AttributeValue.builder().s(subscriptionId).build());
+                sink.accept(item);
+            });
+            return null;
+        }).when(subscriptionRepository).scanSubscriptions(any(Consumer.class));
+    }
+
+    private static Subscription subscription(Map<String, String> details) {
+        return SubscriptionCodec.fromRequest(null, null, details);
+    }
+
+    private Map<String, AttributeValue> attributes(Map<String, String> values) {
+        Map<String, AttributeValue> attributes = new HashMap<>();
+        values.forEach((k, v) -> attributes.put(k, AttributeValue.builder().s(v).build()));
+        return attributes;
     }
 }
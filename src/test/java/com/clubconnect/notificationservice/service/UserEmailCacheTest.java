@@ -0,0 +1,136 @@
+package com.clubconnect.notificationservice.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class UserEmailCacheTest {
+
+    @Test
+    void testGetEmail_CachesHitsAndUnknownUsers() {
+        AtomicInteger loads = new AtomicInteger();
+        UserEmailCache cache = new UserEmailCache(userIds -> {
+            loads.incrementAndGet();
+            Map<String, String> emails = new HashMap<>();
+            userIds.forEach(userId -> emails.put(userId, "user1".equals(userId) ? "user1@example.com" : null));
+            return emails;
+        }, 10, 60, 60);
+
+        assertEquals("user1@example.com", cache.getEmail("user1"));
+        assertEquals("user1@example.com", cache.getEmail("user1"));
+        assertNull(cache.getEmail("ghost"));
+        assertNull(cache.getEmail("ghost"));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.stats().hits());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void testGetEmail_UnresolvedUsersAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        UserEmailCache cache = new UserEmailCache(userIds -> {
+            loads.incrementAndGet();
+            return Map.of();
+        }, 10, 60, 60);
+
+        assertNull(cache.getEmail("user1"));
+        assertNull(cache.getEmail("user1"));
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.stats().loadFailures());
+    }
+
+    @Test
+    void testGetEmails_LoadsOnlyMissesInOneCall() {
+        List<Integer> batchSizes = new ArrayList<>();
+        UserEmailCache cache = new UserEmailCache(new LocalUserDirectory(Map.of(
+                "user1", "user1@example.com",
+                "user2", "user2@example.com",
+                "user3", "user3@example.com")) {
+            @Override
+            public Map<String, String> resolveEmails(Collection<String> userIds) {
+                batchSizes.add(userIds.size());
+                return super.resolveEmails(userIds);
+            }
+        }, 10, 60, 60);
+
+        cache.getEmail("user1");
+        Map<String, String> emails = cache.getEmails(List.of("user1", "user2", "user3", "user2"));
+
+        assertEquals(3, emails.size());
+        assertEquals("user3@example.com", emails.get("user3"));
+        assertEquals(List.of(1, 2), batchSizes);
+    }
+
+    @Test
+    void testGetEmail_EvictsLeastRecentlyUsed() {
+        UserEmailCache cache = new UserEmailCache(new LocalUserDirectory(), 2, 60, 60);
+
+        cache.getEmail("user1");
+        cache.getEmail("user2");
+        cache.getEmail("user3");
+
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void testGetEmail_ExpiredEntriesAreReloaded() {
+        AtomicInteger loads = new AtomicInteger();
+        UserEmailCache cache = new UserEmailCache(userIds -> {
+            loads.incrementAndGet();
+            return Map.of("user1", "user1@example.com");
+        }, 10, 0, 0);
+
+        cache.getEmail("user1");
+        cache.getEmail("user1");
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetEmail_ConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        UserEmailCache cache = new UserEmailCache(userIds -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Map.of("user1", "user1@example.com");
+        }, 10, 60, 60);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.getEmail("user1")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("user1@example.com", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}